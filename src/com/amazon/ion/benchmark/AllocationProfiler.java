@@ -0,0 +1,167 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JMH Profiler plugin to report the bytes allocated per operation in each phase of the work done by benchmarks that
+ * use --allocation-phases: constructing the reader or writer, traversing (reading or writing) the data, and closing the
+ * reader or writer. Unlike JMH's gc.alloc.rate.norm, this excludes allocations made by the benchmark harness, e.g. to
+ * set up the input or output of each invocation. Allocations are counted exactly, per thread, by sampling the calling
+ * thread's allocated bytes at each phase boundary; the bytes allocated by the sampling itself are calibrated once and
+ * subtracted. Allocations made on other threads (e.g. the reader of --io-type pipeline) are not included. Nothing is
+ * reported for phases that were not recorded during the iteration.
+ */
+public class AllocationProfiler implements InternalProfiler {
+
+    /**
+     * A phase of the work done by a single operation.
+     */
+    enum Phase {
+        CONSTRUCTION("construction"),
+        TRAVERSAL("traversal"),
+        CLOSE("close");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    // Null if the JVM cannot count the bytes allocated by each thread.
+    private static final com.sun.management.ThreadMXBean THREADS = threadAllocationCounter();
+
+    // The number of bytes allocated by a single call to allocatedBytes(), which is included in each phase.
+    private static final long SAMPLING_OVERHEAD = isSupported() ? calibrate() : 0;
+
+    private static final LongAdder[] bytesByPhase = new LongAdder[Phase.values().length];
+    private static final LongAdder[] countByPhase = new LongAdder[Phase.values().length];
+
+    static {
+        for (int i = 0; i < bytesByPhase.length; i++) {
+            bytesByPhase[i] = new LongAdder();
+            countByPhase[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the JVM's ThreadMXBean if it is able to count the bytes allocated by each thread; otherwise, null.
+     */
+    private static com.sun.management.ThreadMXBean threadAllocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationCounter = (com.sun.management.ThreadMXBean) threads;
+            if (allocationCounter.isThreadAllocatedMemorySupported()
+                && allocationCounter.isThreadAllocatedMemoryEnabled()) {
+                return allocationCounter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the JVM is able to count the bytes allocated by each thread, which is required by
+     *         --allocation-phases; otherwise, false.
+     */
+    static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * @return the total number of bytes allocated by the calling thread. Must only be called if {@link #isSupported()}.
+     */
+    static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return the smallest number of bytes observed to be allocated between two consecutive calls to
+     *         {@link #allocatedBytes()}.
+     */
+    private static long calibrate() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long start = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - start);
+        }
+        return overhead;
+    }
+
+    /**
+     * Records the bytes allocated by the calling thread during a phase. May be called concurrently by multiple
+     * benchmark threads.
+     * @param phase the phase.
+     * @param start the value of {@link #allocatedBytes()} at the start of the phase.
+     * @return the value of {@link #allocatedBytes()} at the end of the phase, which is the start of the next phase.
+     */
+    static long record(Phase phase, long start) {
+        long end = allocatedBytes();
+        bytesByPhase[phase.ordinal()].add(Math.max(0, end - start - SAMPLING_OVERHEAD));
+        countByPhase[phase.ordinal()].increment();
+        return end;
+    }
+
+    /**
+     * @param phase the phase.
+     * @return the number of bytes recorded for the given phase since the start of the current iteration.
+     */
+    static long getAllocatedBytes(Phase phase) {
+        return bytesByPhase[phase.ordinal()].sum();
+    }
+
+    /**
+     * @param phase the phase.
+     * @return the number of times the given phase was recorded since the start of the current iteration.
+     */
+    static long getCount(Phase phase) {
+        return countByPhase[phase.ordinal()].sum();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Allocation by phase profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        for (int i = 0; i < bytesByPhase.length; i++) {
+            bytesByPhase[i].reset();
+            countByPhase[i].reset();
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult iterationResult
+    ) {
+        Collection<Result> results = new ArrayList<>();
+        long operations = iterationResult.getMetadata().getAllOps();
+        if (operations > 0) {
+            for (Phase phase : Phase.values()) {
+                if (getCount(phase) > 0) {
+                    results.add(new ScalarResult(
+                        "Allocated in " + phase.label,
+                        (double) getAllocatedBytes(phase) / operations,
+                        "B/op",
+                        AggregationPolicy.AVG
+                    ));
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -8,6 +8,7 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
 
 import java.io.IOException;
 import java.nio.file.Paths;
@@ -57,7 +58,11 @@ public class Bench {
     }
 
     @Benchmark
-    public void run(Blackhole blackhole) throws Exception {
-        taskToMeasure.run(new BlackholeSideEffectConsumer(blackhole));
+    public void run(
+        BlackholeSideEffectConsumer.PerThread consumers,
+        Blackhole blackhole,
+        ThreadParams threadParams
+    ) throws Exception {
+        taskToMeasure.run(consumers.forBlackhole(blackhole), threadParams.getThreadIndex());
     }
 }
@@ -1,9 +1,32 @@
 package com.amazon.ion.benchmark;
 
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.infra.Blackhole;
 
 public class BlackholeSideEffectConsumer implements SideEffectConsumer {
 
+    /**
+     * Per-thread benchmark state that holds the consumer for the thread's Blackhole, so that a new consumer is not
+     * allocated by every invocation of the benchmark.
+     */
+    @State(Scope.Thread)
+    public static class PerThread {
+
+        private BlackholeSideEffectConsumer consumer = null;
+
+        /**
+         * @param blackhole the Blackhole provided to the current invocation.
+         * @return a consumer that sinks values into the given Blackhole.
+         */
+        BlackholeSideEffectConsumer forBlackhole(Blackhole blackhole) {
+            if (consumer == null || consumer.blackhole != blackhole) {
+                consumer = new BlackholeSideEffectConsumer(blackhole);
+            }
+            return consumer;
+        }
+    }
+
     private final Blackhole blackhole;
 
     BlackholeSideEffectConsumer(Blackhole blackhole) {
@@ -0,0 +1,85 @@
+package com.amazon.ion.benchmark;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream over a sequence of ByteBuffers, which may be direct or memory-mapped. The buffers' contents are not
+ * copied up front; bytes are transferred directly from the buffers into the destination arrays provided by the
+ * stream's consumer. The sequence may span more than the 2 GB that a single ByteBuffer or byte[] can hold.
+ */
+class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer[] chunks;
+    private int chunkIndex = 0;
+
+    /**
+     * @param chunks the buffers to read, in order, from their current positions to their limits. The buffers are
+     *               duplicated, so neither their positions nor their limits are modified by this stream. This allows
+     *               the same buffers to be shared by multiple concurrent streams.
+     */
+    ByteBufferInputStream(ByteBuffer... chunks) {
+        this.chunks = new ByteBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            this.chunks[i] = chunks[i].duplicate();
+        }
+    }
+
+    /**
+     * @return the current chunk, if any bytes remain in the stream; otherwise, null.
+     */
+    private ByteBuffer currentChunk() {
+        while (chunkIndex < chunks.length) {
+            ByteBuffer chunk = chunks[chunkIndex];
+            if (chunk.hasRemaining()) {
+                return chunk;
+            }
+            chunkIndex++;
+        }
+        return null;
+    }
+
+    @Override
+    public int read() {
+        ByteBuffer chunk = currentChunk();
+        if (chunk == null) {
+            return -1;
+        }
+        return chunk.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuffer chunk = currentChunk();
+        if (chunk == null) {
+            return -1;
+        }
+        int numberOfBytesToRead = Math.min(len, chunk.remaining());
+        chunk.get(b, off, numberOfBytesToRead);
+        return numberOfBytesToRead;
+    }
+
+    @Override
+    public long skip(long n) {
+        long numberOfBytesSkipped = 0;
+        ByteBuffer chunk;
+        while (numberOfBytesSkipped < n && (chunk = currentChunk()) != null) {
+            int numberOfBytesToSkip = (int) Math.min(n - numberOfBytesSkipped, chunk.remaining());
+            // Cast to Buffer so that the resulting bytecode is compatible with Java 8, where ByteBuffer does not
+            // override position(int).
+            ((Buffer) chunk).position(chunk.position() + numberOfBytesToSkip);
+            numberOfBytesSkipped += numberOfBytesToSkip;
+        }
+        return numberOfBytesSkipped;
+    }
+
+    @Override
+    public int available() {
+        ByteBuffer chunk = currentChunk();
+        return chunk == null ? 0 : chunk.remaining();
+    }
+}
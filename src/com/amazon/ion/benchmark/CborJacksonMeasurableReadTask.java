@@ -8,17 +8,20 @@ import com.fasterxml.jackson.dataformat.cbor.CBORParser;
 import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 
+import static com.amazon.ion.benchmark.MeasurableTask.endAllocationPhase;
+import static com.amazon.ion.benchmark.MeasurableTask.startAllocationPhases;
+
 /**
  * A MeasurableReadTask for reading data in the CBOR format using the Jackson library.
  */
 public class CborJacksonMeasurableReadTask extends MeasurableReadTask {
 
     private final CBORFactory cborFactory;
-    private SideEffectConsumer sideEffectConsumer = null;
 
     /**
      * @param inputPath the JSON data to read.
@@ -36,7 +39,16 @@ public class CborJacksonMeasurableReadTask extends MeasurableReadTask {
         }
     }
 
-    private boolean consumeCurrentValue(CBORParser parser, boolean isInStruct) throws IOException {
+    /**
+     * Consumes the value on which the given parser is positioned, including its field name, fully traversing it if it
+     * is a container. Also used by the reader at the end of a write pipeline (see {@link IoType#PIPELINE}).
+     * @param parser the parser, positioned on a value.
+     * @param isInStruct true if the value is a map entry.
+     * @param sideEffectConsumer the SideEffectConsumer.
+     * @return true if the parser was instead positioned at the end of a container.
+     * @throws IOException if thrown during parsing.
+     */
+    static boolean consumeCurrentValue(CBORParser parser, boolean isInStruct, SideEffectConsumer sideEffectConsumer) throws IOException {
         if (isInStruct) {
             sideEffectConsumer.consume(parser.getCurrentName());
         }
@@ -79,10 +91,10 @@ public class CborJacksonMeasurableReadTask extends MeasurableReadTask {
                 sideEffectConsumer.consume(parser.getBinaryValue());
                 break;
             case START_ARRAY:
-                fullyTraverse(parser, false);
+                fullyTraverse(parser, false, sideEffectConsumer);
                 break;
             case START_OBJECT:
-                fullyTraverse(parser, true);
+                fullyTraverse(parser, true, sideEffectConsumer);
                 break;
             case END_ARRAY:
             case END_OBJECT:
@@ -93,14 +105,35 @@ public class CborJacksonMeasurableReadTask extends MeasurableReadTask {
         return false;
     }
 
-    private void fullyTraverse(CBORParser parser, boolean isInStruct) throws IOException {
+    private static void fullyTraverse(CBORParser parser, boolean isInStruct, SideEffectConsumer sideEffectConsumer) throws IOException {
         while (parser.nextValue() != null) {
-            if (consumeCurrentValue(parser, isInStruct)) {
+            if (consumeCurrentValue(parser, isInStruct, sideEffectConsumer)) {
                 break;
             }
         }
     }
 
+    /**
+     * Fully traverses the top-level values of the given parser, timing each value if requested by the options.
+     * @param parser the parser, positioned at the top level.
+     * @param sideEffectConsumer the SideEffectConsumer.
+     * @throws IOException if thrown during parsing.
+     */
+    private void fullyTraverseTopLevel(CBORParser parser, SideEffectConsumer sideEffectConsumer) throws IOException {
+        if (options.valueLatency == ValueLatencyMode.NONE) {
+            fullyTraverse(parser, false, sideEffectConsumer);
+            return;
+        }
+        LatencyProfiler.Recorder recorder = LatencyProfiler.recorder();
+        long start = System.nanoTime();
+        while (parser.nextValue() != null) {
+            consumeCurrentValue(parser, false, sideEffectConsumer);
+            long end = System.nanoTime();
+            recorder.record(end - start);
+            start = end;
+        }
+    }
+
     @Override
     public void setUpIteration() {
         // Nothing to do.
@@ -111,20 +144,55 @@ public class CborJacksonMeasurableReadTask extends MeasurableReadTask {
         // Nothing to do.
     }
 
+    @Override
+    MessageBuffer splitIntoMessages(byte[] data) throws IOException {
+        try (CBORParser parser = cborFactory.createParser(data)) {
+            return JacksonUtilities.splitIntoMessages(parser, data);
+        }
+    }
+
+    @Override
+    void fullyTraverseMessages(SideEffectConsumer consumer) throws IOException {
+        LatencyProfiler.Recorder recorder = valueLatencyRecorder();
+        long constructionNanos = 0;
+        long decodingNanos = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            long start = System.nanoTime();
+            CBORParser parser = cborFactory.createParser(messages.data, messages.offset(i), messages.length(i));
+            long constructed = System.nanoTime();
+            fullyTraverse(parser, false, consumer);
+            parser.close();
+            long end = System.nanoTime();
+            decodingNanos += end - constructed;
+            constructionNanos += constructed - start;
+            if (recorder != null) {
+                recorder.record(end - start, messageSizeForLatency(i));
+            }
+        }
+        MessageProfiler.recordMessages(messages.size(), constructionNanos, decodingNanos);
+    }
+
     @Override
     void fullyTraverseFromBuffer(SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
+        long allocated = startAllocationPhases(options);
         CBORParser parser = cborFactory.createParser(buffer);
-        fullyTraverse(parser, false);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
+        fullyTraverseTopLevel(parser, consumer);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
         parser.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 
     @Override
     void fullyTraverseFromFile(SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
-        CBORParser parser = cborFactory.createParser(options.newInputStream(inputFile));
-        fullyTraverse(parser, false);
+        InputStream input = newInputStream();
+        long allocated = startAllocationPhases(options);
+        CBORParser parser = cborFactory.createParser(input);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
+        fullyTraverseTopLevel(parser, consumer);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
         parser.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 
     @Override
@@ -141,19 +209,32 @@ public class CborJacksonMeasurableReadTask extends MeasurableReadTask {
 
     @Override
     void fullyReadDomFromBuffer(SideEffectConsumer consumer) throws IOException {
+        long allocated = startAllocationPhases(options);
         CBORMapper mapper = JacksonUtilities.newCborObjectMapper(cborFactory, options);
-        Iterator<JsonNode> iterator = mapper.reader().createParser(buffer).readValuesAs(JsonNode.class);
+        JsonParser parser = mapper.reader().createParser(buffer);
+        Iterator<JsonNode> iterator = parser.readValuesAs(JsonNode.class);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
         while (iterator.hasNext()) {
             consumer.consume(iterator.next());
         }
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
+        parser.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 
     @Override
     void fullyReadDomFromFile(SideEffectConsumer consumer) throws IOException {
+        InputStream input = newInputStream();
+        long allocated = startAllocationPhases(options);
         CBORMapper mapper = JacksonUtilities.newCborObjectMapper(cborFactory, options);
-        Iterator<JsonNode> iterator = mapper.reader().createParser(options.newInputStream(inputFile)).readValuesAs(JsonNode.class);
+        JsonParser parser = mapper.reader().createParser(input);
+        Iterator<JsonNode> iterator = parser.readValuesAs(JsonNode.class);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
         while (iterator.hasNext()) {
             consumer.consume(iterator.next());
         }
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
+        parser.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 }
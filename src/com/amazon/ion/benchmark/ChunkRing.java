@@ -0,0 +1,245 @@
+package com.amazon.ion.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free ring of reusable byte chunks that hands data from a single producer thread to a single consumer
+ * thread. The producer writes into the next free chunk through the stream returned by {@link #newOutputStream()} and
+ * publishes it when it is full, flushed, or closed; the consumer reads published chunks in order through the stream
+ * returned by {@link #newInputStream()} and releases each chunk for reuse once it has been read. When all chunks are
+ * published but not yet released, the producer waits; when no chunks are published, the consumer waits. The chunks are
+ * allocated up front, so transferring data neither allocates nor locks; the only allocations after construction are the
+ * two streams, once per stream. The time each chunk spends between being published and being taken by the consumer is
+ * reported to {@link PipelineProfiler}.
+ */
+final class ChunkRing {
+
+    /**
+     * The length that marks a published chunk as the end of the stream.
+     */
+    private static final int END_OF_STREAM = -1;
+
+    private final byte[][] chunks;
+    private final int[] lengths;
+    private final long[] publishNanos;
+    // The total number of chunks published and released, respectively. The producer only writes 'published' and the
+    // consumer only writes 'released', so ordered (lazy) writes suffice.
+    private final AtomicLong published = new AtomicLong(0);
+    private final AtomicLong released = new AtomicLong(0);
+    // Set by either side when it stops before the end of the stream, so that the other side does not wait forever.
+    private volatile boolean isAborted = false;
+
+    /**
+     * @param depth the number of chunks in the ring.
+     * @param chunkSize the size of each chunk in bytes.
+     */
+    ChunkRing(int depth, int chunkSize) {
+        if (depth < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("The pipeline queue depth and chunk size must be at least 1.");
+        }
+        chunks = new byte[depth][chunkSize];
+        lengths = new int[depth];
+        publishNanos = new long[depth];
+    }
+
+    /**
+     * Waits until the given counter, which is written by the other side of the ring, reaches the given value.
+     * @param counter either {@link #published} or {@link #released}.
+     * @param value the value.
+     * @throws IOException if the other side aborted or the calling thread was interrupted while waiting.
+     */
+    private void await(AtomicLong counter, long value) throws IOException {
+        while (counter.get() < value) {
+            if (isAborted) {
+                throw new IOException("The other end of the pipeline stopped before the end of the stream.");
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException("Interrupted while waiting for the pipeline.");
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * @param sequence a chunk sequence number.
+     * @return the index of the chunk with the given sequence number.
+     */
+    private int indexOf(long sequence) {
+        return (int) (sequence % chunks.length);
+    }
+
+    /**
+     * Stops the current stream, causing any thread waiting on either side of the ring to fail. The ring may not be
+     * used after it is aborted.
+     */
+    void abort() {
+        isAborted = true;
+    }
+
+    /**
+     * Creates the producer side of a new stream through this ring. Closing the returned stream publishes the end of
+     * the stream to the consumer.
+     * @return a new OutputStream.
+     */
+    OutputStream newOutputStream() {
+        return new OutputStream() {
+            private long sequence = published.get();
+            private byte[] chunk = null;
+            private int length = 0;
+            private boolean isClosed = false;
+
+            /**
+             * Waits for the next chunk to be released by the consumer, then makes it the current chunk.
+             */
+            private void acquire() throws IOException {
+                await(released, sequence - chunks.length + 1);
+                chunk = chunks[indexOf(sequence)];
+                length = 0;
+            }
+
+            /**
+             * Publishes the current chunk with the given length.
+             */
+            private void publish(int chunkLength) {
+                int index = indexOf(sequence);
+                lengths[index] = chunkLength;
+                publishNanos[index] = System.nanoTime();
+                published.lazySet(++sequence);
+                chunk = null;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                if (chunk == null) {
+                    acquire();
+                }
+                chunk[length++] = (byte) b;
+                if (length == chunk.length) {
+                    publish(length);
+                }
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int numberOfBytes) throws IOException {
+                while (numberOfBytes > 0) {
+                    if (chunk == null) {
+                        acquire();
+                    }
+                    int numberOfBytesToCopy = Math.min(numberOfBytes, chunk.length - length);
+                    System.arraycopy(bytes, offset, chunk, length, numberOfBytesToCopy);
+                    length += numberOfBytesToCopy;
+                    offset += numberOfBytesToCopy;
+                    numberOfBytes -= numberOfBytesToCopy;
+                    if (length == chunk.length) {
+                        publish(length);
+                    }
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (chunk != null && length > 0) {
+                    publish(length);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (isClosed) {
+                    return;
+                }
+                isClosed = true;
+                flush();
+                acquire();
+                publish(END_OF_STREAM);
+            }
+        };
+    }
+
+    /**
+     * Creates the consumer side of a new stream through this ring. Closing the returned stream before reaching the end
+     * of the stream aborts the producer.
+     * @return a new InputStream.
+     */
+    InputStream newInputStream() {
+        return new InputStream() {
+            private long sequence = released.get();
+            private byte[] chunk = null;
+            private int length = 0;
+            private int position = 0;
+            private boolean isAtEnd = false;
+
+            /**
+             * Waits for the next chunk to be published by the producer, then makes it the current chunk.
+             * @return false if the chunk marks the end of the stream; otherwise, true.
+             */
+            private boolean take() throws IOException {
+                await(published, sequence + 1);
+                int index = indexOf(sequence);
+                length = lengths[index];
+                if (length == END_OF_STREAM) {
+                    release();
+                    isAtEnd = true;
+                    return false;
+                }
+                PipelineProfiler.recordHandoff(System.nanoTime() - publishNanos[index]);
+                chunk = chunks[index];
+                position = 0;
+                return true;
+            }
+
+            /**
+             * Returns the current chunk to the producer for reuse.
+             */
+            private void release() {
+                released.lazySet(++sequence);
+                chunk = null;
+            }
+
+            @Override
+            public int read() throws IOException {
+                if (isAtEnd || (chunk == null && !take())) {
+                    return -1;
+                }
+                int b = chunk[position++] & 0xFF;
+                if (position == length) {
+                    release();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int numberOfBytes) throws IOException {
+                if (numberOfBytes == 0) {
+                    return 0;
+                }
+                if (isAtEnd || (chunk == null && !take())) {
+                    return -1;
+                }
+                int numberOfBytesToCopy = Math.min(numberOfBytes, length - position);
+                System.arraycopy(chunk, position, bytes, offset, numberOfBytesToCopy);
+                position += numberOfBytesToCopy;
+                if (position == length) {
+                    release();
+                }
+                return numberOfBytesToCopy;
+            }
+
+            @Override
+            public int available() {
+                return chunk == null ? 0 : length - position;
+            }
+
+            @Override
+            public void close() {
+                if (!isAtEnd) {
+                    abort();
+                }
+            }
+        };
+    }
+}
@@ -26,6 +26,25 @@ class Constants {
     static final String AUTO_VALUE = "auto";
     static final String NONE_VALUE = "none";
     static final String AUTO_FLUSH_ENABLED = "m";
+    static final String THREADS_NAME = "threads";
+    static final String IO_READ_SIZE_NAME = "io_read_size";
+    static final String JSON_USE_NON_BLOCKING_PARSER_NAME = "json_use_non_blocking_parser";
+    static final String OUTPUT_BUFFER_NAME = "output_buffer";
+    static final String OUTPUT_BUFFER_CHUNK_SIZE_NAME = "output_buffer_chunk_size";
+    static final String IO_SYNC_NAME = "io_sync";
+    static final String SOCKET_BUFFER_SIZE_NAME = "socket_buffer_size";
+    static final String PARTITIONS_NAME = "partitions";
+    static final String WRITE_INSTRUCTIONS_OFF_HEAP_NAME = "write_instructions_off_heap";
+    static final String CONVERSION_CACHE_NAME = "conversion_cache";
+    static final String CONVERSION_CACHE_SIZE_NAME = "conversion_cache_size";
+    static final String WRITE_SEGMENT_SIZE_NAME = "write_segment_size";
+    static final String WRITE_SEGMENT_WRITER_NAME = "write_segment_writer";
+    static final String PIPELINE_CHUNK_SIZE_NAME = "pipeline_chunk_size";
+    static final String PIPELINE_QUEUE_DEPTH_NAME = "pipeline_queue_depth";
+    static final String MESSAGES_NAME = "messages";
+    static final String VALUE_LATENCY_NAME = "value_latency";
+    static final String ALLOCATION_PHASES_NAME = "allocation_phases";
+    static final String RETAINED_SIZE_NAME = "retained_size";
 
     private Constants() {
         // Do not instantiate.
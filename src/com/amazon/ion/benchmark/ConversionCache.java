@@ -0,0 +1,422 @@
+package com.amazon.ion.benchmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed cache of input files that have been converted to match an options combination. Each converted
+ * file is keyed by a digest of the input file's content and of only those options that affect how the input is
+ * encoded, so options combinations that differ only in how the data is read or written share a single conversion.
+ * Because the cache is stored on disk, it is also shared by all JMH forks and, with
+ * {@link ConversionCacheScope#PERSISTENT}, by subsequent benchmark runs. When the total size of the cached files exceeds
+ * the configured maximum, the least-recently-used files are evicted.
+ * <p>
+ * Hashing the content of a large input costs as much as reading it, so converted files are looked up using an alias
+ * keyed by the input's canonical path, length, and modification time instead. The content is only hashed when no
+ * alias exists, i.e. when an entry is built or when a changed or copied input is found to match an existing entry.
+ */
+final class ConversionCache {
+
+    /**
+     * The default maximum total size in bytes of the files in the cache.
+     */
+    static final long DEFAULT_MAXIMUM_SIZE = 2L * 1024 * 1024 * 1024;
+
+    private static final String CACHE_DIRECTORY_NAME = "conversions";
+    private static final String ALIAS_DIRECTORY_NAME = "conversion-aliases";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    // Digests of input files that have already been hashed by this process, by absolute path.
+    private static final Map<String, ContentDigest> CONTENT_DIGESTS = new ConcurrentHashMap<>();
+
+    // The number of trials in this process currently using each cached file. Files in use are never evicted.
+    private static final Map<Path, Integer> USERS = new ConcurrentHashMap<>();
+
+    /**
+     * The digest of a file's content, along with the length and modification time of the file when it was hashed.
+     */
+    private static class ContentDigest {
+        final long length;
+        final long lastModified;
+        final String digest;
+
+        ContentDigest(File file, String digest) {
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            this.digest = digest;
+        }
+    }
+
+    private ConversionCache() {
+        // Do not instantiate.
+    }
+
+    /**
+     * @return a new SHA-256 MessageDigest.
+     */
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param bytes bytes to encode.
+     * @param numberOfBytes the number of leading bytes to encode.
+     * @return the hexadecimal encoding of the given number of leading bytes.
+     */
+    private static String toHex(byte[] bytes, int numberOfBytes) {
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < numberOfBytes; i++) {
+            hex.append(String.format("%02x", bytes[i]));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @param path the file to hash, or null.
+     * @return the hexadecimal SHA-256 digest of the file's content, or "none" if the path is null.
+     * @throws IOException if thrown while reading the file.
+     */
+    private static String digestContent(String path) throws IOException {
+        if (path == null) {
+            return "none";
+        }
+        File file = new File(path);
+        String key = file.getAbsolutePath();
+        ContentDigest contentDigest = CONTENT_DIGESTS.get(key);
+        if (contentDigest != null && contentDigest.length == file.length() && contentDigest.lastModified == file.lastModified()) {
+            return contentDigest.digest;
+        }
+        MessageDigest messageDigest = newMessageDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            int bytesRead;
+            while ((bytesRead = input.read(buffer)) >= 0) {
+                messageDigest.update(buffer, 0, bytesRead);
+            }
+        }
+        contentDigest = new ContentDigest(file, toHex(messageDigest.digest(), 32));
+        CONTENT_DIGESTS.put(key, contentDigest);
+        return contentDigest.digest;
+    }
+
+    /**
+     * Describes the options that affect how the input is encoded. Options that only affect how the converted data is
+     * read or written by the benchmark (e.g. the IO type, the reader, or the number of threads) are deliberately
+     * excluded so that combinations differing only in those options share a converted file.
+     * @param options the options combination.
+     * @return the description.
+     */
+    private static StringBuilder describeEncodingOptions(OptionsCombinationBase options) {
+        StringBuilder description = new StringBuilder()
+            .append(";format=").append(options.format)
+            .append(";limit=").append(options.limit)
+            .append(";preallocation=").append(options.preallocation)
+            .append(";flush_period=").append(options.flushPeriod)
+            .append(";float_width=").append(options.floatWidth)
+            .append(";auto_flush=").append(options.autoFlush);
+        if (!options.format.isIon()) {
+            // Jackson conversions configure their generators according to these options.
+            description
+                .append(";api=").append(options.api)
+                .append(";json_use_big_decimals=").append(options.jsonUseBigDecimals);
+        }
+        return description;
+    }
+
+    /**
+     * @param path a file, or null.
+     * @return the file's canonical path, length, and modification time, or "none" if the path is null.
+     * @throws IOException if thrown while resolving the canonical path.
+     */
+    private static String describeFile(String path) throws IOException {
+        if (path == null) {
+            return "none";
+        }
+        File file = new File(path).getCanonicalFile();
+        return file.getPath() + "," + file.length() + "," + file.lastModified();
+    }
+
+    /**
+     * Computes the cache key for the given input converted using the given options, which identifies the converted
+     * file by content. This requires hashing the input, so it is only used when building or matching a cache entry.
+     * @param input the input file.
+     * @param options the options combination.
+     * @return the key.
+     * @throws IOException if thrown while hashing the input or imports files.
+     */
+    static String keyFor(Path input, OptionsCombinationBase options) throws IOException {
+        StringBuilder description = new StringBuilder()
+            .append("input=").append(digestContent(input.toString()))
+            .append(describeEncodingOptions(options))
+            .append(";imports_for_input=").append(digestContent(options.importsForInputFile))
+            .append(";imports_for_benchmark=").append(digestContent(options.importsForBenchmarkFile));
+        return toHex(newMessageDigest().digest(description.toString().getBytes(StandardCharsets.UTF_8)), 16);
+    }
+
+    /**
+     * Computes the key of the alias through which the converted file for the given input and options is looked up.
+     * The key is derived from the files' metadata rather than their content, so it can be computed without reading
+     * the input.
+     * @param input the input file.
+     * @param options the options combination.
+     * @return the key.
+     * @throws IOException if thrown while resolving the canonical paths of the input or imports files.
+     */
+    static String aliasKeyFor(Path input, OptionsCombinationBase options) throws IOException {
+        StringBuilder description = new StringBuilder()
+            .append("input=").append(describeFile(input.toString()))
+            .append(describeEncodingOptions(options))
+            .append(";imports_for_input=").append(describeFile(options.importsForInputFile))
+            .append(";imports_for_benchmark=").append(describeFile(options.importsForBenchmarkFile));
+        return toHex(newMessageDigest().digest(description.toString().getBytes(StandardCharsets.UTF_8)), 16);
+    }
+
+    /**
+     * @param scope the scope of the cache.
+     * @param name the name of the directory, which distinguishes the converted files from their aliases.
+     * @return the directory that holds the cache with the given scope.
+     * @throws IOException if thrown while creating the directory.
+     */
+    private static Path directoryFor(ConversionCacheScope scope, String name) throws IOException {
+        if (scope == ConversionCacheScope.PERSISTENT) {
+            return TemporaryFiles.getCacheDirectory(name);
+        }
+        return TemporaryFiles.getTempDirectory(name);
+    }
+
+    /**
+     * Writes a file atomically, so that other processes sharing the cache never observe a partially-written file.
+     * @param file the file.
+     * @param content the content of the file.
+     * @throws IOException if thrown while writing.
+     */
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), TEMPORARY_SUFFIX);
+        Files.write(temporaryFile, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Pins the cached file, if it exists, and records the use so that the file is treated as recently used during
+     * eviction.
+     * @param cachedFile the file.
+     * @return true if the file exists and was pinned; otherwise, false.
+     * @throws IOException if thrown while recording the use.
+     */
+    private static boolean pinIfExists(Path cachedFile) throws IOException {
+        // Pin the file before checking whether it exists so that a concurrent eviction cannot delete it.
+        USERS.merge(cachedFile, 1, Integer::sum);
+        try {
+            if (Files.exists(cachedFile)) {
+                Files.setLastModifiedTime(cachedFile, FileTime.fromMillis(System.currentTimeMillis()));
+                return true;
+            }
+        } catch (IOException | RuntimeException e) {
+            release(cachedFile);
+            throw e;
+        }
+        release(cachedFile);
+        return false;
+    }
+
+    /**
+     * Converts the input file to match the given options, reusing a previous conversion from the cache if one exists.
+     * Each call that returns a converted file must be paired with a call to {@link #release(Path, OptionsCombinationBase)}
+     * when the caller no longer needs the file.
+     * @param input the input file.
+     * @param options the options combination.
+     * @return the path to the converted file, or `input` if no conversion was required.
+     * @throws IOException if thrown during conversion.
+     */
+    static Path convert(Path input, OptionsCombinationBase options) throws IOException {
+        if (!options.format.isConversionRequired(input, options)) {
+            return input;
+        }
+        if (options.conversionCacheScope == ConversionCacheScope.NONE) {
+            return options.format.convert(
+                input,
+                TemporaryFiles.newTempFile(input.toFile().getName(), options.format.getSuffix()),
+                options
+            );
+        }
+        Path directory = directoryFor(options.conversionCacheScope, CACHE_DIRECTORY_NAME);
+        Path alias = directoryFor(options.conversionCacheScope, ALIAS_DIRECTORY_NAME).resolve(
+            input.toFile().getName() + "-" + aliasKeyFor(input, options)
+        );
+        if (Files.exists(alias)) {
+            Path aliasedFile = directory.resolve(new String(Files.readAllBytes(alias), StandardCharsets.UTF_8));
+            if (pinIfExists(aliasedFile)) {
+                return aliasedFile;
+            }
+        }
+        // There is no alias for this input, or its file was evicted. Hash the input to find or build the entry.
+        Path cachedFile = directory.resolve(
+            input.toFile().getName() + "-" + keyFor(input, options) + options.format.getSuffix()
+        );
+        if (pinIfExists(cachedFile)) {
+            writeAtomically(alias, cachedFile.getFileName().toString());
+            return cachedFile;
+        }
+        USERS.merge(cachedFile, 1, Integer::sum);
+        try {
+            // Convert into a temporary file in the same directory, then move it into place atomically so that other
+            // processes sharing the cache never observe a partially-written file.
+            Path temporaryFile = Files.createTempFile(directory, cachedFile.getFileName().toString(), TEMPORARY_SUFFIX);
+            Path converted = options.format.convert(input, temporaryFile, options);
+            if (!converted.equals(temporaryFile)) {
+                Files.delete(temporaryFile);
+                release(cachedFile);
+                return converted;
+            }
+            Files.move(temporaryFile, cachedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writeAtomically(alias, cachedFile.getFileName().toString());
+            evict(directory, options.conversionCacheSize);
+            return cachedFile;
+        } catch (IOException | RuntimeException e) {
+            release(cachedFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Performs, in parallel, all distinct conversions of the input file required by the given options combinations, so
+     * that trials using those combinations find their converted files already in the cache. Combinations that do not
+     * cache conversions are skipped, as are combinations that share a key with another combination. The converted
+     * files remain pinned, and therefore are not evicted (e.g. to make room for other files in the same batch), until
+     * the returned Closeable is closed.
+     * @param input the input file.
+     * @param optionsCombinations the options combinations.
+     * @return a Closeable that releases the converted files. Must be closed once the trials that use them are complete.
+     * @throws IOException if thrown during any conversion.
+     */
+    static Closeable prepare(Path input, Collection<? extends OptionsCombinationBase> optionsCombinations) throws IOException {
+        Map<String, OptionsCombinationBase> combinationsByKey = new LinkedHashMap<>();
+        for (OptionsCombinationBase options : optionsCombinations) {
+            if (options.conversionCacheScope != ConversionCacheScope.NONE && options.mayRequireConversion(input)) {
+                combinationsByKey.putIfAbsent(options.conversionCacheScope + ":" + aliasKeyFor(input, options), options);
+            }
+        }
+        List<Path> preparedFiles = Collections.synchronizedList(new ArrayList<>());
+        Closeable releasePreparedFiles = () -> {
+            synchronized (preparedFiles) {
+                preparedFiles.forEach(ConversionCache::release);
+                preparedFiles.clear();
+            }
+        };
+        if (combinationsByKey.isEmpty()) {
+            return releasePreparedFiles;
+        }
+        int numberOfThreads = Math.min(combinationsByKey.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            List<Future<?>> conversions = new ArrayList<>();
+            for (OptionsCombinationBase options : combinationsByKey.values()) {
+                conversions.add(executor.submit(() -> {
+                    Path converted = convert(input, options);
+                    if (!converted.equals(input)) {
+                        preparedFiles.add(converted);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> conversion : conversions) {
+                conversion.get();
+            }
+        } catch (InterruptedException e) {
+            releasePreparedFiles.close();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while converting " + input, e);
+        } catch (ExecutionException e) {
+            releasePreparedFiles.close();
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return releasePreparedFiles;
+    }
+
+    /**
+     * Indicates that the caller of {@link #convert(Path, OptionsCombinationBase)} no longer needs the converted file.
+     * If caching is disabled, the file is deleted; otherwise, it becomes eligible for eviction.
+     * @param convertedFile a converted file returned by {@link #convert(Path, OptionsCombinationBase)}.
+     * @param options the options combination used for the conversion.
+     * @throws IOException if thrown while deleting the file.
+     */
+    static void release(Path convertedFile, OptionsCombinationBase options) throws IOException {
+        if (options.conversionCacheScope == ConversionCacheScope.NONE) {
+            Files.delete(convertedFile);
+        } else {
+            release(convertedFile);
+        }
+    }
+
+    /**
+     * Unpins the given cached file.
+     * @param cachedFile the file.
+     */
+    private static void release(Path cachedFile) {
+        USERS.computeIfPresent(cachedFile, (file, users) -> users == 1 ? null : users - 1);
+    }
+
+    /**
+     * Deletes the least-recently-used files in the given cache directory until the total size of the cached files
+     * does not exceed the given maximum. Files in use by this process are never deleted, so the total size may
+     * remain above the maximum.
+     * @param directory the cache directory.
+     * @param maximumSize the maximum total size in bytes.
+     * @throws IOException if thrown while listing or deleting the files.
+     */
+    static void evict(Path directory, long maximumSize) throws IOException {
+        List<File> cachedFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            cachedFiles = files
+                .filter(file -> !file.getFileName().toString().endsWith(TEMPORARY_SUFFIX))
+                .map(Path::toFile)
+                .sorted(Comparator.comparingLong(File::lastModified))
+                .collect(Collectors.toList());
+        }
+        long totalSize = cachedFiles.stream().mapToLong(File::length).sum();
+        for (File cachedFile : cachedFiles) {
+            if (totalSize <= maximumSize) {
+                break;
+            }
+            if (!USERS.containsKey(cachedFile.toPath())) {
+                totalSize -= cachedFile.length();
+                Files.deleteIfExists(cachedFile.toPath());
+            }
+        }
+    }
+}
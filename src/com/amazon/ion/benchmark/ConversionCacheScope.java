@@ -0,0 +1,24 @@
+package com.amazon.ion.benchmark;
+
+/**
+ * How long input files that have been converted to match an options combination are retained for reuse by other
+ * trials (see {@link ConversionCache}).
+ */
+enum ConversionCacheScope {
+
+    /**
+     * Do not cache converted files; each trial converts the input and deletes the result when it completes.
+     */
+    NONE,
+
+    /**
+     * Cache converted files in the temporary directory, where they are shared by all trials and forks of a single
+     * benchmark run and deleted when the run completes.
+     */
+    RUN,
+
+    /**
+     * Cache converted files in the cache directory, where they are retained for reuse by subsequent benchmark runs.
+     */
+    PERSISTENT
+}
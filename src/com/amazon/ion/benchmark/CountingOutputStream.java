@@ -4,6 +4,10 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+/**
+ * An OutputStream that counts the bytes written to it. When constructed without an underlying stream, the bytes are
+ * counted and then discarded, which allows serialization to be measured without the cost of any particular sink.
+ */
 public class CountingOutputStream extends FilterOutputStream {
     private long count;
 
@@ -27,13 +31,31 @@ public class CountingOutputStream extends FilterOutputStream {
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        out.write(b, off, len);
+        if (out != null) {
+            out.write(b, off, len);
+        }
         this.count += len;
     }
 
     @Override
     public void write(int b) throws IOException {
-        out.write(b);
+        if (out != null) {
+            out.write(b);
+        }
         this.count++;
     }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            super.close();
+        }
+    }
 }
@@ -0,0 +1,174 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JMH Profiler plugin to compare the CPU time spent by the benchmark threads with the wall-clock time of each
+ * iteration, which shows how much of the measured time is spent waiting (e.g. blocked on I/O with --io-type file)
+ * rather than computing. Reports, per operation, the CPU time of JMH's benchmark (worker) threads split into user and
+ * system time, and the utilization of those threads, i.e. the percentage of the iteration's wall-clock time each
+ * thread spent on a CPU. Work done on other threads (e.g. garbage collection, JIT compilation, --partitions, or the
+ * reader of --io-type pipeline) is not included; where /proc/self/stat is available (Linux), the user and system time
+ * of the whole process is reported as well.
+ */
+public class CpuTimeProfiler implements InternalProfiler {
+
+    /**
+     * The part of the name JMH gives to each thread that executes the benchmark.
+     */
+    static final String BENCHMARK_THREAD_NAME = "-jmh-worker-";
+
+    private static final Path PROC_SELF_STAT = Paths.get("/proc/self/stat");
+
+    /**
+     * The unit of the times reported in /proc, in ticks per second. This is USER_HZ, which is 100 on all common Linux
+     * platforms; the exact value (sysconf(_SC_CLK_TCK)) is not available from Java.
+     */
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    // The 0-based indices of the utime and stime fields of /proc/[pid]/stat, counted from the field that follows the
+    // process name, which is enclosed in parentheses and may itself contain spaces and parentheses.
+    private static final int UTIME_INDEX = 11;
+    private static final int STIME_INDEX = 12;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    // The CPU time and user time, in nanoseconds, of each benchmark thread at the start of the iteration.
+    private final Map<Long, long[]> threadTimesBefore = new HashMap<>();
+    // The user and system time, in clock ticks, of the process at the start of the iteration, or null if unavailable.
+    private long[] processTicksBefore = null;
+    private long wallClockBefore = 0;
+
+    /**
+     * @param stat the contents of a /proc/[pid]/stat file.
+     * @return the process's user and system time, in that order, in clock ticks.
+     */
+    static long[] parseProcessTicks(String stat) {
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 1).trim().split("\\s+");
+        return new long[]{Long.parseLong(fields[UTIME_INDEX]), Long.parseLong(fields[STIME_INDEX])};
+    }
+
+    /**
+     * @return the user and system time of this process, in that order, in clock ticks, or null if unavailable.
+     */
+    private static long[] readProcessTicks() {
+        if (!Files.isReadable(PROC_SELF_STAT)) {
+            return null;
+        }
+        try {
+            return parseProcessTicks(new String(Files.readAllBytes(PROC_SELF_STAT), StandardCharsets.US_ASCII));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the CPU time and user time, in nanoseconds, of each live benchmark thread, by thread ID.
+     */
+    private Map<Long, long[]> readBenchmarkThreadTimes() {
+        Map<Long, long[]> times = new HashMap<>();
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), 0)) {
+            // Threads that have died since their IDs were retrieved have null info.
+            if (info == null || !info.getThreadName().contains(BENCHMARK_THREAD_NAME)) {
+                continue;
+            }
+            long cpuTime = threads.getThreadCpuTime(info.getThreadId());
+            long userTime = threads.getThreadUserTime(info.getThreadId());
+            if (cpuTime >= 0 && userTime >= 0) {
+                times.put(info.getThreadId(), new long[]{cpuTime, userTime});
+            }
+        }
+        return times;
+    }
+
+    @Override
+    public String getDescription() {
+        return "CPU time profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        if (threads.isThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+            threads.setThreadCpuTimeEnabled(true);
+        }
+        threadTimesBefore.clear();
+        threadTimesBefore.putAll(readBenchmarkThreadTimes());
+        processTicksBefore = readProcessTicks();
+        wallClockBefore = System.nanoTime();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult iterationResult
+    ) {
+        long wallClockNanos = System.nanoTime() - wallClockBefore;
+        long[] processTicksAfter = readProcessTicks();
+        Collection<Result> results = new ArrayList<>();
+        long operations = iterationResult.getMetadata().getAllOps();
+        if (operations <= 0 || !threads.isThreadCpuTimeEnabled()) {
+            return results;
+        }
+        long cpuNanos = 0;
+        long userNanos = 0;
+        int numberOfThreads = 0;
+        for (Map.Entry<Long, long[]> threadTimes : readBenchmarkThreadTimes().entrySet()) {
+            // Threads that started during the iteration started with zero CPU time.
+            long[] before = threadTimesBefore.getOrDefault(threadTimes.getKey(), new long[2]);
+            cpuNanos += threadTimes.getValue()[0] - before[0];
+            userNanos += threadTimes.getValue()[1] - before[1];
+            numberOfThreads++;
+        }
+        if (numberOfThreads > 0) {
+            results.add(new ScalarResult("CPU time", cpuNanos / 1e3 / operations, "us/op", AggregationPolicy.AVG));
+            results.add(new ScalarResult("CPU user time", userNanos / 1e3 / operations, "us/op", AggregationPolicy.AVG));
+            results.add(new ScalarResult(
+                "CPU system time",
+                (cpuNanos - userNanos) / 1e3 / operations,
+                "us/op",
+                AggregationPolicy.AVG
+            ));
+            results.add(new ScalarResult(
+                "CPU utilization",
+                100.0 * cpuNanos / ((double) wallClockNanos * numberOfThreads),
+                "%",
+                AggregationPolicy.AVG
+            ));
+        }
+        if (processTicksBefore != null && processTicksAfter != null) {
+            double microsPerTick = 1e6 / CLOCK_TICKS_PER_SECOND;
+            results.add(new ScalarResult(
+                "Process CPU user time",
+                (processTicksAfter[0] - processTicksBefore[0]) * microsPerTick / operations,
+                "us/op",
+                AggregationPolicy.AVG
+            ));
+            results.add(new ScalarResult(
+                "Process CPU system time",
+                (processTicksAfter[1] - processTicksBefore[1]) * microsPerTick / operations,
+                "us/op",
+                AggregationPolicy.AVG
+            ));
+        }
+        return results;
+    }
+}
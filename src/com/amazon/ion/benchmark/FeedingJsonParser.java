@@ -0,0 +1,128 @@
+package com.amazon.ion.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Drives one of Jackson's non-blocking parsers, which never block waiting for input and instead return
+ * {@link JsonToken#NOT_AVAILABLE} until more input is fed to them. Whenever that happens, this parser feeds the next
+ * chunk of input and retries, so it can be used anywhere a blocking JsonParser is expected, including by an
+ * ObjectMapper.
+ */
+class FeedingJsonParser extends JsonParserDelegate {
+
+    /**
+     * The size of the chunks fed to the parser when no chunk size is specified.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final ByteArrayFeeder feeder;
+    private final InputStream input;
+    private final byte[] chunk;
+    private final byte[] buffer;
+    private int bufferPosition;
+    private final int chunkSize;
+    private ObjectCodec codec = null;
+
+    private FeedingJsonParser(JsonParser nonBlockingParser, InputStream input, byte[] buffer, int chunkSize) {
+        super(nonBlockingParser);
+        this.feeder = (ByteArrayFeeder) nonBlockingParser.getNonBlockingInputFeeder();
+        this.input = input;
+        this.chunk = input == null ? null : new byte[chunkSize];
+        this.buffer = buffer;
+        this.bufferPosition = 0;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates a parser that feeds the given buffer to a non-blocking parser directly (without copying), in chunks.
+     * @param factory the factory for the non-blocking parser.
+     * @param buffer the data to parse.
+     * @param chunkSize the maximum number of bytes to feed at once.
+     * @return a new parser.
+     * @throws IOException if thrown when creating the parser.
+     */
+    static JsonParser over(JsonFactory factory, byte[] buffer, int chunkSize) throws IOException {
+        return new FeedingJsonParser(factory.createNonBlockingByteArrayParser(), null, buffer, chunkSize);
+    }
+
+    /**
+     * Creates a parser that reads chunks from the given stream and feeds them to a non-blocking parser.
+     * @param factory the factory for the non-blocking parser.
+     * @param input the data to parse.
+     * @param chunkSize the maximum number of bytes to read and feed at once.
+     * @return a new parser.
+     * @throws IOException if thrown when creating the parser.
+     */
+    static JsonParser over(JsonFactory factory, InputStream input, int chunkSize) throws IOException {
+        return new FeedingJsonParser(factory.createNonBlockingByteArrayParser(), input, null, chunkSize);
+    }
+
+    /**
+     * Feeds the next chunk of input to the non-blocking parser, or signals the end of the input if none remains.
+     * @throws IOException if thrown when reading from the stream.
+     */
+    private void feed() throws IOException {
+        if (input != null) {
+            int numberOfBytesRead = input.read(chunk, 0, chunkSize);
+            if (numberOfBytesRead < 0) {
+                feeder.endOfInput();
+            } else {
+                feeder.feedInput(chunk, 0, numberOfBytesRead);
+            }
+        } else if (bufferPosition < buffer.length) {
+            int end = Math.min(buffer.length, bufferPosition + chunkSize);
+            feeder.feedInput(buffer, bufferPosition, end);
+            bufferPosition = end;
+        } else {
+            feeder.endOfInput();
+        }
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        JsonToken token = delegate.nextToken();
+        while (token == JsonToken.NOT_AVAILABLE) {
+            feed();
+            token = delegate.nextToken();
+        }
+        return token;
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+        // Matches the behavior of the blocking parsers: field names are skipped.
+        JsonToken token = nextToken();
+        if (token == JsonToken.FIELD_NAME) {
+            token = nextToken();
+        }
+        return token;
+    }
+
+    @Override
+    public ObjectCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void setCodec(ObjectCodec codec) {
+        // Jackson's non-blocking parsers refuse codecs because data binding cannot wait for more input. This parser
+        // never returns NOT_AVAILABLE, so it holds the codec itself.
+        this.codec = codec;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (input != null) {
+            input.close();
+        }
+    }
+}
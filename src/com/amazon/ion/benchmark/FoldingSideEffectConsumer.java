@@ -0,0 +1,54 @@
+package com.amazon.ion.benchmark;
+
+/**
+ * A SideEffectConsumer for work that a task hands off to another thread. A JMH Blackhole must only be used by the
+ * thread that owns it, so the other thread consumes values into its own instance of this class, which folds them into
+ * a result that the owning thread then passes to its own consumer (see {@link #foldInto(SideEffectConsumer)}). An
+ * instance must only be used by one thread at a time.
+ */
+final class FoldingSideEffectConsumer implements SideEffectConsumer {
+
+    private long fold = 0;
+    private Object lastObject = null;
+
+    @Override
+    public void consume(boolean b) {
+        fold = 31 * fold + (b ? 1 : 0);
+    }
+
+    @Override
+    public void consume(int i) {
+        fold = 31 * fold + i;
+    }
+
+    @Override
+    public void consume(long l) {
+        fold = 31 * fold + l;
+    }
+
+    @Override
+    public void consume(float f) {
+        fold = 31 * fold + Float.floatToRawIntBits(f);
+    }
+
+    @Override
+    public void consume(double d) {
+        fold = 31 * fold + Double.doubleToRawLongBits(d);
+    }
+
+    @Override
+    public void consume(Object o) {
+        // Objects escape through the field, which is read by foldInto.
+        lastObject = o;
+        fold = 31 * fold + 1;
+    }
+
+    /**
+     * Passes the result of the values consumed so far to the given consumer.
+     * @param consumer a consumer owned by the calling thread.
+     */
+    void foldInto(SideEffectConsumer consumer) {
+        consumer.consume(fold);
+        consumer.consume(lastObject);
+    }
+}
@@ -8,6 +8,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Data formats, e.g. Ion binary and Ion text.
@@ -19,13 +21,7 @@ enum Format {
             Format sourceFormat = classify(input);
             switch (sourceFormat) {
                 case ION_BINARY:
-                    boolean optionsRequireRewrite = options.flushPeriod != null
-                        || options.preallocation != null
-                        || options.floatWidth != null
-                        || (options.importsForBenchmarkFile != null
-                            && !IonUtilities.importsEqual(options.importsForBenchmarkFile, input.toFile()))
-                        || !IonUtilities.importsFilesEqual(options.importsForInputFile, options.importsForBenchmarkFile);
-                    if (optionsRequireRewrite) {
+                    if (isIonBinaryRewriteRequired(input, options)) {
                         // This combination of settings requires re-encoding the input.
                         IonUtilities.rewriteIonFile(input, output, options, IonUtilities::newBinaryWriterSupplier);
                     } else if (options.limit == Integer.MAX_VALUE) {
@@ -239,6 +235,37 @@ enum Format {
      */
     abstract Path convert(Path input, Path output, OptionsCombinationBase options) throws IOException;
 
+    /**
+     * Determine whether {@link #convert(Path, Path, OptionsCombinationBase)} would need to produce a new file, without
+     * reading more than the input's header.
+     * @param input the input data.
+     * @param options the options to use for the conversion.
+     * @return false if the input is already in this format and the options do not require it to be re-written or
+     *   truncated; otherwise, true.
+     * @throws IOException if thrown while inspecting the input.
+     */
+    boolean isConversionRequired(Path input, OptionsCombinationBase options) throws IOException {
+        if (classify(input) != this || options.limit != Integer.MAX_VALUE) {
+            return true;
+        }
+        return this == ION_BINARY && isIonBinaryRewriteRequired(input, options);
+    }
+
+    /**
+     * @param input binary Ion data.
+     * @param options the options to use for the conversion.
+     * @return true if the options require the binary Ion input to be re-encoded, rather than used as-is or truncated.
+     * @throws IOException if thrown while inspecting the input or the imports files.
+     */
+    private static boolean isIonBinaryRewriteRequired(Path input, OptionsCombinationBase options) throws IOException {
+        return options.flushPeriod != null
+            || options.preallocation != null
+            || options.floatWidth != null
+            || (options.importsForBenchmarkFile != null
+                && !IonUtilities.importsEqual(options.importsForBenchmarkFile, input.toFile()))
+            || !IonUtilities.importsFilesEqual(options.importsForInputFile, options.importsForBenchmarkFile);
+    }
+
     /**
      * @param otherFormat a Format.
      * @return if data in the given format can be read natively by parsers of this Format.
@@ -302,6 +329,43 @@ enum Format {
      */
     static Format classify(Path path) throws IOException {
         File file = path.toFile();
+        String key = file.getAbsolutePath();
+        Classification classification = CLASSIFICATIONS.get(key);
+        if (classification != null && classification.length == file.length() && classification.lastModified == file.lastModified()) {
+            return classification.format;
+        }
+        classification = new Classification(file, classifyUncached(file));
+        CLASSIFICATIONS.put(key, classification);
+        return classification.format;
+    }
+
+    /**
+     * The Format of a file, along with the length and modification time of the file when it was classified.
+     */
+    private static class Classification {
+        final long length;
+        final long lastModified;
+        final Format format;
+
+        Classification(File file, Format format) {
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            this.format = format;
+        }
+    }
+
+    // Files that have already been classified, by absolute path. Read tasks for every options combination classify
+    // the same inputs, so this avoids re-opening each input to inspect its header.
+    private static final Map<String, Classification> CLASSIFICATIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Determine which Format the data in the given file represents, without consulting previous classifications.
+     * @param file the file to be classified.
+     * @return the Format of the data.
+     * @throws IOException if thrown while reading the data.
+     * @throws IllegalArgumentException if the data does not match a known Format.
+     */
+    private static Format classifyUncached(File file) throws IOException {
         if (isFormatHeaderPresent(_Private_IonConstants.BINARY_VERSION_MARKER_1_0, file)) {
             return Format.ION_BINARY;
         }
@@ -0,0 +1,490 @@
+package com.amazon.ion.benchmark;
+
+import com.amazon.ion.IonList;
+import com.amazon.ion.IonReader;
+import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonType;
+import com.amazon.ion.IonWriter;
+import com.amazon.ion.OffsetSpan;
+import com.amazon.ion.SpanProvider;
+import com.amazon.ion.SymbolTable;
+import com.amazon.ion.SystemSymbols;
+import com.amazon.ion.system.IonBinaryWriterBuilder;
+import com.amazon.ion.system.IonReaderBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.amazon.ion.benchmark.Constants.ION_SYSTEM;
+
+/**
+ * A persistent index of the top-level values in a binary Ion input file: the offset and size of each value, and the
+ * indices of the values at which a new symbol table takes effect. The index is built the first time the whole file
+ * needs to be scanned (e.g. by --partitions) and stored as a sidecar file in the cache directory (see
+ * {@link TemporaryFiles#getCacheDirectory(String)}), so that subsequent trials and benchmark runs can locate values
+ * without re-scanning the file. The sidecar is rebuilt if the length or modification time of the input file changes.
+ * The index also allows the file to be split into partitions that can be decoded independently (see --partitions).
+ */
+final class InputIndex {
+
+    private static final String CACHE_DIRECTORY_NAME = "index";
+    private static final String SIDECAR_SUFFIX = ".index.10n";
+    private static final String SIDECAR_ANNOTATION = "ion_java_benchmark_index";
+    private static final int SIDECAR_VERSION = 1;
+
+    /**
+     * The binary Ion version marker, which resets the symbol table context to the system symbol table.
+     */
+    private static final byte[] IVM = new byte[]{(byte) 0xE0, 0x01, 0x00, (byte) 0xEA};
+
+    // Indexes that have already been loaded or built by this process, by absolute path of the input file.
+    private static final Map<Path, InputIndex> LOADED_INDEXES = new ConcurrentHashMap<>();
+
+    private final long sourceLength;
+    private final long sourceLastModified;
+    private final long[] startOffsets;
+    private final long[] sizes;
+    private final int[] symbolTableBoundaries;
+
+    private InputIndex(
+        long sourceLength,
+        long sourceLastModified,
+        long[] startOffsets,
+        long[] sizes,
+        int[] symbolTableBoundaries
+    ) {
+        this.sourceLength = sourceLength;
+        this.sourceLastModified = sourceLastModified;
+        this.startOffsets = startOffsets;
+        this.sizes = sizes;
+        this.symbolTableBoundaries = symbolTableBoundaries;
+    }
+
+    /**
+     * Returns the index for the given binary Ion file, loading it from its sidecar file or building it (and writing
+     * the sidecar file) if necessary.
+     * @param input a binary Ion file.
+     * @return the index.
+     * @throws IOException if thrown while reading the input or reading or writing the sidecar file.
+     */
+    static InputIndex of(Path input) throws IOException {
+        return lookUp(input, true);
+    }
+
+    /**
+     * Returns the index for the given binary Ion file if one has already been built, without scanning the file.
+     * @param input a binary Ion file.
+     * @return the index, or null if no up-to-date index exists.
+     * @throws IOException if thrown while reading the sidecar file.
+     */
+    static InputIndex ifAvailable(Path input) throws IOException {
+        return lookUp(input, false);
+    }
+
+    /**
+     * @param input a binary Ion file.
+     * @param isBuildAllowed true if the index may be built if no up-to-date index exists.
+     * @return the index, or null if no up-to-date index exists and building was not allowed.
+     * @throws IOException if thrown while reading the input or reading or writing the sidecar file.
+     */
+    private static InputIndex lookUp(Path input, boolean isBuildAllowed) throws IOException {
+        Path absoluteInput = input.toAbsolutePath().normalize();
+        long length = Files.size(absoluteInput);
+        long lastModified = Files.getLastModifiedTime(absoluteInput).toMillis();
+        InputIndex index = LOADED_INDEXES.get(absoluteInput);
+        if (index != null && index.matches(length, lastModified)) {
+            return index;
+        }
+        Path sidecar = sidecarFor(absoluteInput);
+        index = read(sidecar);
+        if (index == null || !index.matches(length, lastModified)) {
+            if (!isBuildAllowed) {
+                return null;
+            }
+            index = build(absoluteInput, length, lastModified);
+            write(index, sidecar);
+        }
+        LOADED_INDEXES.put(absoluteInput, index);
+        return index;
+    }
+
+    /**
+     * @param length the current length of the input file.
+     * @param lastModified the current modification time of the input file, in milliseconds.
+     * @return true if this index was built from a file with the given length and modification time.
+     */
+    private boolean matches(long length, long lastModified) {
+        return sourceLength == length && sourceLastModified == lastModified;
+    }
+
+    /**
+     * @param absoluteInput the absolute path to an input file.
+     * @return the path to the input file's sidecar file, which is named using a digest of the input file's path.
+     * @throws IOException if thrown while creating the cache directory.
+     */
+    private static Path sidecarFor(Path absoluteInput) throws IOException {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(absoluteInput.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder name = new StringBuilder(absoluteInput.getFileName().toString()).append('-');
+        for (int i = 0; i < 8; i++) {
+            name.append(String.format("%02x", digest[i]));
+        }
+        return TemporaryFiles.getCacheDirectory(CACHE_DIRECTORY_NAME).resolve(name.append(SIDECAR_SUFFIX).toString());
+    }
+
+    /**
+     * Scans the given binary Ion file to build an index.
+     * @param input the file.
+     * @param length the length of the file.
+     * @param lastModified the modification time of the file, in milliseconds.
+     * @return a new index.
+     * @throws IOException if thrown while reading the file.
+     */
+    private static InputIndex build(Path input, long length, long lastModified) throws IOException {
+        long[] startOffsets = new long[64];
+        long[] sizes = new long[64];
+        int[] symbolTableBoundaries = new int[8];
+        int numberOfValues = 0;
+        int numberOfBoundaries = 0;
+        try (IonReader reader = IonReaderBuilder.standard().build(new BufferedInputStream(new FileInputStream(input.toFile())))) {
+            SpanProvider spanProvider = reader.asFacet(SpanProvider.class);
+            SymbolTable previousSymbolTable = null;
+            while (reader.next() != null) {
+                OffsetSpan span = spanProvider.currentSpan().asFacet(OffsetSpan.class);
+                if (numberOfValues == startOffsets.length) {
+                    startOffsets = Arrays.copyOf(startOffsets, numberOfValues * 2);
+                    sizes = Arrays.copyOf(sizes, numberOfValues * 2);
+                }
+                startOffsets[numberOfValues] = span.getStartOffset();
+                sizes[numberOfValues] = span.getFinishOffset() - span.getStartOffset();
+                SymbolTable symbolTable = reader.getSymbolTable();
+                if (symbolTable != previousSymbolTable) {
+                    if (numberOfBoundaries == symbolTableBoundaries.length) {
+                        symbolTableBoundaries = Arrays.copyOf(symbolTableBoundaries, numberOfBoundaries * 2);
+                    }
+                    symbolTableBoundaries[numberOfBoundaries++] = numberOfValues;
+                    previousSymbolTable = symbolTable;
+                }
+                numberOfValues++;
+            }
+        }
+        return new InputIndex(
+            length,
+            lastModified,
+            Arrays.copyOf(startOffsets, numberOfValues),
+            Arrays.copyOf(sizes, numberOfValues),
+            Arrays.copyOf(symbolTableBoundaries, numberOfBoundaries)
+        );
+    }
+
+    /**
+     * Writes the given index to a sidecar file, replacing any existing file atomically so that concurrent benchmark
+     * processes never observe a partially-written sidecar.
+     * @param index the index.
+     * @param sidecar the sidecar file.
+     * @throws IOException if thrown while writing.
+     */
+    private static void write(InputIndex index, Path sidecar) throws IOException {
+        Path temporarySidecar = Files.createTempFile(sidecar.getParent(), sidecar.getFileName().toString(), ".tmp");
+        try (
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporarySidecar));
+            IonWriter writer = IonBinaryWriterBuilder.standard().build(out)
+        ) {
+            writer.setTypeAnnotations(SIDECAR_ANNOTATION);
+            writer.stepIn(IonType.STRUCT);
+            writer.setFieldName("version");
+            writer.writeInt(SIDECAR_VERSION);
+            writer.setFieldName("source_length");
+            writer.writeInt(index.sourceLength);
+            writer.setFieldName("source_last_modified");
+            writer.writeInt(index.sourceLastModified);
+            writer.setFieldName("start_offsets");
+            writer.stepIn(IonType.LIST);
+            for (long startOffset : index.startOffsets) {
+                writer.writeInt(startOffset);
+            }
+            writer.stepOut();
+            writer.setFieldName("sizes");
+            writer.stepIn(IonType.LIST);
+            for (long size : index.sizes) {
+                writer.writeInt(size);
+            }
+            writer.stepOut();
+            writer.setFieldName("symbol_table_boundaries");
+            writer.stepIn(IonType.LIST);
+            for (int boundary : index.symbolTableBoundaries) {
+                writer.writeInt(boundary);
+            }
+            writer.stepOut();
+            writer.stepOut();
+        }
+        Files.move(temporarySidecar, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a list of integers from the reader, which must be positioned on the list.
+     * @param reader the reader.
+     * @return the integers.
+     */
+    private static long[] readLongs(IonReader reader) {
+        long[] values = new long[64];
+        int numberOfValues = 0;
+        reader.stepIn();
+        while (reader.next() != null) {
+            if (numberOfValues == values.length) {
+                values = Arrays.copyOf(values, numberOfValues * 2);
+            }
+            values[numberOfValues++] = reader.longValue();
+        }
+        reader.stepOut();
+        return Arrays.copyOf(values, numberOfValues);
+    }
+
+    /**
+     * Reads an index from the given sidecar file.
+     * @param sidecar the sidecar file.
+     * @return the index, or null if the sidecar file does not exist or was written by an incompatible version.
+     * @throws IOException if thrown while reading.
+     */
+    private static InputIndex read(Path sidecar) throws IOException {
+        if (!Files.exists(sidecar)) {
+            return null;
+        }
+        try (
+            InputStream in = new BufferedInputStream(Files.newInputStream(sidecar));
+            IonReader reader = IonReaderBuilder.standard().build(in)
+        ) {
+            if (reader.next() != IonType.STRUCT || !Arrays.asList(reader.getTypeAnnotations()).contains(SIDECAR_ANNOTATION)) {
+                return null;
+            }
+            long version = -1;
+            long sourceLength = -1;
+            long sourceLastModified = -1;
+            long[] startOffsets = null;
+            long[] sizes = null;
+            long[] symbolTableBoundaries = null;
+            reader.stepIn();
+            while (reader.next() != null) {
+                switch (reader.getFieldName()) {
+                    case "version":
+                        version = reader.longValue();
+                        break;
+                    case "source_length":
+                        sourceLength = reader.longValue();
+                        break;
+                    case "source_last_modified":
+                        sourceLastModified = reader.longValue();
+                        break;
+                    case "start_offsets":
+                        startOffsets = readLongs(reader);
+                        break;
+                    case "sizes":
+                        sizes = readLongs(reader);
+                        break;
+                    case "symbol_table_boundaries":
+                        symbolTableBoundaries = readLongs(reader);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            reader.stepOut();
+            if (
+                version != SIDECAR_VERSION
+                    || startOffsets == null
+                    || sizes == null
+                    || symbolTableBoundaries == null
+                    || startOffsets.length != sizes.length
+            ) {
+                return null;
+            }
+            return new InputIndex(
+                sourceLength,
+                sourceLastModified,
+                startOffsets,
+                sizes,
+                Arrays.stream(symbolTableBoundaries).mapToInt(boundary -> (int) boundary).toArray()
+            );
+        }
+    }
+
+    /**
+     * @return the number of top-level values in the input.
+     */
+    int size() {
+        return startOffsets.length;
+    }
+
+    /**
+     * @param valueIndex the index of a top-level value.
+     * @return the offset of the first byte of the value, including any annotation wrapper.
+     */
+    long startOffset(int valueIndex) {
+        return startOffsets[valueIndex];
+    }
+
+    /**
+     * @param valueIndex the index of a top-level value.
+     * @return the offset of the byte that follows the value.
+     */
+    long finishOffset(int valueIndex) {
+        return startOffsets[valueIndex] + sizes[valueIndex];
+    }
+
+    /**
+     * @param valueIndex the index of a top-level value.
+     * @return the index of the symbol table context (i.e. of the symbol table boundary) to which the value belongs.
+     */
+    private int symbolTableContextOf(int valueIndex) {
+        int position = Arrays.binarySearch(symbolTableBoundaries, valueIndex);
+        return position >= 0 ? position : -position - 2;
+    }
+
+    /**
+     * Encodes the given value as a binary Ion VarUInt.
+     * @param value the value.
+     * @param out the destination.
+     */
+    private static void writeVarUInt(int value, ByteArrayOutputStream out) {
+        int shift = 28;
+        while (shift > 0 && (value >>> shift) == 0) {
+            shift -= 7;
+        }
+        for (; shift > 0; shift -= 7) {
+            out.write((value >>> shift) & 0x7F);
+        }
+        out.write((value & 0x7F) | 0x80);
+    }
+
+    /**
+     * Creates a binary Ion stream that establishes the given symbol table context.
+     * @param symbolTable the symbol table.
+     * @return an Ion version marker followed, if the symbol table is local, by an equivalent local symbol table.
+     */
+    private static byte[] symbolTablePrefix(SymbolTable symbolTable) {
+        ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+        prefix.write(IVM, 0, IVM.length);
+        if (!symbolTable.isLocalTable()) {
+            return prefix.toByteArray();
+        }
+        IonStruct symbolTableStruct = ION_SYSTEM.newEmptyStruct();
+        IonList imports = symbolTableStruct.add("imports").newEmptyList();
+        for (SymbolTable importedTable : symbolTable.getImportedTables()) {
+            IonStruct importStruct = imports.add().newEmptyStruct();
+            importStruct.add("name").newString(importedTable.getName());
+            importStruct.add("version").newInt(importedTable.getVersion());
+            importStruct.add("max_id").newInt(importedTable.getMaxId());
+        }
+        IonList symbols = symbolTableStruct.add("symbols").newEmptyList();
+        Iterator<String> declaredSymbols = symbolTable.iterateDeclaredSymbolNames();
+        while (declaredSymbols.hasNext()) {
+            // Symbols with unknown text are declared as null to preserve the symbol IDs of the symbols that follow.
+            symbols.add().newString(declaredSymbols.next());
+        }
+        // The struct's field names are all system symbols, so its encoding follows the version marker directly.
+        // Binary writers would consume the struct as a symbol table directive (writing nothing) if it were written
+        // with the $ion_symbol_table annotation, so the annotation wrapper is added here instead.
+        byte[] encodedStruct = ION_SYSTEM.newDatagram(symbolTableStruct).getBytes();
+        if (encodedStruct.length <= IVM.length || (encodedStruct[IVM.length] & 0xF0) != 0xD0) {
+            throw new IllegalStateException("Unexpected encoding of symbol table struct.");
+        }
+        int structLength = encodedStruct.length - IVM.length;
+        // One byte for the length of the annotations, and one for the $ion_symbol_table symbol ID.
+        int wrapperLength = 2 + structLength;
+        if (wrapperLength < 14) {
+            prefix.write(0xE0 | wrapperLength);
+        } else {
+            prefix.write(0xEE);
+            writeVarUInt(wrapperLength, prefix);
+        }
+        writeVarUInt(1, prefix);
+        writeVarUInt(SystemSymbols.ION_SYMBOL_TABLE_SID, prefix);
+        prefix.write(encodedStruct, IVM.length, structLength);
+        return prefix.toByteArray();
+    }
+
+    /**
+     * Resolves the symbol table that takes effect at each symbol table boundary. System values can only occur between
+     * the values on either side of a boundary, so only that data is read, along with the value that follows it.
+     * @param data the contents of the indexed file.
+     * @param readerBuilder the builder for the reader used to resolve the symbol tables. Must be able to resolve any
+     *                      shared symbol tables imported by the data.
+     * @return the symbol table of each symbol table context, in order.
+     * @throws IOException if thrown while reading the data.
+     */
+    private SymbolTable[] resolveSymbolTables(byte[] data, IonReaderBuilder readerBuilder) throws IOException {
+        ByteArrayOutputStream systemData = new ByteArrayOutputStream();
+        for (int boundary : symbolTableBoundaries) {
+            int start = boundary == 0 ? 0 : (int) finishOffset(boundary - 1);
+            systemData.write(data, start, (int) finishOffset(boundary) - start);
+        }
+        SymbolTable[] symbolTables = new SymbolTable[symbolTableBoundaries.length];
+        try (IonReader reader = readerBuilder.build(systemData.toByteArray())) {
+            for (int i = 0; i < symbolTables.length; i++) {
+                reader.next();
+                symbolTables[i] = reader.getSymbolTable();
+            }
+        }
+        return symbolTables;
+    }
+
+    /**
+     * Splits the indexed data into the given number of partitions of approximately equal numbers of top-level values.
+     * Each partition is a complete binary Ion stream: a prefix that re-establishes the symbol table context in effect
+     * at the partition's first value, followed by a copy of the bytes from the start of the partition's first value to
+     * the end of its last value. Any symbol tables between those values are included, so the partition can be read by
+     * any reader.
+     * @param data the contents of the indexed file.
+     * @param numberOfPartitions the requested number of partitions. If there are fewer top-level values than
+     *                           requested partitions, one partition per value is created.
+     * @param readerBuilder the builder for the reader used to resolve the symbol tables in effect at the start of each
+     *                      partition. Must be able to resolve any shared symbol tables imported by the data.
+     * @return the partitions, in order.
+     * @throws IOException if thrown while reading the data.
+     */
+    byte[][] partition(byte[] data, int numberOfPartitions, IonReaderBuilder readerBuilder) throws IOException {
+        if (data.length != sourceLength) {
+            throw new IllegalArgumentException("The data does not match the indexed file.");
+        }
+        SymbolTable[] symbolTables = resolveSymbolTables(data, readerBuilder);
+        int numberOfValues = size();
+        int actualNumberOfPartitions = Math.max(1, Math.min(numberOfPartitions, numberOfValues));
+        byte[][] partitions = new byte[actualNumberOfPartitions][];
+        for (int i = 0; i < actualNumberOfPartitions; i++) {
+            int firstValue = (int) ((long) i * numberOfValues / actualNumberOfPartitions);
+            int lastValue = (int) ((long) (i + 1) * numberOfValues / actualNumberOfPartitions) - 1;
+            if (lastValue < firstValue) {
+                // The data contains no values.
+                partitions[i] = IVM.clone();
+                continue;
+            }
+            byte[] prefix = symbolTablePrefix(symbolTables[symbolTableContextOf(firstValue)]);
+            int start = (int) startOffset(firstValue);
+            int length = (int) (finishOffset(lastValue) - start);
+            byte[] partition = new byte[prefix.length + length];
+            System.arraycopy(prefix, 0, partition, 0, prefix.length);
+            System.arraycopy(data, start, partition, prefix.length, length);
+            partitions[i] = partition;
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,59 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JMH Profiler plugin to measure the number of times written data is forced to the storage device (see --io-sync),
+ * and the time spent doing so, per operation. Nothing is reported for iterations that did not sync.
+ */
+public class IoSyncProfiler implements InternalProfiler {
+
+    private static final LongAdder syncCount = new LongAdder();
+    private static final LongAdder syncNanos = new LongAdder();
+
+    /**
+     * Records a single sync. May be called concurrently by multiple benchmark threads.
+     * @param nanos the time spent in the sync, in nanoseconds.
+     */
+    static void recordSync(long nanos) {
+        syncCount.increment();
+        syncNanos.add(nanos);
+    }
+
+    @Override
+    public String getDescription() {
+        return "IO sync profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        syncCount.reset();
+        syncNanos.reset();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult iterationResult
+    ) {
+        Collection<Result> results = new ArrayList<>();
+        long count = syncCount.sum();
+        long operations = iterationResult.getMetadata().getAllOps();
+        if (count > 0 && operations > 0) {
+            results.add(new ScalarResult("Sync count", (double) count / operations, "#/op", AggregationPolicy.AVG));
+            results.add(new ScalarResult("Sync time", syncNanos.sum() / 1e3 / operations, "us/op", AggregationPolicy.AVG));
+        }
+        return results;
+    }
+}
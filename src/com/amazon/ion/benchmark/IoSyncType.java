@@ -0,0 +1,24 @@
+package com.amazon.ion.benchmark;
+
+/**
+ * When the data written by a write benchmark with --io-type file is forced to the storage device.
+ */
+enum IoSyncType {
+
+    /**
+     * Never force the data to the storage device; it may remain in the operating system's cache after writing
+     * completes.
+     */
+    NONE,
+
+    /**
+     * Force the data to the storage device each time the writer is flushed (see --ion-flush-period) and when it is
+     * closed.
+     */
+    FLUSH,
+
+    /**
+     * Force the data to the storage device only when the writer is closed.
+     */
+    CLOSE
+}
@@ -8,10 +8,60 @@ enum IoType {
     /**
      * Read from or write to a file on disk.
      */
-    FILE,
+    FILE(true, true),
 
     /**
      * Read from or write to a byte array in memory.
      */
-    BUFFER
+    BUFFER(true, true),
+
+    /**
+     * Read from a memory-mapped file. Only supported for read benchmarks.
+     */
+    MMAP(true, false),
+
+    /**
+     * Read from direct ByteBuffers allocated outside of the Java heap. Only supported for read benchmarks.
+     */
+    OFF_HEAP(true, false),
+
+    /**
+     * Write to a sink that counts and then discards the bytes. Only supported for write benchmarks.
+     */
+    DISCARD(false, true),
+
+    /**
+     * Read from or write to a TCP connection to a server on the loopback interface that runs inside the benchmark
+     * process. For reads, the server sends the input data; for writes, it drains and discards the output.
+     */
+    SOCKET(true, true),
+
+    /**
+     * Write to a bounded ring of byte chunks that is drained by a reader on a separate thread, which fully reads the
+     * data as it arrives. Each invocation completes when the reader reaches the end of the data. Only supported for
+     * write benchmarks.
+     */
+    PIPELINE(false, true);
+
+    private final boolean isReadSupported;
+    private final boolean isWriteSupported;
+
+    IoType(boolean isReadSupported, boolean isWriteSupported) {
+        this.isReadSupported = isReadSupported;
+        this.isWriteSupported = isWriteSupported;
+    }
+
+    /**
+     * @param commandName the name of the command (read or write) that will use this IO type.
+     * @return this IoType, if it is supported by the given command.
+     * @throws IllegalArgumentException if this IoType is not supported by the given command.
+     */
+    IoType requireSupportFor(String commandName) {
+        if (("read".equals(commandName) && !isReadSupported) || ("write".equals(commandName) && !isWriteSupported)) {
+            throw new IllegalArgumentException(
+                "--io-type " + name().toLowerCase() + " is not supported for " + commandName + " benchmarks."
+            );
+        }
+        return this;
+    }
 }
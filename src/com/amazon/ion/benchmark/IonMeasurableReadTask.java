@@ -4,14 +4,22 @@ import com.amazon.ion.IonBufferConfiguration;
 import com.amazon.ion.IonReader;
 import com.amazon.ion.IonSystem;
 import com.amazon.ion.IonType;
+import com.amazon.ion.IonWriter;
 import com.amazon.ion.system.IonReaderBuilder;
 import com.amazon.ionpathextraction.PathExtractor;
 import com.amazon.ionpathextraction.PathExtractorBuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static com.amazon.ion.benchmark.MeasurableTask.endAllocationPhase;
+import static com.amazon.ion.benchmark.MeasurableTask.startAllocationPhases;
 
 /**
  * A MeasurableReadTask for reading data in the Ion format (either text or binary).
@@ -20,11 +28,13 @@ class IonMeasurableReadTask extends MeasurableReadTask {
 
     private static final int DEFAULT_INCREMENTAL_BUFFER_SIZE = 32 * 1024;
     private static final int DEFAULT_REUSABLE_LOB_BUFFER_SIZE = 1024;
-    private final PathExtractor<?> pathExtractor;
+    private final PathExtractor<SideEffectConsumer> pathExtractor;
     private final IonSystem ionSystem;
-    private final byte[] reusableLobBuffer;
+    private final ThreadLocal<byte[]> reusableLobBuffer;
     private IonReaderBuilder readerBuilder;
-    private SideEffectConsumer sideEffectConsumer = null;
+    // When --partitions is specified, the independently-readable partitions of the buffer and the pool that reads them.
+    private byte[][] partitions = null;
+    private ForkJoinPool partitionPool = null;
 
     /**
      * Returns the next power of two greater than or equal to the given value.
@@ -38,10 +48,11 @@ class IonMeasurableReadTask extends MeasurableReadTask {
     /**
      * Callback function for path extractor matches. Fully consumes the current value.
      * @param reader the reader positioned at the match.
+     * @param consumer the SideEffectConsumer provided to the invocation of the task that initiated the match.
      * @return 0, meaning that the reader should not step out of the current container after a match.
      */
-    private int pathExtractorCallback(IonReader reader) {
-        consumeCurrentValue(reader, reader.isInStruct());
+    private int pathExtractorCallback(IonReader reader, SideEffectConsumer consumer) {
+        consumeCurrentValue(reader, reader.isInStruct(), consumer);
         return 0;
     }
 
@@ -54,7 +65,7 @@ class IonMeasurableReadTask extends MeasurableReadTask {
         super(inputPath, options);
         ionSystem = IonUtilities.ionSystemForBenchmark(options);
         if (options.paths != null) {
-            PathExtractorBuilder<?> pathExtractorBuilder = PathExtractorBuilder.standard();
+            PathExtractorBuilder<SideEffectConsumer> pathExtractorBuilder = PathExtractorBuilder.standard();
             for (String path : options.paths) {
                 pathExtractorBuilder.withSearchPath(path, this::pathExtractorCallback);
             }
@@ -63,15 +74,15 @@ class IonMeasurableReadTask extends MeasurableReadTask {
             pathExtractor = null;
         }
         if (options.useLobChunks) {
-            reusableLobBuffer = new byte[DEFAULT_REUSABLE_LOB_BUFFER_SIZE];
+            // Each thread that executes the task gets its own reusable buffer.
+            reusableLobBuffer = ThreadLocal.withInitial(() -> new byte[DEFAULT_REUSABLE_LOB_BUFFER_SIZE]);
         } else {
             reusableLobBuffer = null;
         }
     }
 
     @Override
-    public void setUpTrial() throws IOException {
-        super.setUpTrial();
+    void setUpReaders() throws IOException {
         // Create the reader builder after any file conversion is done so that the buffer configuration can be
         // chosen with knowledge of the actual size of the data.
         readerBuilder = IonUtilities.newReaderBuilderForBenchmark(options).
@@ -94,6 +105,24 @@ class IonMeasurableReadTask extends MeasurableReadTask {
                 }
             }
         }
+        if (options.partitions != null) {
+            partitions = InputIndex.of(inputFile.toPath()).partition(
+                buffer,
+                options.partitions,
+                IonUtilities.newReaderBuilderForBenchmark(options).withIncrementalReadingEnabled(false)
+            );
+            partitionPool = new ForkJoinPool(partitions.length);
+        }
+    }
+
+    @Override
+    public void tearDownTrial() throws IOException {
+        super.tearDownTrial();
+        partitions = null;
+        if (partitionPool != null) {
+            partitionPool.shutdown();
+            partitionPool = null;
+        }
     }
 
     @Override
@@ -106,15 +135,55 @@ class IonMeasurableReadTask extends MeasurableReadTask {
         // Nothing to do.
     }
 
-    private void consumeCurrentValue(IonReader reader, boolean isInStruct) {
+    private void consumeCurrentValue(IonReader reader, boolean isInStruct, SideEffectConsumer sideEffectConsumer) {
+        consumeCurrentValue(
+            reader,
+            isInStruct,
+            options.useSymbolTokens,
+            options.ionUseBigDecimals,
+            reusableLobBuffer == null ? null : reusableLobBuffer.get(),
+            sideEffectConsumer
+        );
+    }
+
+    private void fullyTraverse(IonReader reader, boolean isInStruct, SideEffectConsumer sideEffectConsumer) {
+        fullyTraverse(
+            reader,
+            isInStruct,
+            options.useSymbolTokens,
+            options.ionUseBigDecimals,
+            reusableLobBuffer == null ? null : reusableLobBuffer.get(),
+            sideEffectConsumer
+        );
+    }
+
+    /**
+     * Consumes the value on which the given reader is positioned, including its field name and annotations, fully
+     * traversing it if it is a container. Also used by the reader at the end of a write pipeline (see
+     * {@link IoType#PIPELINE}).
+     * @param reader the reader, positioned on a value.
+     * @param isInStruct true if the value is a struct field.
+     * @param useSymbolTokens true if symbols should be consumed as SymbolTokens instead of Strings.
+     * @param useBigDecimals true if decimals should be consumed as BigDecimals instead of Decimals.
+     * @param reusableLobBuffer the buffer into which lobs are read in chunks, or null if lobs should be materialized.
+     * @param sideEffectConsumer the SideEffectConsumer.
+     */
+    static void consumeCurrentValue(
+        IonReader reader,
+        boolean isInStruct,
+        boolean useSymbolTokens,
+        boolean useBigDecimals,
+        byte[] reusableLobBuffer,
+        SideEffectConsumer sideEffectConsumer
+    ) {
         if (isInStruct) {
-            if (options.useSymbolTokens) {
+            if (useSymbolTokens) {
                 sideEffectConsumer.consume(reader.getFieldNameSymbol());
             } else {
                 sideEffectConsumer.consume(reader.getFieldName());
             }
         }
-        if (options.useSymbolTokens) {
+        if (useSymbolTokens) {
             sideEffectConsumer.consume(reader.getTypeAnnotationSymbols());
         } else {
             Iterator<String> annotationsIterator = reader.iterateTypeAnnotations();
@@ -145,7 +214,7 @@ class IonMeasurableReadTask extends MeasurableReadTask {
                     sideEffectConsumer.consume(reader.doubleValue());
                     break;
                 case DECIMAL:
-                    if (options.ionUseBigDecimals) {
+                    if (useBigDecimals) {
                         sideEffectConsumer.consume(reader.bigDecimalValue());
                     } else {
                         sideEffectConsumer.consume(reader.decimalValue());
@@ -155,7 +224,7 @@ class IonMeasurableReadTask extends MeasurableReadTask {
                     sideEffectConsumer.consume(reader.timestampValue());
                     break;
                 case SYMBOL:
-                    if (options.useSymbolTokens) {
+                    if (useSymbolTokens) {
                         sideEffectConsumer.consume(reader.symbolValue());
                     } else {
                         sideEffectConsumer.consume(reader.stringValue());
@@ -166,7 +235,7 @@ class IonMeasurableReadTask extends MeasurableReadTask {
                     break;
                 case CLOB:
                 case BLOB:
-                    if (options.useLobChunks) {
+                    if (reusableLobBuffer != null) {
                         int bytesRemaining = reader.byteSize();
                         while (bytesRemaining > 0) {
                             bytesRemaining -= reader.getBytes(
@@ -183,12 +252,12 @@ class IonMeasurableReadTask extends MeasurableReadTask {
                 case LIST:
                 case SEXP:
                     reader.stepIn();
-                    fullyTraverse(reader, false);
+                    fullyTraverse(reader, false, useSymbolTokens, useBigDecimals, reusableLobBuffer, sideEffectConsumer);
                     reader.stepOut();
                     break;
                 case STRUCT:
                     reader.stepIn();
-                    fullyTraverse(reader, true);
+                    fullyTraverse(reader, true, useSymbolTokens, useBigDecimals, reusableLobBuffer, sideEffectConsumer);
                     reader.stepOut();
                     break;
                 default:
@@ -197,58 +266,168 @@ class IonMeasurableReadTask extends MeasurableReadTask {
         }
     }
 
-    private void fullyTraverse(IonReader reader, boolean isInStruct) {
+    /**
+     * Consumes all remaining values at the current depth of the given reader, fully traversing any containers.
+     * @see #consumeCurrentValue(IonReader, boolean, boolean, boolean, byte[], SideEffectConsumer)
+     */
+    static void fullyTraverse(
+        IonReader reader,
+        boolean isInStruct,
+        boolean useSymbolTokens,
+        boolean useBigDecimals,
+        byte[] reusableLobBuffer,
+        SideEffectConsumer sideEffectConsumer
+    ) {
+        while (reader.next() != null) {
+            consumeCurrentValue(reader, isInStruct, useSymbolTokens, useBigDecimals, reusableLobBuffer, sideEffectConsumer);
+        }
+    }
+
+    /**
+     * Fully traverses the top-level values of the given reader, timing each value if requested by the options.
+     * @param reader the reader, positioned at the top level.
+     * @param sideEffectConsumer the SideEffectConsumer.
+     */
+    private void fullyTraverseTopLevel(IonReader reader, SideEffectConsumer sideEffectConsumer) {
+        if (options.valueLatency == ValueLatencyMode.NONE) {
+            fullyTraverse(reader, false, sideEffectConsumer);
+            return;
+        }
+        LatencyProfiler.Recorder recorder = LatencyProfiler.recorder();
+        long start = System.nanoTime();
         while (reader.next() != null) {
-            consumeCurrentValue(reader, isInStruct);
+            consumeCurrentValue(reader, false, sideEffectConsumer);
+            long end = System.nanoTime();
+            recorder.record(end - start);
+            start = end;
         }
     }
 
 
+    /**
+     * Fully traverses each partition of the buffer with its own reader, in parallel.
+     * @param consumer the SideEffectConsumer, which belongs to the calling thread. Each partition consumes values into
+     *                 its own consumer, whose result is passed to this consumer once the partition has been read.
+     */
+    private void fullyTraversePartitions(SideEffectConsumer consumer) {
+        List<ForkJoinTask<FoldingSideEffectConsumer>> tasks = new ArrayList<>(partitions.length);
+        for (byte[] partition : partitions) {
+            tasks.add(partitionPool.submit(() -> {
+                FoldingSideEffectConsumer partitionConsumer = new FoldingSideEffectConsumer();
+                IonReader reader = readerBuilder.build(partition);
+                fullyTraverseTopLevel(reader, partitionConsumer);
+                reader.close();
+                return partitionConsumer;
+            }));
+        }
+        for (ForkJoinTask<FoldingSideEffectConsumer> task : tasks) {
+            // Rethrows any exception raised while reading the partition.
+            task.join().foldInto(consumer);
+        }
+    }
+
+    @Override
+    MessageBuffer splitIntoMessages(byte[] data) throws IOException {
+        // Each value is re-encoded into its own stream so that it does not depend on local symbols defined earlier in
+        // the input.
+        IonUtilities.IonWriterSupplier writerSupplier = options.format == Format.ION_TEXT
+            ? IonUtilities.newTextWriterSupplier(options)
+            : IonUtilities.newBinaryWriterSupplier(options);
+        MessageBuffer.Builder builder = new MessageBuffer.Builder();
+        try (IonReader reader = IonUtilities.newReaderBuilderForBenchmark(options).build(data)) {
+            while (reader.next() != null) {
+                // Closing the writer does not affect the builder's output.
+                IonWriter writer = writerSupplier.get(builder.output());
+                writer.writeValue(reader);
+                writer.close();
+                builder.endMessage();
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    void fullyTraverseMessages(SideEffectConsumer consumer) throws IOException {
+        LatencyProfiler.Recorder recorder = valueLatencyRecorder();
+        long constructionNanos = 0;
+        long decodingNanos = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            long start = System.nanoTime();
+            IonReader reader = readerBuilder.build(messages.data, messages.offset(i), messages.length(i));
+            long constructed = System.nanoTime();
+            fullyTraverse(reader, false, consumer);
+            reader.close();
+            long end = System.nanoTime();
+            decodingNanos += end - constructed;
+            constructionNanos += constructed - start;
+            if (recorder != null) {
+                recorder.record(end - start, messageSizeForLatency(i));
+            }
+        }
+        MessageProfiler.recordMessages(messages.size(), constructionNanos, decodingNanos);
+    }
+
     @Override
     void fullyTraverseFromBuffer(SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
+        if (partitions != null) {
+            fullyTraversePartitions(consumer);
+            return;
+        }
+        long allocated = startAllocationPhases(options);
         IonReader reader = readerBuilder.build(buffer);
-        fullyTraverse(reader, false);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
+        fullyTraverseTopLevel(reader, consumer);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
         reader.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 
     @Override
     public void fullyTraverseFromFile(SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
-        IonReader reader = readerBuilder.build(options.newInputStream(inputFile));
-        fullyTraverse(reader, false);
+        InputStream input = newInputStream();
+        long allocated = startAllocationPhases(options);
+        IonReader reader = readerBuilder.build(input);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
+        fullyTraverseTopLevel(reader, consumer);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
         reader.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 
     @Override
     void traverseFromBuffer(List<String> paths, SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
         IonReader reader = readerBuilder.build(buffer);
-        pathExtractor.match(reader);
+        pathExtractor.match(reader, consumer);
         reader.close();
     }
 
     @Override
     public void traverseFromFile(List<String> paths, SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
-        IonReader reader = readerBuilder.build(options.newInputStream(inputFile));
-        pathExtractor.match(reader);
+        IonReader reader = readerBuilder.build(newInputStream());
+        pathExtractor.match(reader, consumer);
         reader.close();
     }
 
     @Override
     public void fullyReadDomFromBuffer(SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
+        long allocated = startAllocationPhases(options);
         IonReader reader = readerBuilder.build(buffer);
-        ionSystem.newLoader().load(reader);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
+        consumer.consume(ionSystem.newLoader().load(reader));
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
         reader.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 
     @Override
     public void fullyReadDomFromFile(SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
-        IonReader reader = readerBuilder.build(options.newInputStream(inputFile));
-        ionSystem.newLoader().load(reader);
+        InputStream input = newInputStream();
+        long allocated = startAllocationPhases(options);
+        IonReader reader = readerBuilder.build(input);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
+        consumer.consume(ionSystem.newLoader().load(reader));
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
         reader.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 }
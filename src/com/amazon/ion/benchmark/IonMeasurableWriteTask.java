@@ -9,12 +9,12 @@ import com.amazon.ion.SymbolToken;
 import com.amazon.ion.Timestamp;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.file.Path;
 import java.util.Iterator;
-import java.util.function.Consumer;
 
 import static com.amazon.ion.benchmark.Constants.ION_SYSTEM;
 
@@ -41,103 +41,117 @@ class IonMeasurableWriteTask extends MeasurableWriteTask<IonWriter> {
         }
     }
 
+    // Opcodes for the instructions on the WriteInstructionTape. Opcode 0 is reserved for WriteInstructionTape.EXECUTE.
+    private static final byte SET_FIELD_NAME = 1;
+    private static final byte SET_FIELD_NAME_SYMBOL = 2;
+    private static final byte SET_TYPE_ANNOTATIONS = 3;
+    private static final byte SET_TYPE_ANNOTATION_SYMBOLS = 4;
+    private static final byte WRITE_TYPED_NULL = 5;
+    private static final byte WRITE_NULL = 6;
+    private static final byte WRITE_BOOL = 7;
+    private static final byte WRITE_INT = 8;
+    private static final byte WRITE_LONG = 9;
+    private static final byte WRITE_BIG_INTEGER = 10;
+    private static final byte WRITE_FLOAT = 11;
+    private static final byte WRITE_DECIMAL = 12;
+    private static final byte WRITE_TIMESTAMP = 13;
+    private static final byte WRITE_SYMBOL = 14;
+    private static final byte WRITE_SYMBOL_TOKEN = 15;
+    private static final byte WRITE_STRING = 16;
+    private static final byte WRITE_CLOB = 17;
+    private static final byte WRITE_BLOB = 18;
+    private static final byte STEP_IN = 19;
+    private static final byte STEP_OUT = 20;
+    private static final byte FLUSH = 21;
+    private static final byte FINISH = 22;
+
+    private static final IonType[] ION_TYPES = IonType.values();
+
     /**
-     * Generate WriteInstructions by fully traversing the input data.
+     * Generate write instructions by fully traversing the input data.
      * @param reader IonReader over the input data.
-     * @param instructionsSink sink for the generated WriteInstructions.
+     * @param tape the tape to which the generated instructions will be appended.
+     * @param maxTopLevelValues the number of top-level values after which to stop traversing.
+     * @return the number of top-level values traversed.
      */
-    private void fullyTraverse(IonReader reader, Consumer<WriteInstruction<IonWriter>> instructionsSink) {
+    private int fullyTraverse(IonReader reader, WriteInstructionTape tape, int maxTopLevelValues) {
         int numberOfTopLevelValues = 0;
         while (reader.next() != null) {
             if (reader.isInStruct()) {
                 if (options.useSymbolTokens) {
-                    SymbolToken fieldName = reader.getFieldNameSymbol();
-                    instructionsSink.accept(writer -> writer.setFieldNameSymbol(fieldName));
+                    tape.appendConstant(SET_FIELD_NAME_SYMBOL, reader.getFieldNameSymbol());
                 } else {
-                    String fieldName = reader.getFieldName();
-                    instructionsSink.accept(writer -> writer.setFieldName(fieldName));
+                    tape.appendString(SET_FIELD_NAME, reader.getFieldName());
                 }
             }
             if (options.useSymbolTokens) {
                 SymbolToken[] annotations = reader.getTypeAnnotationSymbols();
                 if (annotations.length > 0) {
-                    instructionsSink.accept(writer -> writer.setTypeAnnotationSymbols(annotations));
+                    tape.appendConstant(SET_TYPE_ANNOTATION_SYMBOLS, annotations);
                 }
             } else {
                 String[] annotations = reader.getTypeAnnotations();
                 if (annotations.length > 0) {
-                    instructionsSink.accept(writer -> writer.setTypeAnnotations(annotations));
+                    tape.appendConstant(SET_TYPE_ANNOTATIONS, annotations);
                 }
             }
             IonType type = reader.getType();
             if (reader.isNullValue()) {
-                instructionsSink.accept(writer -> writer.writeNull(type));
+                tape.appendByte(WRITE_TYPED_NULL, (byte) type.ordinal());
             } else {
                 switch (type) {
                     case NULL:
-                        instructionsSink.accept(IonWriter::writeNull);
+                        tape.append(WRITE_NULL);
                         break;
                     case BOOL:
-                        boolean boolValue = reader.booleanValue();
-                        instructionsSink.accept(writer -> writer.writeBool(boolValue));
+                        tape.appendByte(WRITE_BOOL, (byte) (reader.booleanValue() ? 1 : 0));
                         break;
                     case INT:
                         switch (reader.getIntegerSize()) {
                             case INT:
-                                int intValue = reader.intValue();
-                                instructionsSink.accept(writer -> writer.writeInt(intValue));
+                                tape.appendInt(WRITE_INT, reader.intValue());
                                 break;
                             case LONG:
-                                long longValue = reader.longValue();
-                                instructionsSink.accept(writer -> writer.writeInt(longValue));
+                                tape.appendLong(WRITE_LONG, reader.longValue());
                                 break;
                             case BIG_INTEGER:
-                                BigInteger bigIntegerValue = reader.bigIntegerValue();
-                                instructionsSink.accept(writer -> writer.writeInt(bigIntegerValue));
+                                tape.appendConstant(WRITE_BIG_INTEGER, reader.bigIntegerValue());
                                 break;
                         }
                         break;
                     case FLOAT:
-                        double doubleValue = reader.doubleValue();
-                        instructionsSink.accept(writer -> writer.writeFloat(doubleValue));
+                        tape.appendDouble(WRITE_FLOAT, reader.doubleValue());
                         break;
                     case DECIMAL:
-                        BigDecimal decimalValue = reader.decimalValue();
-                        instructionsSink.accept(writer -> writer.writeDecimal(decimalValue));
+                        tape.appendConstant(WRITE_DECIMAL, reader.decimalValue());
                         break;
                     case TIMESTAMP:
-                        Timestamp timestampValue = reader.timestampValue();
-                        instructionsSink.accept(writer -> writer.writeTimestamp(timestampValue));
+                        tape.appendConstant(WRITE_TIMESTAMP, reader.timestampValue());
                         break;
                     case SYMBOL:
                         if (options.useSymbolTokens) {
-                            SymbolToken symbolValue = reader.symbolValue();
-                            instructionsSink.accept(writer -> writer.writeSymbolToken(symbolValue));
+                            tape.appendConstant(WRITE_SYMBOL_TOKEN, reader.symbolValue());
                         } else {
-                            String symbolValue = reader.stringValue();
-                            instructionsSink.accept(writer -> writer.writeSymbol(symbolValue));
+                            tape.appendString(WRITE_SYMBOL, reader.stringValue());
                         }
                         break;
                     case STRING:
-                        String stringValue = reader.stringValue();
-                        instructionsSink.accept(writer -> writer.writeString(stringValue));
+                        tape.appendString(WRITE_STRING, reader.stringValue());
                         break;
                     case CLOB:
-                        byte[] clobValue = reader.newBytes();
-                        instructionsSink.accept(writer -> writer.writeClob(clobValue));
+                        tape.appendConstant(WRITE_CLOB, reader.newBytes());
                         break;
                     case BLOB:
-                        byte[] blobValue = reader.newBytes();
-                        instructionsSink.accept(writer -> writer.writeBlob(blobValue));
+                        tape.appendConstant(WRITE_BLOB, reader.newBytes());
                         break;
                     case LIST:
                     case SEXP:
                     case STRUCT:
                         reader.stepIn();
-                        instructionsSink.accept(writer -> writer.stepIn(type));
-                        fullyTraverse(reader, instructionsSink);
+                        tape.appendByte(STEP_IN, (byte) type.ordinal());
+                        fullyTraverse(reader, tape, maxTopLevelValues);
                         reader.stepOut();
-                        instructionsSink.accept(IonWriter::stepOut);
+                        tape.append(STEP_OUT);
                         break;
                     default:
                         break;
@@ -146,25 +160,45 @@ class IonMeasurableWriteTask extends MeasurableWriteTask<IonWriter> {
             if (reader.getDepth() == 0) {
                 numberOfTopLevelValues++;
                 if (options.flushPeriod != null && numberOfTopLevelValues % options.flushPeriod == 0) {
-                    instructionsSink.accept(IonWriter::flush);
+                    tape.append(FLUSH);
                 }
-                if (options.limit != Integer.MAX_VALUE && numberOfTopLevelValues >= options.limit) {
+                appendEndOfValue(tape);
+                if (numberOfTopLevelValues >= maxTopLevelValues) {
                     break;
                 }
             }
         }
+        return numberOfTopLevelValues;
     }
 
     @Override
-    void generateWriteInstructionsStreaming(Consumer<WriteInstruction<IonWriter>> instructionsSink) throws IOException {
+    void generateWriteInstructionsStreaming(WriteInstructionTape tape) throws IOException {
         try (IonReader reader = IonUtilities.newReaderBuilderForInput(options).build(options.newInputStream(inputFile))) {
-            fullyTraverse(reader, instructionsSink);
-            instructionsSink.accept(IonWriter::finish);
+            fullyTraverse(reader, tape, options.limit);
+            tape.append(FINISH);
         }
     }
 
     @Override
-    void generateWriteInstructionsDom(Consumer<WriteInstruction<IonWriter>> instructionsSink) throws IOException {
+    SegmentSource newSegmentSource() throws IOException {
+        IonReader reader = IonUtilities.newReaderBuilderForInput(options).build(options.newInputStream(inputFile));
+        return new SegmentSource() {
+            @Override
+            public int nextSegment(WriteInstructionTape tape, int maxValues, boolean isContinuing) {
+                int numberOfValues = fullyTraverse(reader, tape, maxValues);
+                tape.append(isContinuing ? FLUSH : FINISH);
+                return numberOfValues;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    @Override
+    void generateWriteInstructionsDom(WriteInstructionTape tape) throws IOException {
         IonDatagram datagram;
         if (options.limit == Integer.MAX_VALUE) {
             datagram = IonUtilities.ionSystemForInput(options).getLoader().load(inputFile);
@@ -180,8 +214,104 @@ class IonMeasurableWriteTask extends MeasurableWriteTask<IonWriter> {
                 }
             }
         }
-        instructionsSink.accept(datagram::writeTo);
-        instructionsSink.accept(IonWriter::finish);
+        tape.appendInstruction((WriteInstruction<IonWriter>) datagram::writeTo);
+        tape.append(FINISH);
+    }
+
+    @Override
+    void replay(WriteInstructionTape.Cursor cursor, IonWriter writer) throws IOException {
+        long valueStart = startOfValues();
+        while (cursor.hasNext()) {
+            byte opcode = cursor.nextByte();
+            switch (opcode) {
+                case WriteInstructionTape.END_OF_VALUE:
+                    valueStart = recordValueLatency(valueStart);
+                    break;
+                case WriteInstructionTape.EXECUTE:
+                    cursor.<WriteInstruction<IonWriter>>nextConstant().execute(writer);
+                    break;
+                case SET_FIELD_NAME:
+                    writer.setFieldName(cursor.nextConstant());
+                    break;
+                case SET_FIELD_NAME_SYMBOL:
+                    writer.setFieldNameSymbol(cursor.nextConstant());
+                    break;
+                case SET_TYPE_ANNOTATIONS:
+                    writer.setTypeAnnotations(cursor.<String[]>nextConstant());
+                    break;
+                case SET_TYPE_ANNOTATION_SYMBOLS:
+                    writer.setTypeAnnotationSymbols(cursor.<SymbolToken[]>nextConstant());
+                    break;
+                case WRITE_TYPED_NULL:
+                    writer.writeNull(ION_TYPES[cursor.nextByte()]);
+                    break;
+                case WRITE_NULL:
+                    writer.writeNull();
+                    break;
+                case WRITE_BOOL:
+                    writer.writeBool(cursor.nextByte() != 0);
+                    break;
+                case WRITE_INT:
+                    writer.writeInt(cursor.nextInt());
+                    break;
+                case WRITE_LONG:
+                    writer.writeInt(cursor.nextLong());
+                    break;
+                case WRITE_BIG_INTEGER:
+                    writer.writeInt(cursor.<BigInteger>nextConstant());
+                    break;
+                case WRITE_FLOAT:
+                    writer.writeFloat(cursor.nextDouble());
+                    break;
+                case WRITE_DECIMAL:
+                    writer.writeDecimal(cursor.<BigDecimal>nextConstant());
+                    break;
+                case WRITE_TIMESTAMP:
+                    writer.writeTimestamp(cursor.nextConstant());
+                    break;
+                case WRITE_SYMBOL:
+                    writer.writeSymbol(cursor.nextConstant());
+                    break;
+                case WRITE_SYMBOL_TOKEN:
+                    writer.writeSymbolToken(cursor.nextConstant());
+                    break;
+                case WRITE_STRING:
+                    writer.writeString(cursor.nextConstant());
+                    break;
+                case WRITE_CLOB:
+                    writer.writeClob(cursor.<byte[]>nextConstant());
+                    break;
+                case WRITE_BLOB:
+                    writer.writeBlob(cursor.<byte[]>nextConstant());
+                    break;
+                case STEP_IN:
+                    writer.stepIn(ION_TYPES[cursor.nextByte()]);
+                    break;
+                case STEP_OUT:
+                    writer.stepOut();
+                    break;
+                case FLUSH:
+                    writer.flush();
+                    break;
+                case FINISH:
+                    writer.finish();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown write instruction opcode: " + opcode);
+            }
+        }
+    }
+
+    @Override
+    long readPipelineOutput(InputStream input, SideEffectConsumer consumer) throws IOException {
+        long numberOfValues = 0;
+        try (IonReader reader = IonUtilities.newReaderBuilderForBenchmark(options).build(input)) {
+            while (reader.next() != null) {
+                IonMeasurableReadTask.consumeCurrentValue(reader, false, options.useSymbolTokens, false, null, consumer);
+                numberOfValues++;
+            }
+        }
+        return numberOfValues;
     }
 
     @Override
@@ -266,7 +266,9 @@ class IonUtilities {
     }
 
     /**
-     * Truncate the given binary Ion file to the given number of top-level values.
+     * Truncate the given binary Ion file to the given number of top-level values. If the input's {@link InputIndex}
+     * has already been built, it is used to locate the end of the last retained value; otherwise, the input is scanned
+     * only up to that value, which is much faster than building the index when few values are retained.
      * @param input a binary Ion file.
      * @param output the destination of the truncated file.
      * @param numberOfValues the maximum number of top-level values that the destination file will contain.
@@ -276,13 +278,19 @@ class IonUtilities {
     static Path truncateBinaryIonFile(Path input, Path output, int numberOfValues) throws IOException {
         File inputFile = input.toFile();
         long length = 0;
-        try (IonReader reader = IonReaderBuilder.standard().build(new BufferedInputStream(new FileInputStream(inputFile)))) {
-            SpanProvider spanProvider = reader.asFacet(SpanProvider.class);
-            for (int i = 0; i < numberOfValues; i++) {
-                if (reader.next() == null) {
-                    break;
+        InputIndex index = InputIndex.ifAvailable(input);
+        if (index != null) {
+            int numberOfRetainedValues = Math.min(numberOfValues, index.size());
+            length = numberOfRetainedValues == 0 ? 0 : index.finishOffset(numberOfRetainedValues - 1);
+        } else {
+            try (IonReader reader = IonReaderBuilder.standard().build(new BufferedInputStream(new FileInputStream(inputFile)))) {
+                SpanProvider spanProvider = reader.asFacet(SpanProvider.class);
+                for (int i = 0; i < numberOfValues; i++) {
+                    if (reader.next() == null) {
+                        break;
+                    }
+                    length = spanProvider.currentSpan().asFacet(OffsetSpan.class).getFinishOffset();
                 }
-                length = spanProvider.currentSpan().asFacet(OffsetSpan.class).getFinishOffset();
             }
         }
         if (length < inputFile.length()) {
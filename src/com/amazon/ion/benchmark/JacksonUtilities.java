@@ -118,6 +118,34 @@ class JacksonUtilities {
             .build();
     }
 
+    /**
+     * Splits the given data into independent messages, each containing a single top-level value. Each message spans
+     * from the start of its value to the start of the next value, so any leading header (e.g. a CBOR self-describe
+     * tag) remains with the first message and any whitespace between values is retained.
+     * @param parser parser over the data.
+     * @param data the data.
+     * @return a new MessageBuffer.
+     * @throws IOException if thrown when reading.
+     */
+    static MessageBuffer splitIntoMessages(JsonParser parser, byte[] data) throws IOException {
+        MessageBuffer.Builder builder = new MessageBuffer.Builder();
+        int start = 0;
+        boolean isFirstValue = true;
+        while (parser.nextToken() != null) {
+            if (!isFirstValue) {
+                int end = (int) parser.currentTokenLocation().getByteOffset();
+                builder.addMessage(data, start, end - start);
+                start = end;
+            }
+            isFirstValue = false;
+            parser.skipChildren();
+        }
+        if (!isFirstValue) {
+            builder.addMessage(data, start, data.length - start);
+        }
+        return builder.build();
+    }
+
     /**
      * Rewrites the given parser's data using the given generator.
      * @param parser parser for the input data.
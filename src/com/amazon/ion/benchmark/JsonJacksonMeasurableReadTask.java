@@ -6,17 +6,20 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 
+import static com.amazon.ion.benchmark.MeasurableTask.endAllocationPhase;
+import static com.amazon.ion.benchmark.MeasurableTask.startAllocationPhases;
+
 /**
  * A MeasurableReadTask for reading data in the JSON format using the Jackson library.
  */
 public class JsonJacksonMeasurableReadTask extends MeasurableReadTask {
 
     private final JsonFactory jsonFactory;
-    private SideEffectConsumer sideEffectConsumer = null;
 
     /**
      * @param inputPath the JSON data to read.
@@ -34,7 +37,22 @@ public class JsonJacksonMeasurableReadTask extends MeasurableReadTask {
         }
     }
 
-    private boolean consumeCurrentValue(JsonParser parser, boolean isInStruct) throws IOException {
+    /**
+     * Consumes the value on which the given parser is positioned, including its field name, fully traversing it if it
+     * is a container. Also used by the reader at the end of a write pipeline (see {@link IoType#PIPELINE}).
+     * @param parser the parser, positioned on a value.
+     * @param isInStruct true if the value is an object field.
+     * @param useBigDecimals true if floating point numbers should be consumed as BigDecimals instead of doubles.
+     * @param sideEffectConsumer the SideEffectConsumer.
+     * @return true if the parser was instead positioned at the end of a container.
+     * @throws IOException if thrown during parsing.
+     */
+    static boolean consumeCurrentValue(
+        JsonParser parser,
+        boolean isInStruct,
+        boolean useBigDecimals,
+        SideEffectConsumer sideEffectConsumer
+    ) throws IOException {
         if (isInStruct) {
             sideEffectConsumer.consume(parser.getCurrentName());
         }
@@ -57,7 +75,7 @@ public class JsonJacksonMeasurableReadTask extends MeasurableReadTask {
                 }
                 break;
             case VALUE_NUMBER_FLOAT:
-                if (options.jsonUseBigDecimals) {
+                if (useBigDecimals) {
                     sideEffectConsumer.consume(parser.getDecimalValue());
                 } else {
                     sideEffectConsumer.consume(parser.getDoubleValue());
@@ -67,10 +85,10 @@ public class JsonJacksonMeasurableReadTask extends MeasurableReadTask {
                 sideEffectConsumer.consume(parser.getValueAsString());
                 break;
             case START_ARRAY:
-                fullyTraverse(parser, false);
+                fullyTraverse(parser, false, useBigDecimals, sideEffectConsumer);
                 break;
             case START_OBJECT:
-                fullyTraverse(parser, true);
+                fullyTraverse(parser, true, useBigDecimals, sideEffectConsumer);
                 break;
             case END_ARRAY:
             case END_OBJECT:
@@ -82,14 +100,40 @@ public class JsonJacksonMeasurableReadTask extends MeasurableReadTask {
         return false;
     }
 
-    private void fullyTraverse(JsonParser parser, boolean isInStruct) throws IOException {
+    private static void fullyTraverse(
+        JsonParser parser,
+        boolean isInStruct,
+        boolean useBigDecimals,
+        SideEffectConsumer sideEffectConsumer
+    ) throws IOException {
         while (parser.nextValue() != null) {
-            if (consumeCurrentValue(parser, isInStruct)) {
+            if (consumeCurrentValue(parser, isInStruct, useBigDecimals, sideEffectConsumer)) {
                 break;
             }
         }
     }
 
+    /**
+     * Fully traverses the top-level values of the given parser, timing each value if requested by the options.
+     * @param parser the parser, positioned at the top level.
+     * @param sideEffectConsumer the SideEffectConsumer.
+     * @throws IOException if thrown during parsing.
+     */
+    private void fullyTraverseTopLevel(JsonParser parser, SideEffectConsumer sideEffectConsumer) throws IOException {
+        if (options.valueLatency == ValueLatencyMode.NONE) {
+            fullyTraverse(parser, false, options.jsonUseBigDecimals, sideEffectConsumer);
+            return;
+        }
+        LatencyProfiler.Recorder recorder = LatencyProfiler.recorder();
+        long start = System.nanoTime();
+        while (parser.nextValue() != null) {
+            consumeCurrentValue(parser, false, options.jsonUseBigDecimals, sideEffectConsumer);
+            long end = System.nanoTime();
+            recorder.record(end - start);
+            start = end;
+        }
+    }
+
     @Override
     public void setUpIteration() {
         // Nothing to do.
@@ -100,20 +144,89 @@ public class JsonJacksonMeasurableReadTask extends MeasurableReadTask {
         // Nothing to do.
     }
 
+    /**
+     * @return the number of bytes to feed to the non-blocking parser at once.
+     */
+    private int nonBlockingChunkSize() {
+        return options.ioReadSize == null ? FeedingJsonParser.DEFAULT_CHUNK_SIZE : options.ioReadSize;
+    }
+
+    /**
+     * @param factory the factory to use to create the parser.
+     * @return a new parser over the in-memory buffer, which is non-blocking if requested by the options.
+     * @throws IOException if thrown when creating the parser.
+     */
+    private JsonParser newParserOverBuffer(JsonFactory factory) throws IOException {
+        if (options.jsonUseNonBlockingParser) {
+            // Note: when the non-blocking parser is used from a buffer, --io-read-size is not set (otherwise the
+            // buffer would be read through an InputStream), so the whole buffer is fed at once by default.
+            return FeedingJsonParser.over(factory, buffer, buffer.length);
+        }
+        return factory.createParser(buffer);
+    }
+
+    /**
+     * @param factory the factory to use to create the parser.
+     * @param input the stream to read, e.g. from {@link #newInputStream()}.
+     * @return a new parser over the given InputStream, which is non-blocking if requested by the options.
+     * @throws IOException if thrown when creating the parser.
+     */
+    private JsonParser newParserOverStream(JsonFactory factory, InputStream input) throws IOException {
+        if (options.jsonUseNonBlockingParser) {
+            return FeedingJsonParser.over(factory, input, nonBlockingChunkSize());
+        }
+        return factory.createParser(input);
+    }
+
+    @Override
+    MessageBuffer splitIntoMessages(byte[] data) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(data)) {
+            return JacksonUtilities.splitIntoMessages(parser, data);
+        }
+    }
+
+    @Override
+    void fullyTraverseMessages(SideEffectConsumer consumer) throws IOException {
+        LatencyProfiler.Recorder recorder = valueLatencyRecorder();
+        long constructionNanos = 0;
+        long decodingNanos = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            long start = System.nanoTime();
+            JsonParser parser = jsonFactory.createParser(messages.data, messages.offset(i), messages.length(i));
+            long constructed = System.nanoTime();
+            fullyTraverse(parser, false, options.jsonUseBigDecimals, consumer);
+            parser.close();
+            long end = System.nanoTime();
+            decodingNanos += end - constructed;
+            constructionNanos += constructed - start;
+            if (recorder != null) {
+                recorder.record(end - start, messageSizeForLatency(i));
+            }
+        }
+        MessageProfiler.recordMessages(messages.size(), constructionNanos, decodingNanos);
+    }
+
     @Override
     void fullyTraverseFromBuffer(SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
-        JsonParser parser = jsonFactory.createParser(buffer);
-        fullyTraverse(parser, false);
+        long allocated = startAllocationPhases(options);
+        JsonParser parser = newParserOverBuffer(jsonFactory);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
+        fullyTraverseTopLevel(parser, consumer);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
         parser.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 
     @Override
     void fullyTraverseFromFile(SideEffectConsumer consumer) throws IOException {
-        sideEffectConsumer = consumer;
-        JsonParser parser = jsonFactory.createParser(options.newInputStream(inputFile));
-        fullyTraverse(parser, false);
+        InputStream input = newInputStream();
+        long allocated = startAllocationPhases(options);
+        JsonParser parser = newParserOverStream(jsonFactory, input);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
+        fullyTraverseTopLevel(parser, consumer);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
         parser.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 
     @Override
@@ -130,19 +243,34 @@ public class JsonJacksonMeasurableReadTask extends MeasurableReadTask {
 
     @Override
     void fullyReadDomFromBuffer(SideEffectConsumer consumer) throws IOException {
+        long allocated = startAllocationPhases(options);
         ObjectMapper mapper = JacksonUtilities.newJsonObjectMapper(jsonFactory, options);
-        Iterator<JsonNode> iterator = mapper.reader().createParser(buffer).readValuesAs(JsonNode.class);
+        JsonParser parser = newParserOverBuffer(mapper.getFactory());
+        parser.setCodec(mapper.reader());
+        Iterator<JsonNode> iterator = parser.readValuesAs(JsonNode.class);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
         while (iterator.hasNext()) {
             consumer.consume(iterator.next());
         }
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
+        parser.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 
     @Override
     void fullyReadDomFromFile(SideEffectConsumer consumer) throws IOException {
+        InputStream input = newInputStream();
+        long allocated = startAllocationPhases(options);
         ObjectMapper mapper = JacksonUtilities.newJsonObjectMapper(jsonFactory, options);
-        Iterator<JsonNode> iterator = mapper.reader().createParser(options.newInputStream(inputFile)).readValuesAs(JsonNode.class);
+        JsonParser parser = newParserOverStream(mapper.getFactory(), input);
+        parser.setCodec(mapper.reader());
+        Iterator<JsonNode> iterator = parser.readValuesAs(JsonNode.class);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
         while (iterator.hasNext()) {
             consumer.consume(iterator.next());
         }
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
+        parser.close();
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
     }
 }
@@ -7,12 +7,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.file.Path;
 import java.util.Iterator;
-import java.util.function.Consumer;
 
 /**
  * A MeasurableWriteTask for writing data in the JSON format using the Jackson library.
@@ -31,15 +31,35 @@ class JsonJacksonMeasurableWriteTask extends MeasurableWriteTask<JsonGenerator>
         generatorSupplier = JacksonUtilities.newJsonGeneratorSupplier(options);
     }
 
+    // Opcodes for the instructions on the WriteInstructionTape. Opcode 0 is reserved for WriteInstructionTape.EXECUTE.
+    private static final byte WRITE_FIELD_NAME = 1;
+    private static final byte WRITE_NULL = 2;
+    private static final byte WRITE_BOOLEAN = 3;
+    private static final byte WRITE_INT = 4;
+    private static final byte WRITE_LONG = 5;
+    private static final byte WRITE_BIG_INTEGER = 6;
+    private static final byte WRITE_DOUBLE = 7;
+    private static final byte WRITE_BIG_DECIMAL = 8;
+    private static final byte WRITE_STRING = 9;
+    private static final byte WRITE_START_ARRAY = 10;
+    private static final byte WRITE_END_ARRAY = 11;
+    private static final byte WRITE_START_OBJECT = 12;
+    private static final byte WRITE_END_OBJECT = 13;
+    private static final byte FLUSH = 14;
+
     /**
-     * Generate WriteInstructions by fully traversing the input data.
+     * Generate write instructions by fully traversing the input data.
      * @param parser JsonParser over the input data.
-     * @param instructionsSink sink for the generated WriteInstructions.
+     * @param tape the tape to which the generated instructions will be appended.
+     * @param isTopLevel true if the parser is positioned at the top level.
+     * @param maxTopLevelValues the number of top-level values after which to stop traversing.
+     * @return the number of top-level values traversed.
      */
-    private void fullyTraverse(
+    private int fullyTraverse(
         JsonParser parser,
-        Consumer<WriteInstruction<JsonGenerator>> instructionsSink,
-        boolean isTopLevel
+        WriteInstructionTape tape,
+        boolean isTopLevel,
+        int maxTopLevelValues
     ) throws IOException {
         int numberOfTopLevelValues = 0;
         while (parser.nextValue() != null) {
@@ -49,90 +69,183 @@ class JsonJacksonMeasurableWriteTask extends MeasurableWriteTask<JsonGenerator>
             }
             String fieldName = parser.getCurrentName();
             if (fieldName != null) {
-                instructionsSink.accept(generator -> generator.writeFieldName(fieldName));
+                tape.appendString(WRITE_FIELD_NAME, fieldName);
             }
             switch (parser.getCurrentToken()) {
                 case VALUE_NULL:
-                    instructionsSink.accept(JsonGenerator::writeNull);
+                    tape.append(WRITE_NULL);
                     break;
                 case VALUE_TRUE:
                 case VALUE_FALSE:
-                    boolean booleanValue = parser.getBooleanValue();
-                    instructionsSink.accept(generator -> generator.writeBoolean(booleanValue));
+                    tape.appendByte(WRITE_BOOLEAN, (byte) (parser.getBooleanValue() ? 1 : 0));
                     break;
                 case VALUE_NUMBER_INT:
                     switch (parser.getNumberType()) {
                         case INT:
-                            int intValue = parser.getIntValue();
-                            instructionsSink.accept(generator -> generator.writeNumber(intValue));
+                            tape.appendInt(WRITE_INT, parser.getIntValue());
                             break;
                         case LONG:
-                            long longValue = parser.getLongValue();
-                            instructionsSink.accept(generator -> generator.writeNumber(longValue));
+                            tape.appendLong(WRITE_LONG, parser.getLongValue());
                             break;
                         case BIG_INTEGER:
-                            BigInteger bigIntegerValue = parser.getBigIntegerValue();
-                            instructionsSink.accept(generator -> generator.writeNumber(bigIntegerValue));
+                            tape.appendConstant(WRITE_BIG_INTEGER, parser.getBigIntegerValue());
                             break;
                     }
                     break;
                 case VALUE_NUMBER_FLOAT:
                     if (options.jsonUseBigDecimals) {
-                        BigDecimal bigDecimalValue = parser.getDecimalValue();
-                        instructionsSink.accept(generator -> generator.writeNumber(bigDecimalValue));
+                        tape.appendConstant(WRITE_BIG_DECIMAL, parser.getDecimalValue());
                     } else {
-                        double doubleValue = parser.getDoubleValue();
-                        instructionsSink.accept(generator -> generator.writeNumber(doubleValue));
+                        tape.appendDouble(WRITE_DOUBLE, parser.getDoubleValue());
                     }
                     break;
                 case VALUE_STRING:
-                    String stringValue = parser.getValueAsString();
-                    instructionsSink.accept(generator -> generator.writeString(stringValue));
+                    tape.appendString(WRITE_STRING, parser.getValueAsString());
                     break;
                 case START_ARRAY:
-                    instructionsSink.accept(JsonGenerator::writeStartArray);
-                    fullyTraverse(parser, instructionsSink, false);
-                    instructionsSink.accept(JsonGenerator::writeEndArray);
+                    tape.append(WRITE_START_ARRAY);
+                    fullyTraverse(parser, tape, false, maxTopLevelValues);
+                    tape.append(WRITE_END_ARRAY);
                     break;
                 case START_OBJECT:
-                    instructionsSink.accept(JsonGenerator::writeStartObject);
-                    fullyTraverse(parser, instructionsSink, false);
-                    instructionsSink.accept(JsonGenerator::writeEndObject);
+                    tape.append(WRITE_START_OBJECT);
+                    fullyTraverse(parser, tape, false, maxTopLevelValues);
+                    tape.append(WRITE_END_OBJECT);
                     break;
                 default:
                     throw new IllegalStateException("Found an unexpected token: " + parser.getCurrentToken());
             }
             if (isTopLevel) {
                 numberOfTopLevelValues++;
-                if (options.limit != Integer.MAX_VALUE && numberOfTopLevelValues >= options.limit) {
+                if (options.flushPeriod != null && numberOfTopLevelValues % options.flushPeriod == 0) {
+                    tape.append(FLUSH);
+                }
+                appendEndOfValue(tape);
+                if (numberOfTopLevelValues >= maxTopLevelValues) {
                     break;
                 }
             }
         }
+        return numberOfTopLevelValues;
     }
 
     @Override
-    void generateWriteInstructionsStreaming(Consumer<WriteInstruction<JsonGenerator>> instructionsSink) throws IOException {
+    void generateWriteInstructionsStreaming(WriteInstructionTape tape) throws IOException {
         try (JsonParser parser = JacksonUtilities.newJsonFactoryForInput(options).createParser(options.newInputStream(inputFile))) {
-            fullyTraverse(parser, instructionsSink, true);
+            fullyTraverse(parser, tape, true, options.limit);
         }
     }
 
     @Override
-    void generateWriteInstructionsDom(Consumer<WriteInstruction<JsonGenerator>> instructionsSink) throws IOException {
+    SegmentSource newSegmentSource() throws IOException {
+        JsonParser parser = JacksonUtilities.newJsonFactoryForInput(options).createParser(options.newInputStream(inputFile));
+        return new SegmentSource() {
+            @Override
+            public int nextSegment(WriteInstructionTape tape, int maxValues, boolean isContinuing) throws IOException {
+                int numberOfValues = fullyTraverse(parser, tape, true, maxValues);
+                if (isContinuing) {
+                    tape.append(FLUSH);
+                }
+                return numberOfValues;
+            }
+
+            @Override
+            public void close() throws IOException {
+                parser.close();
+            }
+        };
+    }
+
+    @Override
+    void generateWriteInstructionsDom(WriteInstructionTape tape) throws IOException {
         ObjectMapper mapper = JacksonUtilities.newJsonObjectMapper(JacksonUtilities.newJsonFactoryForInput(options), options);
         Iterator<JsonNode> iterator = mapper.reader().createParser(options.newInputStream(inputFile)).readValuesAs(JsonNode.class);
         int numberOfValues = 0;
         while (iterator.hasNext()) {
             JsonNode value = iterator.next();
-            instructionsSink.accept(generator -> generator.writeTree(value));
+            tape.appendInstruction((WriteInstruction<JsonGenerator>) generator -> generator.writeTree(value));
             numberOfValues++;
+            if (options.flushPeriod != null && numberOfValues % options.flushPeriod == 0) {
+                tape.append(FLUSH);
+            }
             if (options.limit != Integer.MAX_VALUE && numberOfValues >= options.limit) {
                 break;
             }
         }
     }
 
+    @Override
+    void replay(WriteInstructionTape.Cursor cursor, JsonGenerator generator) throws IOException {
+        long valueStart = startOfValues();
+        while (cursor.hasNext()) {
+            byte opcode = cursor.nextByte();
+            switch (opcode) {
+                case WriteInstructionTape.END_OF_VALUE:
+                    valueStart = recordValueLatency(valueStart);
+                    break;
+                case WriteInstructionTape.EXECUTE:
+                    cursor.<WriteInstruction<JsonGenerator>>nextConstant().execute(generator);
+                    break;
+                case WRITE_FIELD_NAME:
+                    generator.writeFieldName(cursor.<String>nextConstant());
+                    break;
+                case WRITE_NULL:
+                    generator.writeNull();
+                    break;
+                case WRITE_BOOLEAN:
+                    generator.writeBoolean(cursor.nextByte() != 0);
+                    break;
+                case WRITE_INT:
+                    generator.writeNumber(cursor.nextInt());
+                    break;
+                case WRITE_LONG:
+                    generator.writeNumber(cursor.nextLong());
+                    break;
+                case WRITE_BIG_INTEGER:
+                    generator.writeNumber(cursor.<BigInteger>nextConstant());
+                    break;
+                case WRITE_DOUBLE:
+                    generator.writeNumber(cursor.nextDouble());
+                    break;
+                case WRITE_BIG_DECIMAL:
+                    generator.writeNumber(cursor.<BigDecimal>nextConstant());
+                    break;
+                case WRITE_STRING:
+                    generator.writeString(cursor.<String>nextConstant());
+                    break;
+                case WRITE_START_ARRAY:
+                    generator.writeStartArray();
+                    break;
+                case WRITE_END_ARRAY:
+                    generator.writeEndArray();
+                    break;
+                case WRITE_START_OBJECT:
+                    generator.writeStartObject();
+                    break;
+                case WRITE_END_OBJECT:
+                    generator.writeEndObject();
+                    break;
+                case FLUSH:
+                    generator.flush();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown write instruction opcode: " + opcode);
+            }
+        }
+    }
+
+    @Override
+    long readPipelineOutput(InputStream input, SideEffectConsumer consumer) throws IOException {
+        long numberOfValues = 0;
+        try (JsonParser parser = JacksonUtilities.newJsonFactoryForInput(options).createParser(input)) {
+            while (parser.nextValue() != null) {
+                JsonJacksonMeasurableReadTask.consumeCurrentValue(parser, false, options.jsonUseBigDecimals, consumer);
+                numberOfValues++;
+            }
+        }
+        return numberOfValues;
+    }
+
     @Override
     JsonGenerator newWriter(OutputStream outputStream) throws IOException {
         return generatorSupplier.get(outputStream);
@@ -0,0 +1,160 @@
+package com.amazon.ion.benchmark;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * A histogram of latencies, in nanoseconds, with log-linear buckets: values below {@link #SUB_BUCKET_COUNT} are
+ * counted exactly, and each larger power-of-two range is divided into {@link #SUB_BUCKET_COUNT} equal buckets, which
+ * bounds the relative error of any reported value to 1 / {@link #SUB_BUCKET_COUNT}. All storage is allocated up front,
+ * so recording a value does not allocate. A histogram may only be written by one thread at a time; histograms written
+ * by different threads are combined using {@link #add(LatencyHistogram)} once recording has stopped.
+ */
+final class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // Values below SUB_BUCKET_COUNT occupy the first SUB_BUCKET_COUNT buckets. Each power of two from 2^SUB_BUCKET_BITS
+    // through 2^62 occupies the next SUB_BUCKET_COUNT buckets.
+    private static final int NUMBER_OF_BUCKETS = SUB_BUCKET_COUNT * (Long.SIZE - SUB_BUCKET_BITS);
+
+    // Transient because most buckets are empty; see writeObject.
+    private transient long[] counts = new long[NUMBER_OF_BUCKETS];
+    private long count = 0;
+    private long max = 0;
+
+    /**
+     * @param value a non-negative value.
+     * @return the index of the bucket that counts the value.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        // The value's SUB_BUCKET_BITS most significant bits after its leading one select the bucket within its range.
+        return SUB_BUCKET_COUNT * (shift + 1) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * @param index the index of a bucket.
+     * @return the largest value counted by the bucket.
+     */
+    private static long highestValueIn(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowestValue = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lowestValue + (1L << shift) - 1;
+    }
+
+    /**
+     * Records a single value.
+     * @param nanos the value, in nanoseconds. Negative values are recorded as zero.
+     */
+    void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts[indexOf(nanos)]++;
+        count++;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Adds all values recorded by the given histogram to this histogram.
+     * @param other the other histogram.
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    void reset() {
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        max = 0;
+    }
+
+    /**
+     * @return the number of recorded values.
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * @return the largest recorded value, in nanoseconds.
+     */
+    long max() {
+        return max;
+    }
+
+    /**
+     * Serializes only the non-empty buckets, as pairs of index and count preceded by the number of pairs.
+     * @param out the stream.
+     * @throws IOException if thrown while writing.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int numberOfNonEmptyBuckets = 0;
+        for (long bucketCount : counts) {
+            if (bucketCount > 0) {
+                numberOfNonEmptyBuckets++;
+            }
+        }
+        out.writeInt(numberOfNonEmptyBuckets);
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            if (counts[i] > 0) {
+                out.writeInt(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * @param in the stream.
+     * @throws IOException if thrown while reading.
+     * @throws ClassNotFoundException if thrown while reading.
+     * @see #writeObject(ObjectOutputStream)
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        counts = new long[NUMBER_OF_BUCKETS];
+        int numberOfNonEmptyBuckets = in.readInt();
+        for (int i = 0; i < numberOfNonEmptyBuckets; i++) {
+            counts[in.readInt()] = in.readLong();
+        }
+    }
+
+    /**
+     * @param fraction the fraction of values, between 0 and 1.
+     * @return an upper bound, in nanoseconds, on the given fraction of the recorded values, or 0 if no values have been
+     *         recorded.
+     */
+    long percentile(double fraction) {
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long cumulativeCount = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            cumulativeCount += counts[i];
+            if (cumulativeCount >= rank) {
+                return Math.min(highestValueIn(i), max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,209 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.Aggregator;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ResultRole;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * JMH Profiler plugin to report the distribution of the latencies of individual top-level values (or messages) read
+ * or written by benchmarks that use --value-latency. Each thread records into its own preallocated histograms, which
+ * are merged after each iteration, so recording neither allocates nor contends. Reports the number of timed values per
+ * operation and the p50, p90, p99, p99.9, and maximum latency. Each percentile is computed from the values recorded
+ * during all measurement iterations and forks, not averaged across iterations. When the size of each value is known,
+ * the same statistics are also reported for each range of value sizes. Nothing is reported for iterations that did not
+ * time any values.
+ */
+public class LatencyProfiler implements InternalProfiler {
+
+    /**
+     * The size to record for values whose size is not known.
+     */
+    static final int UNKNOWN_SIZE = -1;
+
+    /**
+     * The exclusive upper bound, in bytes, of each range of value sizes except the last, which is unbounded.
+     */
+    private static final int[] SIZE_LIMITS = {64, 256, 1024, 4 * 1024, 16 * 1024, 64 * 1024};
+    private static final String[] SIZE_LABELS = {"<64B", "<256B", "<1KB", "<4KB", "<16KB", "<64KB", ">=64KB"};
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PERCENTILE_LABELS = {"p50", "p90", "p99", "p99.9"};
+
+    /**
+     * The histograms of a single thread.
+     */
+    static final class Recorder {
+        private final LatencyHistogram all = new LatencyHistogram();
+        private final LatencyHistogram[] bySize = new LatencyHistogram[SIZE_LABELS.length];
+
+        private Recorder() {
+            for (int i = 0; i < bySize.length; i++) {
+                bySize[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * Records the latency of a single value.
+         * @param nanos the latency, in nanoseconds.
+         */
+        void record(long nanos) {
+            all.record(nanos);
+        }
+
+        /**
+         * Records the latency of a single value, including it in the statistics for the range of sizes that includes
+         * the value's size.
+         * @param nanos the latency, in nanoseconds.
+         * @param sizeInBytes the size of the value, or {@link #UNKNOWN_SIZE}.
+         */
+        void record(long nanos, int sizeInBytes) {
+            all.record(nanos);
+            if (sizeInBytes >= 0) {
+                int sizeIndex = 0;
+                while (sizeIndex < SIZE_LIMITS.length && sizeInBytes >= SIZE_LIMITS[sizeIndex]) {
+                    sizeIndex++;
+                }
+                bySize[sizeIndex].record(nanos);
+            }
+        }
+
+        private void reset() {
+            all.reset();
+            for (LatencyHistogram histogram : bySize) {
+                histogram.reset();
+            }
+        }
+    }
+
+    /**
+     * A percentile of a latency distribution. JMH aggregates the results of all threads, iterations, and forks with the
+     * same label; these results are aggregated by merging their histograms, because the mean of the percentiles of
+     * several distributions is not a percentile of the combined distribution.
+     */
+    static final class PercentileResult extends Result<PercentileResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double fraction;
+        private final LatencyHistogram histogram;
+
+        /**
+         * @param label the label of the result.
+         * @param fraction the fraction of values, between 0 and 1.
+         * @param histogram the histogram, which must not be modified afterward.
+         */
+        PercentileResult(String label, double fraction, LatencyHistogram histogram) {
+            super(ResultRole.SECONDARY, label, of(histogram.percentile(fraction) / 1e3), "us", AggregationPolicy.AVG);
+            this.fraction = fraction;
+            this.histogram = histogram;
+        }
+
+        private static PercentileResult merge(Collection<PercentileResult> results) {
+            LatencyHistogram merged = new LatencyHistogram();
+            String label = null;
+            double fraction = 0;
+            for (PercentileResult result : results) {
+                merged.add(result.histogram);
+                label = result.label;
+                fraction = result.fraction;
+            }
+            return new PercentileResult(label, fraction, merged);
+        }
+
+        @Override
+        protected Aggregator<PercentileResult> getThreadAggregator() {
+            return PercentileResult::merge;
+        }
+
+        @Override
+        protected Aggregator<PercentileResult> getIterationAggregator() {
+            return PercentileResult::merge;
+        }
+    }
+
+    // The recorders of all threads that have recorded values. Threads register once, on first use.
+    private static final Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Recorder> threadRecorder = ThreadLocal.withInitial(() -> {
+        Recorder recorder = new Recorder();
+        recorders.add(recorder);
+        return recorder;
+    });
+
+    /**
+     * @return the calling thread's Recorder. Callers that record many values should retrieve it once and reuse it.
+     */
+    static Recorder recorder() {
+        return threadRecorder.get();
+    }
+
+    /**
+     * Merges the given histogram from every thread's Recorder.
+     * @param histogramIndex the index of the size range, or -1 for all values.
+     * @return a new histogram.
+     */
+    private static LatencyHistogram merge(int histogramIndex) {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (Recorder recorder : recorders) {
+            merged.add(histogramIndex < 0 ? recorder.all : recorder.bySize[histogramIndex]);
+        }
+        return merged;
+    }
+
+    /**
+     * Adds the latency statistics of the given histogram to the given results.
+     * @param histogram the histogram.
+     * @param suffix the suffix of the name of each result.
+     * @param results the results.
+     */
+    private static void addLatencyResults(LatencyHistogram histogram, String suffix, Collection<Result> results) {
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            results.add(new PercentileResult("Value latency " + PERCENTILE_LABELS[i] + suffix, PERCENTILES[i], histogram));
+        }
+        results.add(new ScalarResult("Value latency max" + suffix, histogram.max() / 1e3, "us", AggregationPolicy.MAX));
+    }
+
+    @Override
+    public String getDescription() {
+        return "Value latency profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        for (Recorder recorder : recorders) {
+            recorder.reset();
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult iterationResult
+    ) {
+        Collection<Result> results = new ArrayList<>();
+        LatencyHistogram all = merge(-1);
+        long operations = iterationResult.getMetadata().getAllOps();
+        if (all.count() > 0 && operations > 0) {
+            results.add(new ScalarResult("Timed values", (double) all.count() / operations, "#/op", AggregationPolicy.AVG));
+            addLatencyResults(all, "", results);
+            for (int i = 0; i < SIZE_LABELS.length; i++) {
+                LatencyHistogram bySize = merge(i);
+                if (bySize.count() > 0) {
+                    addLatencyResults(bySize, " [" + SIZE_LABELS[i] + "]", results);
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,141 @@
+package com.amazon.ion.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A TCP server on the loopback interface that runs inside the benchmark process. For read benchmarks, it serves the
+ * same data to every connection; for write benchmarks, it drains and discards everything sent by each connection.
+ * Each connection is handled by its own thread, so any number of benchmark threads may be connected at once.
+ */
+class LoopbackServer implements Closeable {
+
+    /**
+     * The size of the buffer used to drain each connection.
+     */
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Handles a single accepted connection.
+     */
+    @FunctionalInterface
+    private interface ConnectionHandler {
+        void handle(Socket socket) throws IOException;
+    }
+
+    private final ServerSocket serverSocket;
+    private final Integer socketBufferSize;
+    private final ExecutorService connectionThreads;
+
+    /**
+     * @param socketBufferSize the send and receive buffer size for both ends of each connection, or null to use the
+     *                         operating system's default.
+     * @param handler the handler for each accepted connection.
+     * @throws IOException if thrown when binding the server socket.
+     */
+    private LoopbackServer(Integer socketBufferSize, ConnectionHandler handler) throws IOException {
+        this.socketBufferSize = socketBufferSize;
+        serverSocket = new ServerSocket();
+        if (socketBufferSize != null) {
+            // Must be set before binding in order to take effect for sizes larger than 64 KB.
+            serverSocket.setReceiveBufferSize(socketBufferSize);
+        }
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        connectionThreads = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "loopback-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        connectionThreads.execute(() -> {
+            while (!serverSocket.isClosed()) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    // The server socket was closed.
+                    break;
+                }
+                connectionThreads.execute(() -> {
+                    try (Socket connection = socket) {
+                        configure(connection);
+                        handler.handle(connection);
+                    } catch (SocketException e) {
+                        // The client closed the connection early (e.g. due to --limit) or the server was closed.
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @param data the data to send to every connection, after which the connection is closed.
+     * @param socketBufferSize the send and receive buffer size for both ends of each connection, or null to use the
+     *                         operating system's default.
+     * @return a new server.
+     * @throws IOException if thrown when binding the server socket.
+     */
+    static LoopbackServer serving(byte[] data, Integer socketBufferSize) throws IOException {
+        return new LoopbackServer(socketBufferSize, socket -> {
+            OutputStream out = socket.getOutputStream();
+            out.write(data);
+            out.flush();
+        });
+    }
+
+    /**
+     * @param socketBufferSize the send and receive buffer size for both ends of each connection, or null to use the
+     *                         operating system's default.
+     * @return a new server that reads and discards all data sent by each connection until it is closed by the client.
+     * @throws IOException if thrown when binding the server socket.
+     */
+    static LoopbackServer draining(Integer socketBufferSize) throws IOException {
+        return new LoopbackServer(socketBufferSize, socket -> {
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            while (in.read(buffer) >= 0) {
+                // Discard.
+            }
+        });
+    }
+
+    /**
+     * Applies the configured buffer sizes to one end of a connection.
+     * @param socket the socket.
+     * @throws SocketException if thrown when configuring the socket.
+     */
+    private void configure(Socket socket) throws SocketException {
+        if (socketBufferSize != null) {
+            socket.setReceiveBufferSize(socketBufferSize);
+            socket.setSendBufferSize(socketBufferSize);
+        }
+    }
+
+    /**
+     * Opens a new connection to this server.
+     * @return the client end of the connection. Closing it (or either of its streams) closes the connection.
+     * @throws IOException if thrown when connecting.
+     */
+    Socket connect() throws IOException {
+        Socket socket = new Socket();
+        configure(socket);
+        socket.connect(serverSocket.getLocalSocketAddress());
+        return socket;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connectionThreads.shutdownNow();
+    }
+}
@@ -25,22 +25,33 @@ public class Main {
     private static final String USAGE =
         "Usage:\n"
 
-        + "  ion-java-benchmark write [--profile] [--limit <int>] [--mode <mode>] [--time-unit <unit>] "
-            + "[--warmups <int>] [--iterations <int>] [--forks <int>] [--results-format <type>] "
-            + "[--results-file <file>] [--io-type <type>]... [--io-buffer-size <int>]... [--format <type>]... "
+        + "  ion-java-benchmark write [--profile] [--target-rate <int>]... [--rate-stage-duration <int>] "
+            + "[--latency-slo <int>] [--limit <int>] [--conversion-cache <scope>] "
+            + "[--conversion-cache-size <int>] [--mode <mode>] [--time-unit <unit>] [--warmups <int>] "
+            + "[--iterations <int>] [--forks <int>] [--results-format <type>] [--results-file <file>] [--diagnostics] "
+            + "[--io-type <type>]... [--io-buffer-size <int>]... [--format <type>]... "
             + "[--api <api>]... [--ion-imports-for-input <file>] [--ion-imports-for-benchmark <file>]... "
             + "[--ion-flush-period <int>]... [--ion-length-preallocation <int>]... [--ion-float-width <int>]... "
             + "[--ion-use-symbol-tokens <bool>]... [--ion-writer-block-size <int>]... [--auto-flush <bool>]..."
-            + "[--json-use-big-decimals <bool>]... <input_file>\n"
-
-        + "  ion-java-benchmark read [--profile] [--limit <int>] [--mode <mode>] [--time-unit <unit>] "
-            + "[--warmups <int>] [--iterations <int>] [--forks <int>] [--results-format <type>] "
-            + "[--results-file <file>] [--io-type <type>]... [--io-buffer-size <int>]... [--format <type>]... "
+            + "[--json-use-big-decimals <bool>]... [--threads <int>]... [--output-buffer <type>]... "
+            + "[--output-buffer-chunk-size <int>]... [--io-sync <type>]... [--socket-buffer-size <int>]... "
+            + "[--write-instructions-off-heap <bool>]... [--write-segment-size <int>]... "
+            + "[--write-segment-writer <type>]... [--pipeline-chunk-size <int>]... [--pipeline-queue-depth <int>]... "
+            + "[--value-latency <mode>]... [--allocation-phases <bool>]... <input_file>\n"
+
+        + "  ion-java-benchmark read [--profile] [--target-rate <int>]... [--rate-stage-duration <int>] "
+            + "[--latency-slo <int>] [--limit <int>] [--conversion-cache <scope>] "
+            + "[--conversion-cache-size <int>] [--mode <mode>] [--time-unit <unit>] [--warmups <int>] "
+            + "[--iterations <int>] [--forks <int>] [--results-format <type>] [--results-file <file>] [--diagnostics] "
+            + "[--io-type <type>]... [--io-buffer-size <int>]... [--format <type>]... "
             + "[--api <api>]... [--ion-imports-for-input <file>] [--ion-imports-for-benchmark <file>]... "
             + "[--ion-flush-period <int>]... [--ion-length-preallocation <int>]... [--ion-float-width <int>]... "
             + "[--ion-use-symbol-tokens <bool>]... [--paths <file>] [--ion-reader <type>]... "
             + "[--ion-use-lob-chunks <bool>]... [--ion-use-big-decimals <bool>]... [--ion-reader-buffer-size <int>]... "
-            + "[--json-use-big-decimals <bool>]... <input_file>\n"
+            + "[--json-use-big-decimals <bool>]... [--threads <int>]... [--io-read-size <int>]... "
+            + "[--json-use-non-blocking-parser <bool>]... [--socket-buffer-size <int>]... [--partitions <int>]... "
+            + "[--messages <bool>]... [--value-latency <mode>]... [--allocation-phases <bool>]... "
+            + "[--retained-size <bool>]... <input_file>\n"
 
         + "  ion-java-benchmark run-suite (--test-ion-data <file_path>) (--benchmark-options-combinations <file_path>) <output_file>\n"
 
@@ -55,8 +66,11 @@ public class Main {
 
         + "  write    Benchmark writing the given input file to the given output format(s). In order to isolate "
             + "writing from reading, during the setup phase write instructions are generated from the input file "
-            + "and stored in memory. For large inputs, this can consume a lot of resources and take a long time "
-            + "to execute. This may be reduced by using the --limit option to limit the number of entries that "
+            + "and stored in memory as a compact sequence of opcodes and operands, with repeated strings stored "
+            + "once. For large inputs, this can still consume a lot of resources and take a long time to execute. "
+            + "This may be reduced by using the --write-instructions-off-heap option to store the instructions "
+            + "outside of the Java heap, by using the --write-segment-size option to generate and write the input "
+            + "one segment at a time, or by using the --limit option to limit the number of entries that "
             + "are written. The cost of initializing the writer is included in each timed benchmark invocation. "
             + "Therefore, it is important to provide data that closely matches the size of the data written by a "
             + "single writer instance in the real world to ensure the initialization cost is properly amortized.\n"
@@ -69,7 +83,8 @@ public class Main {
             + "--ion-flush-period for input in the ion binary format. The cost of initializing the reader or "
             + "DOM loader is included in each timed benchmark invocation. Therefore, it is important to provide "
             + "data that closely matches the size of data read by a single reader/loader instance in the real "
-            + "world to ensure the initialization cost is properly amortized.\n"
+            + "world to ensure the initialization cost is properly amortized, or use the --messages option to "
+            + "measure the initialization cost of many small, independent streams directly.\n"
 
         + "\n";
 
@@ -89,9 +104,41 @@ public class Main {
             + "--iterations, and --forks options are ignored. An error will be raised if this option is used when "
             + "multiple values are specified for other options. Not enabled by default.\n"
 
+        + "  --target-rate <int>                    With --profile, drive the benchmark open-loop at the given rate "
+            + "in operations per second instead of repeating it in a tight loop. Operations are scheduled at fixed "
+            + "intervals regardless of how long each one takes, and latency is measured from each operation's "
+            + "scheduled start time, so queueing delays are included rather than hidden by a slower offered load. "
+            + "May be specified multiple times to ramp the load: each rate is applied, in increasing order, for "
+            + "--rate-stage-duration seconds, and the achieved rate and latency percentiles of each stage are "
+            + "printed. The first stage also warms up the JVM, so consider starting with a low rate. Operations "
+            + "that had not started by the end of a stage are reported as missed. Only valid with --profile.\n"
+
+        + "  --rate-stage-duration <int>            The number of seconds for which each --target-rate is applied. "
+            + "[default: 10]\n"
+
+        + "  --latency-slo <int>                    The latency service level objective, in microseconds, for "
+            + "--target-rate stages. A stage sustains its rate if its p99 latency is within the objective. Once a "
+            + "stage does not, higher rates are not attempted, and the highest sustained rate is printed. By "
+            + "default, there is no objective and all stages are run.\n"
+
         + "  -n --limit <int>                       Maximum number of entries to process. By default, all entries in "
             + "each input file are processed.\n"
 
+        + "  --conversion-cache <scope>             How input data converted to match each options combination (e.g. "
+            + "to a different format, or truncated to --limit) is reused, from the set (none | run | persistent). "
+            + "Converted data is keyed by the content of the input file and the options that affect its encoding, so "
+            + "combinations that differ only in how the data is read or written share a single conversion. none "
+            + "converts the input again for each combination and deletes the result when the combination completes. "
+            + "run shares conversions across all combinations and forks, deleting them when the benchmark completes. "
+            + "persistent also retains conversions in the java.io.tmpdir/ion-java-benchmark-cache directory for "
+            + "reuse by subsequent benchmark runs. With run or persistent, all distinct conversions required by the "
+            + "options combinations are performed in parallel, using one thread per available processor, before the "
+            + "first trial begins. By default, run.\n"
+
+        + "  --conversion-cache-size <int>          The maximum total size in bytes of the converted data retained by "
+            + "--conversion-cache run or persistent. When exceeded, the least-recently-used conversions that are not "
+            + "in use are deleted. By default, 2147483648 (2 GiB).\n"
+
         + "  -m --mode <mode>                       The JMH benchmark mode to use, from the set (SingleShotTime | "
             + "SampleTime | AverageTime | Throughput). SingleShotTime, in which each benchmark iteration writes "
             + "or reads the data exactly once, is usually sufficient for medium and large streams. SampleTime, "
@@ -117,19 +164,42 @@ public class Main {
             + "written to stdout unless a results format other than jmh is specified, in which case the results "
             + "will be written to a file with the default name 'jmh-result'.\n"
 
-        + "  -t --io-type <type>                    The source or destination type, from the set (buffer | file). If "
-            + "buffer is selected, buffers the input data in memory before reading and writes the output data to "
-            + "an in-memory buffer instead of a file. To limit the amount of memory required, use --limit. May be "
-            + "specified multiple times to compare both settings."
-            + "[default: file]\n"
+        + "  --diagnostics                          Also report measurements that are not tied to any other option: "
+            + "the peak usage of each heap memory pool, the CPU time of the benchmark threads relative to wall "
+            + "time, and the I/O syscalls made by the benchmark process. Not enabled by default.\n"
+
+        + "  -t --io-type <type>                    The source or destination type, from the set (buffer | file | "
+            + "mmap | off_heap | discard | socket | pipeline). If buffer is selected, buffers the input data in memory before reading "
+            + "and writes the output data to an in-memory buffer instead of a file. To limit the amount of memory "
+            + "required, use --limit. If mmap is selected, memory-maps the input file before reading and reads "
+            + "directly from the mapped memory through an InputStream view. If off_heap is selected, copies the input "
+            + "data into direct ByteBuffers outside of the Java heap before reading, which supports inputs larger "
+            + "than 2 GB and keeps the input data out of the heap usage and GC measurements; the JVM's limit on "
+            + "direct memory (-XX:MaxDirectMemorySize) may need to be raised for large inputs. mmap and off_heap are "
+            + "only supported for read benchmarks. If discard is selected, the output data is counted and then discarded, which "
+            + "measures the cost of encoding without the cost of growing a buffer or writing to a file; discard is "
+            + "only supported for write benchmarks. If socket is selected, a server thread inside the benchmark "
+            + "process sends the input data (for read benchmarks) or drains the output data (for write benchmarks) "
+            + "over a new TCP connection on the loopback interface for each invocation; the cost of establishing the "
+            + "connection is included in the measurement. If pipeline is selected, the output data is handed in "
+            + "chunks over a bounded ring to a reader on a separate thread, which fully reads the data as it "
+            + "arrives; each invocation completes when the reader reaches the end of the data, so the measurement is "
+            + "the end-to-end time to write and read the data, and the latency of each handoff is reported. pipeline "
+            + "is only supported for write benchmarks. May be specified multiple times to compare "
+            + "different settings. [default: file]\n"
 
         + "  -z --io-buffer-size <int>              The size in bytes of the internal buffer of the "
-            + "BufferedInputStream that wraps the input file (for read benchmarks) or BufferedOutputStream / "
-            + "ByteArrayOutputStream that wraps the output file or buffer (for write benchmarks), or 'auto', which "
-            + "uses the stream's default buffer size. Ignored for read benchmarks when --io-type buffer is used "
-            + "because this mode reads the entire input directly from a properly-sized buffer. May be specified "
+            + "BufferedInputStream that wraps the input file or socket (for read benchmarks) or BufferedOutputStream / "
+            + "ByteArrayOutputStream that wraps the output file, socket, or buffer (for write benchmarks), or 'auto', "
+            + "which uses the stream's default buffer size. Ignored for read benchmarks when --io-type buffer, mmap, "
+            + "or off_heap is used because these modes read the entire input directly from memory. May be specified "
             + "multiple times to compare different settings. [default: auto]\n"
 
+        + "  --socket-buffer-size <int>             The size in bytes of the send and receive buffers (SO_SNDBUF and "
+            + "SO_RCVBUF) of both ends of each connection, or 'auto', which uses the operating system's defaults. The "
+            + "operating system may adjust the requested size. Ignored unless --io-type socket is used. May be "
+            + "specified multiple times to compare different settings. [default: auto]\n"
+
         + "  -f --format <type>                     Format to benchmark, from the set (ion_binary | ion_text | json | "
             + "cbor). May be specified multiple times to compare different formats. [default: ion_binary]\n"
 
@@ -161,7 +231,8 @@ public class Main {
 
         + "  -d --ion-flush-period <int>            The number of top-level values to write between flushes, or "
             + "'auto'. Each flush initiates a new local symbol table append. Ignored unless one of the specified "
-            + "formats is ion-binary. May be specified multiple times to compare multiple settings. The 'auto' setting "
+            + "formats is ion-binary. For write benchmarks, json and cbor writers are also flushed after every N "
+            + "top-level values. May be specified multiple times to compare multiple settings. The 'auto' setting "
             + "behaves as follows: for read benchmarks, if the other settings make it possible to use the input "
             + "data as-is, the input will not be re-encoded. If other settings require the input to be re-encoded, "
             + "then flushes will occur at every symbol table encountered in the input, preserving the existing "
@@ -193,6 +264,35 @@ public class Main {
             + "BigDecimal in order to preserve precision. When false, `double` will be used and precision may be lost. "
             + "May be specified twice to compare both settings. [default: true]\n"
 
+        + "  --threads <int>                        The number of threads that concurrently execute the benchmark. "
+            + "For read benchmarks, each thread reads the same data using its own reader instance. For write "
+            + "benchmarks, each thread writes the same data to its own output using its own writer instance; for "
+            + "binary Ion, all writers share the same pool of blocks. Scores are aggregated across all threads. "
+            + "When greater than 1, or when specified multiple times, a summary of the aggregate throughput, the "
+            + "minimum and maximum throughput of any single thread, the allocation rate, and the speedup and "
+            + "scaling efficiency relative to the smallest thread count is printed after all benchmarks complete. "
+            + "Ignored when --profile is used. [default: 1]\n"
+
+        + "  --value-latency <mode>                 Whether to time each top-level value individually, from the set "
+            + "(none | all | by_size). JMH samples whole invocations, which hides the latency of the individual values "
+            + "(or, with read --messages, messages) within them. With 'all', each thread records the latency of every "
+            + "value it reads or writes into its own preallocated log-linear histogram, and the p50, p90, p99, "
+            + "p99.9, and maximum latency across all threads are reported after each iteration. 'by_size' "
+            + "additionally reports the same statistics for each range of value sizes where the size of each value "
+            + "is known, which is currently only read --messages. A written value's latency includes any flush that "
+            + "follows it due to --ion-flush-period, but not the final flush of the stream. Timing each value adds "
+            + "two clock reads per value to the measured invocation. Ignored unless --api streaming is used without "
+            + "--paths. May be specified multiple times to compare different settings. [default: none]\n"
+
+        + "  --allocation-phases <bool>             When true, report the bytes allocated per operation by each phase "
+            + "of the benchmarked work: constructing the reader or writer, traversing (reading or writing) the data, "
+            + "and closing the reader or writer. Unlike JMH's gc.alloc.rate.norm, this excludes allocations made by "
+            + "the benchmark harness, such as creating the input or output stream of each invocation. Allocations "
+            + "are counted exactly by sampling the benchmark thread's allocated bytes at each phase boundary, so "
+            + "allocations made on other threads (e.g. by the reader of --io-type pipeline) are not included. "
+            + "Ignored when --paths, --partitions, or read --messages is used. May be specified twice to compare "
+            + "both settings. [default: false]\n"
+
         // 'write' options:
 
         + "  -b --ion-writer-block-size <int>       The size in bytes of the blocks the binary IonWriter uses to "
@@ -204,6 +304,61 @@ public class Main {
             + "automatically when the size of the value exceeds the writer's block size. This option may be specified multiple times to compare different values."
             + "[default: false]\n"
 
+        + "  --output-buffer <type>                 How the in-memory output buffer is provided to each benchmark "
+            + "invocation, from the set (new | reused | pooled). new allocates a new ByteArrayOutputStream for each "
+            + "invocation. reused resets and reuses the same ByteArrayOutputStream across invocations, so once it "
+            + "has grown to fit the output, writing does not allocate a buffer. pooled resets and reuses the same "
+            + "chain of fixed-size chunks across invocations, adding chunks to the chain rather than copying the "
+            + "output into a larger array as it grows. When --threads is used, each thread has its own buffer. "
+            + "Ignored unless --io-type buffer is used. May be specified multiple times to compare different "
+            + "settings. [default: new]\n"
+
+        + "  --output-buffer-chunk-size <int>       The size in bytes of each chunk in the chain used by "
+            + "--output-buffer pooled, or 'auto', which uses 8192. Ignored unless --output-buffer pooled is used. "
+            + "May be specified multiple times to compare different settings. [default: auto]\n"
+
+        + "  --io-sync <type>                       When written data is forced to the storage device using "
+            + "FileChannel.force, from the set (none | flush | close). none never forces the data, so it may remain "
+            + "in the operating system's cache when writing completes. flush forces the data each time the writer "
+            + "is flushed (see --ion-flush-period) and when it is closed. close forces the data only when the writer "
+            + "is closed. The number of syncs and the time spent in them per operation are reported as secondary "
+            + "results. Ignored unless --io-type file is used. May be specified multiple times to compare different "
+            + "settings. [default: none]\n"
+
+        + "  --write-instructions-off-heap <bool>   Whether to store the write instructions generated from the input "
+            + "data in direct memory outside of the Java heap (true or false), which keeps them out of the heap usage "
+            + "and garbage collection measurements. Values that cannot be represented as primitives (e.g. strings and "
+            + "decimals) remain on the heap. The JVM's limit on direct memory (-XX:MaxDirectMemorySize) may need to be "
+            + "raised for large inputs. May be specified multiple times to compare different settings. "
+            + "[default: false]\n"
+
+        + "  --write-segment-size <int>             The number of top-level values in each segment of the input, or "
+            + "'auto'. When specified, the write instructions for only one segment are held in memory at a time, so "
+            + "inputs larger than the heap may be written. Each segment's instructions are generated before the "
+            + "benchmark invocation that writes them, and each invocation writes the next segment, starting over from "
+            + "the beginning of the input (or of the first --limit values) when the input is exhausted. Therefore, "
+            + "each reported operation is the write of one segment; multiply throughput by the segment size to get "
+            + "values per unit of time. In SingleShotTime mode, each iteration writes only one segment. Only applies "
+            + "to the streaming API, and may not be combined with --threads greater than 1. When 'auto', the input "
+            + "is not segmented. May be specified multiple times to compare different settings. [default: auto]\n"
+
+        + "  --write-segment-writer <type>          The writer used to write each segment when --write-segment-size "
+            + "is specified, from the set (fresh | continuing). 'fresh' writes each segment as a complete stream "
+            + "using a new writer, so the cost of initializing and closing the writer is included in each "
+            + "invocation. 'continuing' writes all segments in an iteration to the same output using one writer, "
+            + "which is flushed at the end of each segment and created and closed outside of the timed invocations. "
+            + "May be specified multiple times to compare different settings. [default: fresh]\n"
+
+        + "  --pipeline-chunk-size <int>            The size in bytes of each chunk handed from the writer to the "
+            + "reader, or 'auto', which uses 64 KB. A chunk is handed off when it is full or when the writer flushes. "
+            + "Ignored unless --io-type pipeline is used. May be specified multiple times to compare different "
+            + "settings. [default: auto]\n"
+
+        + "  --pipeline-queue-depth <int>           The number of chunks in the ring between the writer and the "
+            + "reader, or 'auto', which uses 16. When every chunk is waiting to be read, the writer waits for the "
+            + "reader. Ignored unless --io-type pipeline is used. May be specified multiple times to compare "
+            + "different settings. [default: auto]\n"
+
         // 'read' options:
 
         + "  -s --paths <file>                      A file containing a sequence of Ion s-expressions representing "
@@ -236,6 +391,42 @@ public class Main {
             + "top-level value in the Ion stream. Ignored unless --format ion_binary and --ion-reader incremental are "
             + "specified. May be specified multiple times to compare different settings.\n"
 
+        + "  --io-read-size <int>                   The maximum number of bytes returned by each read from the input "
+            + "stream, or 'auto', which does not limit reads. Limiting reads simulates data that arrives in pieces, "
+            + "e.g. over a socket, which the incremental IonReader is designed to handle. When specified with "
+            + "--io-type buffer, the in-memory buffer is read through an InputStream rather than provided directly "
+            + "to the reader. May be specified multiple times to compare different settings. [default: auto]\n"
+
+        + "  --json-use-non-blocking-parser <bool>  When true, read JSON using Jackson's non-blocking parser, feeding "
+            + "it the input in chunks of --io-read-size bytes (or 8192 bytes if --io-read-size is auto). When false, "
+            + "use Jackson's blocking parser. Ignored unless --format is json. Note: Jackson does not provide a "
+            + "non-blocking parser for CBOR. May be specified twice to compare both settings. [default: false]\n"
+
+        + "  --partitions <int>                     The number of partitions into which the top-level values of the "
+            + "input are split so that they can be decoded in parallel, or 'auto', which decodes all values "
+            + "sequentially with a single reader. During setup, an index of the offsets of the top-level values is "
+            + "built, and each partition is copied into its own stream prefixed by the symbol table context in effect "
+            + "at the partition's first value. Each invocation reads every partition with its own reader on a "
+            + "fork-join pool with one thread per partition. When specified alongside 'auto', a summary of the "
+            + "speedup versus sequential traversal is printed. Ignored unless --format ion_binary, --api streaming, "
+            + "and --io-type buffer are used without --paths or --io-read-size. May be specified multiple times to "
+            + "compare different settings. [default: auto]\n"
+
+        + "  --messages <bool>                      When true, split the top-level values of the input into "
+            + "independent messages, each a complete stream containing a single value, packed contiguously in one "
+            + "in-memory buffer and located using an offset table. Each invocation constructs a new reader (from a "
+            + "shared builder or factory) over each message in turn and fully traverses it. For Ion, each value is "
+            + "re-encoded into its own stream during setup so that it does not depend on any symbol table from the "
+            + "rest of the input. The time spent constructing readers and the time spent decoding are reported "
+            + "separately, per message, along with the number of messages read per second. Ignored unless --api "
+            + "streaming and --io-type buffer are used without --paths, --io-read-size, --partitions, or "
+            + "--json-use-non-blocking-parser. May be specified twice to compare both settings. [default: false]\n"
+
+        + "  --retained-size <bool>                 When true, materialize the entire input as a DOM once when each "
+            + "trial is set up, outside of any timed block, and report the heap memory that the DOM retains, in total "
+            + "and per byte of input data. Measuring requires several full garbage collections. Ignored unless --api "
+            + "dom is used without --paths. May be specified twice to compare both settings. [default: false]\n"
+
         // 'run-suite' options
 
         + "  -G --test-ion-data <file_path>      This option will specify the path of the directory which contains all test Ion data.\n"
@@ -282,6 +473,18 @@ public class Main {
 
         + "  ion-java-benchmark read --profile --paths paths.ion example.10n\n\n"
 
+        + "  Profile a full-traversal read of example.10n open-loop at 1000, 2000, 4000, and 8000 reads per second for "
+            + "30 seconds each, reporting the highest rate at which the p99 latency stays within 2 milliseconds.\n\n"
+
+        + "  ion-java-benchmark read --profile \\\n"
+        + "                          --target-rate 1000 \\\n"
+        + "                          --target-rate 2000 \\\n"
+        + "                          --target-rate 4000 \\\n"
+        + "                          --target-rate 8000 \\\n"
+        + "                          --rate-stage-duration 30 \\\n"
+        + "                          --latency-slo 2000 \\\n"
+        + "                          example.10n\n\n"
+
         + "  Benchmark a fully-buffered write of binary Ion data equivalent to example.10n both with and without "
             + "using shared symbol tables. The file tables.ion contains a sequence of Ion symbol tables.\n\n"
 
@@ -317,6 +520,70 @@ public class Main {
         + "  ion-java-benchmark write --format json \\\n"
         + "                           --format ion_binary \\\n"
         + "                           --api dom \\\n"
+        + "                           example.10n\n\n"
+
+        + "  Benchmark a full-traversal read of example.10n from an in-memory buffer using 1, 8, and 32 concurrent "
+            + "threads, reporting the throughput in operations per second and how it scales with the number of "
+            + "threads.\n\n"
+
+        + "  ion-java-benchmark read --io-type buffer \\\n"
+        + "                          --mode Throughput \\\n"
+        + "                          --time-unit seconds \\\n"
+        + "                          --threads 1 \\\n"
+        + "                          --threads 8 \\\n"
+        + "                          --threads 32 \\\n"
+        + "                          example.10n\n\n"
+
+        + "  Benchmark writing example.10n as binary Ion to in-memory buffers from 1 and 16 concurrent threads, each "
+            + "using its own writer that draws blocks from the shared pool, reporting the throughput of each thread, "
+            + "the aggregate throughput, and the allocation rate.\n\n"
+
+        + "  ion-java-benchmark write --io-type buffer \\\n"
+        + "                           --mode Throughput \\\n"
+        + "                           --threads 1 \\\n"
+        + "                           --threads 16 \\\n"
+        + "                           example.10n\n\n"
+
+        + "  Benchmark a full-traversal read of example.10n delivered over a loopback TCP connection, comparing "
+            + "socket buffer sizes of 8 KB and 256 KB with incremental reader buffer sizes of 4 KB and 64 KB.\n\n"
+
+        + "  ion-java-benchmark read --io-type socket \\\n"
+        + "                          --socket-buffer-size 8192 \\\n"
+        + "                          --socket-buffer-size 262144 \\\n"
+        + "                          --ion-reader-buffer-size 4096 \\\n"
+        + "                          --ion-reader-buffer-size 65536 \\\n"
+        + "                          example.10n\n\n"
+
+        + "  Benchmark a full-traversal read of example.10n from an in-memory buffer, both sequentially and split "
+            + "into 2, 4, and 8 partitions that are decoded in parallel, reporting the speedup of each.\n\n"
+
+        + "  ion-java-benchmark read --io-type buffer \\\n"
+        + "                          --partitions auto \\\n"
+        + "                          --partitions 2 \\\n"
+        + "                          --partitions 4 \\\n"
+        + "                          --partitions 8 \\\n"
+        + "                          example.10n\n\n"
+
+        + "  Benchmark reading each top-level value of example.10n as an independent message with its own reader, "
+            + "reporting the reader construction and decoding time per message.\n\n"
+
+        + "  ion-java-benchmark read --io-type buffer \\\n"
+        + "                          --messages true \\\n"
+        + "                          example.10n\n\n"
+
+        + "  Benchmark reading each top-level value of example.10n as an independent message, reporting the tail "
+            + "latency of individual messages for each range of message sizes.\n\n"
+
+        + "  ion-java-benchmark read --io-type buffer \\\n"
+        + "                          --messages true \\\n"
+        + "                          --value-latency by_size \\\n"
+        + "                          example.10n\n\n"
+
+        + "  Benchmark a fully-buffered write of binary Ion data equivalent to example.10n, reporting the bytes "
+            + "allocated per operation while constructing the writer, writing the data, and closing the writer.\n\n"
+
+        + "  ion-java-benchmark write --io-type buffer \\\n"
+        + "                           --allocation-phases true \\\n"
         + "                           example.10n\n\n";
 
 
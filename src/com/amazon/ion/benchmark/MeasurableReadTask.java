@@ -1,11 +1,19 @@
 package com.amazon.ion.benchmark;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
+
 /**
  * A MeasurableTask for read benchmarks.
  */
@@ -15,6 +23,18 @@ abstract class MeasurableReadTask implements MeasurableTask {
     File inputFile;
     final ReadOptionsCombination options;
     byte[] buffer = null;
+    // For the MMAP and OFF_HEAP IO types, the input data, in order.
+    ByteBuffer[] chunks = null;
+    // For the SOCKET IO type, the server that sends the input data over each connection.
+    LoopbackServer server = null;
+    // When --messages is specified, the top-level values of the input as independent messages.
+    MessageBuffer messages = null;
+
+    /**
+     * The maximum number of bytes held by a single mapped or direct ByteBuffer. Larger files are held in multiple
+     * chunks, which allows inputs that exceed the 2 GB limit of a single ByteBuffer or byte[].
+     */
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
 
     /**
      * @param inputPath path to the data to read.
@@ -42,7 +62,8 @@ abstract class MeasurableReadTask implements MeasurableTask {
     abstract void fullyTraverseFromBuffer(SideEffectConsumer consumer) throws IOException;
 
     /**
-     * Initialize the reader and perform a fully-materialized deep read of the data from a file. The "reader"
+     * Initialize the reader and perform a fully-materialized deep read of the data from a file or stream (see
+     * {@link #newInputStream()}). The "reader"
      * is defined as any context that is tied to a single stream. Context that is reused across arbitrarily-many streams
      * may be initialized outside of the timed block in {@link #setUpIteration()}.
      * @throws IOException if thrown during reading.
@@ -60,9 +81,10 @@ abstract class MeasurableReadTask implements MeasurableTask {
     abstract void traverseFromBuffer(List<String> paths, SideEffectConsumer consumer) throws IOException;
 
     /**
-     * Initialize the reader and perform a sparse read of the data from a file, only materializing the values at the
-     * specified paths. The "reader" is defined as any context that is tied to a single stream. Context that is reused
-     * across arbitrarily-many streams may be initialized outside of the timed block in {@link #setUpIteration()}.
+     * Initialize the reader and perform a sparse read of the data from a file or stream (see
+     * {@link #newInputStream()}), only materializing the values at the specified paths. The "reader" is defined as any
+     * context that is tied to a single stream. Context that is reused across arbitrarily-many streams may be
+     * initialized outside of the timed block in {@link #setUpIteration()}.
      * @param paths the paths of values to materialize.
      * @throws IOException if thrown during reading.
      */
@@ -77,52 +99,213 @@ abstract class MeasurableReadTask implements MeasurableTask {
     abstract void fullyReadDomFromBuffer(SideEffectConsumer consumer) throws IOException;
 
     /**
-     * Initialize the loader and perform a fully-materialized deep read of the data from a file into a DOM
-     * representation. The "loader" is defined as any context that is tied to a single stream. Context that is reused
-     * across arbitrarily-many streams may be initialized outside of the timed block in {@link #setUpIteration()}.
+     * Initialize the loader and perform a fully-materialized deep read of the data from a file or stream (see
+     * {@link #newInputStream()}) into a DOM representation. The "loader" is defined as any context that is tied to a
+     * single stream. Context that is reused across arbitrarily-many streams may be initialized outside of the timed
+     * block in {@link #setUpIteration()}.
      * @throws IOException if thrown during reading.
      */
     abstract void fullyReadDomFromFile(SideEffectConsumer consumer) throws IOException;
 
+    /**
+     * Splits the given data into independent messages, each a complete stream containing a single top-level value.
+     * @param data the input data.
+     * @return a new MessageBuffer.
+     * @throws IOException if thrown while reading or re-encoding the data.
+     */
+    abstract MessageBuffer splitIntoMessages(byte[] data) throws IOException;
+
+    /**
+     * Initialize a new reader over each message in {@link #messages} and perform a fully-materialized deep read of
+     * it, recording the time spent constructing the readers separately from the time spent decoding with
+     * {@link MessageProfiler}. Context that is reused across arbitrarily-many streams may be initialized outside of
+     * the timed block in {@link #setUpIteration()}.
+     * @throws IOException if thrown during reading.
+     */
+    abstract void fullyTraverseMessages(SideEffectConsumer consumer) throws IOException;
+
+    /**
+     * @return the calling thread's recorder for the latency of each message, or null if value latency is not measured.
+     */
+    final LatencyProfiler.Recorder valueLatencyRecorder() {
+        return options.valueLatency == ValueLatencyMode.NONE ? null : LatencyProfiler.recorder();
+    }
+
+    /**
+     * @param index the index of a message in {@link #messages}.
+     * @return the size under which to record the message's latency: its length if latencies are recorded by size;
+     *         otherwise, {@link LatencyProfiler#UNKNOWN_SIZE}.
+     */
+    final int messageSizeForLatency(int index) {
+        return options.valueLatency == ValueLatencyMode.BY_SIZE ? messages.length(index) : LatencyProfiler.UNKNOWN_SIZE;
+    }
+
+
+
+    /**
+     * Creates a new InputStream over the input data. For the MMAP and OFF_HEAP IO types, the stream reads directly
+     * from the mapped memory or direct buffers; for the BUFFER IO type, it reads from the in-memory buffer; for the
+     * SOCKET IO type, it is a buffered stream over a new connection to the loopback server; otherwise, it is a buffered
+     * stream over the file. If an IO read size is specified, the stream returns at most that many
+     * bytes from each read. Either way, the stream is independent of any other stream returned by this method, so it
+     * may be used concurrently with them.
+     * @return a new InputStream.
+     * @throws IOException if thrown when opening the file.
+     */
+    final InputStream newInputStream() throws IOException {
+        InputStream input;
+        if (chunks != null) {
+            input = new ByteBufferInputStream(chunks);
+        } else if (buffer != null) {
+            input = new ByteArrayInputStream(buffer);
+        } else if (server != null) {
+            input = options.newInputStream(server.connect());
+        } else {
+            input = options.newInputStream(inputFile);
+        }
+        if (options.ioReadSize != null) {
+            input = new TrickleInputStream(input, options.ioReadSize);
+        }
+        return input;
+    }
+
+    /**
+     * @param fileSize the size of a file in bytes.
+     * @return the number of chunks required to hold the file.
+     */
+    private static int numberOfChunks(long fileSize) {
+        return (int) Math.max(1, (fileSize + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+    }
+
+    /**
+     * Maps the given file into memory in read-only mode.
+     * @param file the file to map.
+     * @return the mapped chunks of the file, in order.
+     * @throws IOException if thrown while mapping the file.
+     */
+    private static ByteBuffer[] map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] chunks = new ByteBuffer[numberOfChunks(size)];
+            for (int i = 0; i < chunks.length; i++) {
+                long position = (long) i * MAX_CHUNK_SIZE;
+                // The mapping remains valid after the channel is closed.
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_CHUNK_SIZE, size - position));
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Copies the given file into direct ByteBuffers, which are allocated outside of the Java heap.
+     * @param file the file to copy.
+     * @return the direct chunks of the file, in order, each ready to be read from the beginning.
+     * @throws IOException if thrown while reading the file.
+     */
+    private static ByteBuffer[] copyOffHeap(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] chunks = new ByteBuffer[numberOfChunks(size)];
+            for (int i = 0; i < chunks.length; i++) {
+                long position = (long) i * MAX_CHUNK_SIZE;
+                ByteBuffer chunk = ByteBuffer.allocateDirect((int) Math.min(MAX_CHUNK_SIZE, size - position));
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk) < 0) {
+                        throw new EOFException("Unexpected end of file " + file);
+                    }
+                }
+                // Cast to Buffer so that the resulting bytecode is compatible with Java 8, where ByteBuffer does not
+                // override flip().
+                ((Buffer) chunk).flip();
+                chunks[i] = chunk;
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Initialize context that is reused by every read in the trial. Called by {@link #setUpTrial()} once the input data
+     * has been prepared.
+     * @throws IOException if thrown during setup.
+     */
+    void setUpReaders() throws IOException {
+        // Nothing to do by default.
+    }
+
     @Override
     public void setUpTrial() throws IOException {
         inputFile = options.convertFileIfNecessary(originalFile).toFile();
+        // Note: the input file will already have been truncated to the value limit, if necessary.
         if (options.ioType == IoType.BUFFER) {
-            // Note: the input file will already have been truncated to the value limit, if necessary.
             buffer = Files.readAllBytes(inputFile.toPath());
+            if (options.messages) {
+                messages = splitIntoMessages(buffer);
+            }
+        } else if (options.ioType == IoType.MMAP) {
+            chunks = map(inputFile);
+        } else if (options.ioType == IoType.OFF_HEAP) {
+            chunks = copyOffHeap(inputFile);
+        } else if (options.ioType == IoType.SOCKET) {
+            server = LoopbackServer.serving(Files.readAllBytes(inputFile.toPath()), options.socketBufferSize);
         }
         SerializedSizeProfiler.setSize(inputFile.length());
+        setUpReaders();
+        if (options.retainedSize) {
+            RetainedSizeProfiler.measure(
+                isFromBuffer() ? this::fullyReadDomFromBuffer : this::fullyReadDomFromFile,
+                inputFile.length()
+            );
+        } else {
+            RetainedSizeProfiler.clear();
+        }
     }
 
     @Override
     public void tearDownTrial() throws IOException {
         if (!inputFile.equals(originalFile.toFile())) {
-            // 'inputFile' is a temporary file that was converted form 'originalFile' for this specific options
-            // combination. Clean it up to avoid consuming this disk space throughout the rest of the trials.
-            Files.delete(inputFile.toPath());
+            // 'inputFile' was converted from 'originalFile' for this options combination. Depending on the conversion
+            // cache scope, it is either deleted or retained for other options combinations that encode it identically.
+            options.releaseConvertedFile(inputFile.toPath());
         }
         buffer = null;
+        chunks = null;
+        messages = null;
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+    }
+
+    /**
+     * @return true if the input is read directly from the in-memory buffer; otherwise, false.
+     */
+    private boolean isFromBuffer() {
+        // When the IO read size is limited, in-memory buffers are read through a stream that enforces the limit.
+        return buffer != null && options.ioReadSize == null;
     }
 
     @Override
     public final Task getTask() {
-        if (options.paths != null) {
-            if (buffer != null) {
-                return (consumer) -> traverseFromBuffer(options.paths, consumer);
+        boolean isFromBuffer = isFromBuffer();
+        if (messages != null) {
+            return (consumer, threadIndex) -> fullyTraverseMessages(consumer);
+        } else if (options.paths != null) {
+            if (isFromBuffer) {
+                return (consumer, threadIndex) -> traverseFromBuffer(options.paths, consumer);
             } else {
-                return (consumer) -> traverseFromFile(options.paths, consumer);
+                return (consumer, threadIndex) -> traverseFromFile(options.paths, consumer);
             }
         } else if (options.api == API.STREAMING) {
-            if (buffer != null) {
-                return this::fullyTraverseFromBuffer;
+            if (isFromBuffer) {
+                return (consumer, threadIndex) -> fullyTraverseFromBuffer(consumer);
             } else {
-                return this::fullyTraverseFromFile;
+                return (consumer, threadIndex) -> fullyTraverseFromFile(consumer);
             }
         } else if (options.api == API.DOM) {
-            if (buffer != null) {
-                return this::fullyReadDomFromBuffer;
+            if (isFromBuffer) {
+                return (consumer, threadIndex) -> fullyReadDomFromBuffer(consumer);
             } else {
-                return this::fullyReadDomFromFile;
+                return (consumer, threadIndex) -> fullyReadDomFromFile(consumer);
             }
         } else {
             throw new IllegalStateException("Illegal combination of options.");
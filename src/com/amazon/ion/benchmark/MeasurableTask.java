@@ -9,7 +9,24 @@ public interface MeasurableTask {
 
     @FunctionalInterface
     interface Task {
-        void run(SideEffectConsumer consumer) throws Exception;
+
+        /**
+         * Run the task once.
+         * @param consumer the consumer of the task's side effects, which belongs to the calling thread.
+         * @param threadIndex the index of the calling thread among the threads that run the task concurrently, from 0
+         *                    (inclusive) to the number of threads (exclusive).
+         * @throws Exception if thrown by the task.
+         */
+        void run(SideEffectConsumer consumer, int threadIndex) throws Exception;
+
+        /**
+         * Run the task once from the only thread that runs it.
+         * @param consumer the consumer of the task's side effects.
+         * @throws Exception if thrown by the task.
+         */
+        default void run(SideEffectConsumer consumer) throws Exception {
+            run(consumer, 0);
+        }
     }
 
     /**
@@ -36,8 +53,45 @@ public interface MeasurableTask {
      */
     void tearDownIteration() throws IOException;
 
+    /**
+     * Set up a single invocation of the task. This is only called for tasks that measure a different piece of work in
+     * each invocation (see {@link #isSegmented()}).
+     * @throws IOException if thrown during setup.
+     */
+    default void setUpInvocation() throws IOException {
+        // Nothing to do by default.
+    }
+
+    /**
+     * @return true if each invocation of the task measures the next segment of the input, which requires setup before
+     *         each invocation; otherwise, false.
+     */
+    default boolean isSegmented() {
+        return false;
+    }
+
     /**
      * @return the piece of code to benchmark.
      */
     Task getTask();
+
+    /**
+     * @param options the options of the calling task.
+     * @return the number of bytes allocated so far by the calling thread, which marks the start of the first phase of
+     *         an operation, or 0 if allocation is not measured by phase.
+     */
+    static long startAllocationPhases(OptionsCombinationBase options) {
+        return options.allocationPhases ? AllocationProfiler.allocatedBytes() : 0;
+    }
+
+    /**
+     * Records the bytes allocated by the calling thread during the given phase, if allocation is measured by phase.
+     * @param options the options of the calling task.
+     * @param phase the phase that just ended.
+     * @param start the start of the phase.
+     * @return the start of the next phase.
+     */
+    static long endAllocationPhase(OptionsCombinationBase options, AllocationProfiler.Phase phase, long start) {
+        return options.allocationPhases ? AllocationProfiler.record(phase, start) : 0;
+    }
 }
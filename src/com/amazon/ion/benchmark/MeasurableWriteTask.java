@@ -1,14 +1,20 @@
 package com.amazon.ion.benchmark;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Consumer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.amazon.ion.benchmark.MeasurableTask.endAllocationPhase;
+import static com.amazon.ion.benchmark.MeasurableTask.startAllocationPhases;
 
 /**
  * A MeasurableTask for write benchmarks.
@@ -16,7 +22,8 @@ import java.util.function.Consumer;
 abstract class MeasurableWriteTask<T> implements MeasurableTask {
 
     /**
-     * A single instruction to execute. The measurable task is composed of a sequence of instructions.
+     * A single instruction to execute, for instructions that are not represented by a task-specific opcode on the
+     * {@link WriteInstructionTape} (e.g. writing an entire DOM value).
      * @param <T> type of the context needed by the WriteInstruction. For IonJava, this is an IonWriter.
      */
     @FunctionalInterface
@@ -24,29 +31,68 @@ abstract class MeasurableWriteTask<T> implements MeasurableTask {
         void execute(T writer) throws IOException;
     }
 
-    private final List<WriteInstruction<T>> writeInstructions = new ArrayList<>();
+    /**
+     * Generates the write instructions for consecutive segments of the input, holding only the state needed to
+     * resume after the end of the most recent segment.
+     */
+    interface SegmentSource extends Closeable {
+
+        /**
+         * Generate the write instructions for the next segment of the input.
+         * @param tape the tape to which the generated instructions will be appended.
+         * @param maxValues the maximum number of top-level values in the segment.
+         * @param isContinuing true if the segment will be written by a writer that continues to be used for subsequent
+         *                     segments, in which case the segment ends with a flush rather than by finishing the stream.
+         * @return the number of top-level values in the segment, which is 0 if the input is exhausted.
+         * @throws IOException if thrown when generating write instructions.
+         */
+        int nextSegment(WriteInstructionTape tape, int maxValues, boolean isContinuing) throws IOException;
+    }
+
+    // The measurable task is composed of the sequence of instructions on this tape. When segmented, the tape holds
+    // only the current segment.
+    private final WriteInstructionTape writeInstructions;
     final File inputFile;
+    // True if 'inputFile' was converted from the original input to a format that can be parsed for this options
+    // combination.
+    private final boolean isInputConverted;
     final WriteOptionsCombination options;
-    File currentFile = null;
-    ByteArrayOutputStream currentBuffer = null;
-    SideEffectConsumer sideEffectConsumer = null;
+    // For reused and pooled output buffers, one buffer per thread that is retained across invocations.
+    private ByteArrayOutputStream[] reusableBuffers = null;
+    // For the SOCKET IO type, the server that drains the output of each connection.
+    private LoopbackServer server = null;
+    // For the PIPELINE IO type, one ring per thread and the threads that read from them.
+    private ChunkRing[] pipelines = null;
+    private ExecutorService pipelineReaders = null;
+    // One output per thread, indexed by the thread index passed to the task. Every thread writes the same data.
+    File[] currentFiles = null;
+    ByteArrayOutputStream[] currentBuffers = null;
+    CountingOutputStream[] currentSinks = null;
+    // When segmented, the source of the segments and the number of values it has produced since it was opened.
+    private SegmentSource segmentSource = null;
+    private int numberOfValuesFromSegmentSource = 0;
+    // When segmented with a continuing writer, the writer shared by all segments in the current iteration.
+    private T continuingWriter = null;
 
     /**
      * @param inputPath path to the data to write.
      * @param options options to use while writing.
      */
     MeasurableWriteTask(Path inputPath, WriteOptionsCombination options) throws IOException {
-        Format inputFormat = Format.classify(inputPath);
-        if (options.format.canParse(inputFormat)) {
-            this.inputFile = inputPath.toFile();
+        // Validate before converting the input so that an invalid combination does not leave a converted file in use.
+        if (options.ioType == IoType.PIPELINE) {
+            if (options.writeSegmentWriter == SegmentWriterType.CONTINUING && options.writeSegmentSize != null) {
+                throw new IllegalArgumentException("--io-type pipeline does not support --write-segment-writer continuing.");
+            }
+        }
+        if (options.mayRequireConversion(inputPath)) {
+            this.inputFile = options.convertFileIfNecessary(inputPath).toFile();
         } else {
-            this.inputFile = options.format.convert(
-                inputPath,
-                TemporaryFiles.newTempFile(inputPath.toFile().getName(), options.format.getSuffix()),
-                options
-            ).toFile();
+            this.inputFile = inputPath.toFile();
         }
+        this.isInputConverted = !inputFile.equals(inputPath.toFile());
         this.options = options;
+        this.writeInstructions = new WriteInstructionTape(options.writeInstructionsOffHeap);
         if (Format.classify(inputPath).isIon()
             && !IonUtilities.importsEqual(options.importsForInputFile, inputPath.toFile())) {
             throw new IllegalArgumentException(
@@ -57,20 +103,85 @@ abstract class MeasurableWriteTask<T> implements MeasurableTask {
     }
 
     /**
-     * Generate a sequence of WriteInstructions that re-write the input file with the configured options using a DOM
+     * Generate a sequence of write instructions that re-write the input file with the configured options using a DOM
      * API.
-     * @param instructionsSink the sink for the sequence of generated WriteInstructions.
-     * @throws IOException if thrown when generating WriteInstructions.
+     * @param tape the tape to which the generated instructions will be appended.
+     * @throws IOException if thrown when generating write instructions.
      */
-    abstract void generateWriteInstructionsDom(Consumer<WriteInstruction<T>> instructionsSink) throws IOException;
+    abstract void generateWriteInstructionsDom(WriteInstructionTape tape) throws IOException;
 
     /**
-     * Generate a sequence of WriteInstructions that re-write the input file with the configured options using a
+     * Generate a sequence of write instructions that re-write the input file with the configured options using a
      * streaming API.
-     * @param instructionsSink the sink for the sequence of generated WriteInstructions.
-     * @throws IOException if thrown when generating WriteInstructions.
+     * @param tape the tape to which the generated instructions will be appended.
+     * @throws IOException if thrown when generating write instructions.
      */
-    abstract void generateWriteInstructionsStreaming(Consumer<WriteInstruction<T>> instructionsSink) throws IOException;
+    abstract void generateWriteInstructionsStreaming(WriteInstructionTape tape) throws IOException;
+
+    /**
+     * Open a source of segments that re-write the input file with the configured options using a streaming API,
+     * starting with the first value in the input.
+     * @return a new SegmentSource.
+     * @throws IOException if thrown when opening the input.
+     */
+    abstract SegmentSource newSegmentSource() throws IOException;
+
+    /**
+     * Execute every remaining instruction on a tape generated by this task.
+     * @param cursor a cursor over the tape.
+     * @param writer the writer context with which to execute the instructions.
+     * @throws IOException if thrown while executing an instruction.
+     */
+    abstract void replay(WriteInstructionTape.Cursor cursor, T writer) throws IOException;
+
+    /**
+     * Marks the end of a top-level value on the given tape if the latency of each value is measured. Subclasses call
+     * this after appending the instructions for each top-level value, including any flush that follows it.
+     * @param tape the tape.
+     */
+    final void appendEndOfValue(WriteInstructionTape tape) {
+        if (options.valueLatency != ValueLatencyMode.NONE) {
+            tape.append(WriteInstructionTape.END_OF_VALUE);
+        }
+    }
+
+    /**
+     * @return the time at which replay of the first value on a tape starts, for use with
+     *         {@link #recordValueLatency(long)}, or 0 if the latency of each value is not measured.
+     */
+    final long startOfValues() {
+        return options.valueLatency == ValueLatencyMode.NONE ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records the latency of a top-level value whose {@link WriteInstructionTape#END_OF_VALUE} opcode was just
+     * replayed. The size of written values is not known, so latencies are never recorded by size.
+     * @param start the time at which replay of the value started.
+     * @return the current time, which is the start of the next value.
+     */
+    final long recordValueLatency(long start) {
+        long end = System.nanoTime();
+        LatencyProfiler.recorder().record(end - start);
+        return end;
+    }
+
+
+
+    /**
+     * Writes the data to a new writer context over the given OutputStream and closes it, recording the bytes allocated
+     * during each phase if allocation is measured by phase.
+     * @param outputStream the OutputStream to which the new writer will write.
+     * @throws IOException if thrown while constructing, writing, or closing the writer context.
+     */
+    private void writeAll(OutputStream outputStream) throws IOException {
+        long allocated = startAllocationPhases(options);
+        T writer = newWriter(outputStream);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.CONSTRUCTION, allocated);
+        replay(writeInstructions.cursor(), writer);
+        allocated = endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
+        closeWriter(writer);
+        endAllocationPhase(options, AllocationProfiler.Phase.CLOSE, allocated);
+    }
 
     /**
      * @return a new writer context instance.
@@ -86,71 +197,287 @@ abstract class MeasurableWriteTask<T> implements MeasurableTask {
      */
     abstract void closeWriter(T writer) throws IOException;
 
+    /**
+     * Fully read data written by this task, as the reader at the end of a pipeline (see {@link IoType#PIPELINE}).
+     * @param input the data, which arrives as it is written.
+     * @param consumer the SideEffectConsumer, which is owned by the reading thread.
+     * @return the number of top-level values read.
+     * @throws IOException if thrown while reading.
+     */
+    abstract long readPipelineOutput(InputStream input, SideEffectConsumer consumer) throws IOException;
+
+    @Override
+    public boolean isSegmented() {
+        return options.writeSegmentSize != null;
+    }
+
     @Override
     public void setUpTrial() throws IOException {
         writeInstructions.clear();
-        switch (options.api) {
-            case STREAMING:
-                generateWriteInstructionsStreaming(writeInstructions::add);
-                break;
-            case DOM:
-                generateWriteInstructionsDom(writeInstructions::add);
-                break;
+        if (isSegmented()) {
+            // Segments are generated before each invocation; see setUpInvocation().
+            segmentSource = newSegmentSource();
+            numberOfValuesFromSegmentSource = 0;
+        } else {
+            switch (options.api) {
+                case STREAMING:
+                    generateWriteInstructionsStreaming(writeInstructions);
+                    break;
+                case DOM:
+                    generateWriteInstructionsDom(writeInstructions);
+                    break;
+            }
+        }
+        if (options.ioType == IoType.BUFFER && options.outputBuffer != OutputBufferType.NEW) {
+            reusableBuffers = new ByteArrayOutputStream[options.threads];
+            for (int i = 0; i < reusableBuffers.length; i++) {
+                reusableBuffers[i] = options.newOutputBuffer();
+            }
+        }
+        if (options.ioType == IoType.SOCKET) {
+            server = LoopbackServer.draining(options.socketBufferSize);
+        }
+        if (options.ioType == IoType.PIPELINE) {
+            pipelines = new ChunkRing[options.threads];
+            for (int i = 0; i < pipelines.length; i++) {
+                pipelines[i] = new ChunkRing(options.pipelineQueueDepth, options.pipelineChunkSize);
+            }
+            pipelineReaders = Executors.newFixedThreadPool(options.threads, runnable -> {
+                Thread thread = new Thread(runnable, "pipeline-reader");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
     }
 
     @Override
-    public void tearDownTrial() {
+    public void tearDownTrial() throws IOException {
+        if (isInputConverted) {
+            options.releaseConvertedFile(inputFile.toPath());
+        }
         writeInstructions.clear();
+        if (segmentSource != null) {
+            segmentSource.close();
+            segmentSource = null;
+        }
+        reusableBuffers = null;
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+        if (pipelineReaders != null) {
+            pipelineReaders.shutdownNow();
+            pipelineReaders = null;
+            pipelines = null;
+        }
     }
 
     @Override
     public void setUpIteration() throws IOException {
         if (options.ioType == IoType.FILE) {
-            currentFile = TemporaryFiles.newTempFile(inputFile.getName(), options.format.getSuffix()).toFile();
+            currentFiles = new File[options.threads];
+            for (int i = 0; i < currentFiles.length; i++) {
+                currentFiles[i] = TemporaryFiles.newTempFile(inputFile.getName(), options.format.getSuffix()).toFile();
+            }
+        } else if (options.ioType == IoType.DISCARD || options.ioType == IoType.SOCKET || options.ioType == IoType.PIPELINE) {
+            // No preparation is needed for the sinks, which are allocated during each invocation.
+            currentSinks = new CountingOutputStream[options.threads];
+        } else {
+            // No preparation is needed for the buffers, which are allocated during each invocation.
+            currentBuffers = new ByteArrayOutputStream[options.threads];
+        }
+        if (isSegmented() && options.writeSegmentWriter == SegmentWriterType.CONTINUING) {
+            continuingWriter = newWriter(newContinuingOutput());
+        }
+    }
+
+    /**
+     * Creates the output for a writer that continues across all segments in an iteration. Segmented tasks are
+     * single-threaded, so this is the first (and only) output.
+     * @return a new OutputStream.
+     * @throws IOException if thrown when creating the OutputStream.
+     */
+    private OutputStream newContinuingOutput() throws IOException {
+        switch (options.ioType) {
+            case BUFFER:
+                ByteArrayOutputStream currentBuffer;
+                if (reusableBuffers != null) {
+                    currentBuffer = reusableBuffers[0];
+                    currentBuffer.reset();
+                } else {
+                    currentBuffer = options.newByteArrayOutputStream();
+                }
+                currentBuffers[0] = currentBuffer;
+                return currentBuffer;
+            case FILE:
+                return options.newBenchmarkOutputStream(currentFiles[0]);
+            case DISCARD:
+                currentSinks[0] = new CountingOutputStream(null);
+                return currentSinks[0];
+            case SOCKET:
+                currentSinks[0] = new CountingOutputStream(options.newOutputStream(server.connect()));
+                return currentSinks[0];
+            default:
+                throw new IllegalStateException("Write support missing for IO type " + options.ioType);
+        }
+    }
+
+    /**
+     * Generates the write instructions for the next segment of the input, replacing those of the previous segment.
+     * When the input (or the first --limit values of the input) is exhausted, the segments start over from the
+     * beginning of the input, so any number of invocations may be measured.
+     * @throws IOException if thrown when generating write instructions.
+     */
+    @Override
+    public void setUpInvocation() throws IOException {
+        writeInstructions.reset();
+        boolean isContinuing = options.writeSegmentWriter == SegmentWriterType.CONTINUING;
+        int maxValues = Math.min(options.writeSegmentSize, options.limit - numberOfValuesFromSegmentSource);
+        int numberOfValues = maxValues > 0 ? segmentSource.nextSegment(writeInstructions, maxValues, isContinuing) : 0;
+        if (numberOfValues == 0) {
+            segmentSource.close();
+            segmentSource = newSegmentSource();
+            numberOfValuesFromSegmentSource = 0;
+            writeInstructions.reset();
+            maxValues = Math.min(options.writeSegmentSize, options.limit);
+            numberOfValues = segmentSource.nextSegment(writeInstructions, maxValues, isContinuing);
+            if (numberOfValues == 0) {
+                throw new IllegalStateException("The input does not contain any values to write.");
+            }
         }
+        numberOfValuesFromSegmentSource += numberOfValues;
     }
 
     @Override
     public void tearDownIteration() throws IOException {
+        if (continuingWriter != null) {
+            closeWriter(continuingWriter);
+            continuingWriter = null;
+        }
         long serializedSize = 0;
-        if (currentFile != null) {
-            serializedSize = currentFile.length();
-            Files.delete(currentFile.toPath());
-            currentFile = null;
-        } else if (currentBuffer != null) {
-            serializedSize = currentBuffer.size();
-            currentBuffer = null;
-        }
-        sideEffectConsumer.consume(serializedSize);
+        // Every thread writes the same data, so the serialized size of the first output is representative.
+        if (currentFiles != null) {
+            serializedSize = currentFiles[0].length();
+            for (File currentFile : currentFiles) {
+                Files.delete(currentFile.toPath());
+            }
+            currentFiles = null;
+        } else if (currentBuffers != null) {
+            if (currentBuffers[0] != null) {
+                serializedSize = currentBuffers[0].size();
+            }
+            currentBuffers = null;
+        } else if (currentSinks != null) {
+            if (currentSinks[0] != null) {
+                serializedSize = currentSinks[0].getCount();
+            }
+            currentSinks = null;
+        }
         SerializedSizeProfiler.setSize(serializedSize);
     }
 
     @Override
     public final Task getTask() {
+        if (isSegmented() && options.writeSegmentWriter == SegmentWriterType.CONTINUING) {
+            // The writer is created before and closed after each iteration, so only the segment itself is measured.
+            return (consumer, threadIndex) -> {
+                long allocated = startAllocationPhases(options);
+                replay(writeInstructions.cursor(), continuingWriter);
+                endAllocationPhase(options, AllocationProfiler.Phase.TRAVERSAL, allocated);
+            };
+        }
         switch (options.ioType) {
             case BUFFER:
-                return (consumer) -> {
-                    sideEffectConsumer = consumer;
-                    currentBuffer = options.newByteArrayOutputStream();
-                    T writer = newWriter(currentBuffer);
-                    for (WriteInstruction<T> instruction : writeInstructions) {
-                        instruction.execute(writer);
-                    }
-                    closeWriter(writer);
+                if (reusableBuffers != null) {
+                    return (consumer, threadIndex) -> {
+                        ByteArrayOutputStream currentBuffer = reusableBuffers[threadIndex];
+                        currentBuffer.reset();
+                        currentBuffers[threadIndex] = currentBuffer;
+                        writeAll(currentBuffer);
+                        consumer.consume(currentBuffer.size());
+                    };
+                }
+                return (consumer, threadIndex) -> {
+                    ByteArrayOutputStream currentBuffer = options.newByteArrayOutputStream();
+                    currentBuffers[threadIndex] = currentBuffer;
+                    writeAll(currentBuffer);
                     consumer.consume(currentBuffer.size());
                 };
             case FILE:
-                return (consumer) -> {
-                    sideEffectConsumer = consumer;
-                    T writer = newWriter(options.newOutputStream(currentFile));
-                    for (WriteInstruction<T> instruction : writeInstructions) {
-                        instruction.execute(writer);
+                return (consumer, threadIndex) -> {
+                    OutputStream output = options.newBenchmarkOutputStream(currentFiles[threadIndex]);
+                    writeAll(output);
+                };
+            case DISCARD:
+                return (consumer, threadIndex) -> {
+                    CountingOutputStream currentSink = new CountingOutputStream(null);
+                    currentSinks[threadIndex] = currentSink;
+                    writeAll(currentSink);
+                    consumer.consume(currentSink.getCount());
+                };
+            case SOCKET:
+                return (consumer, threadIndex) -> {
+                    // The sink counts the bytes sent over the connection so that the serialized size can be reported.
+                    CountingOutputStream currentSink = new CountingOutputStream(options.newOutputStream(server.connect()));
+                    currentSinks[threadIndex] = currentSink;
+                    writeAll(currentSink);
+                };
+            case PIPELINE:
+                return (consumer, threadIndex) -> {
+                    ChunkRing pipeline = pipelines[threadIndex];
+                    // The reader must not use the consumer owned by this thread, so its result is folded in after it
+                    // completes.
+                    FoldingSideEffectConsumer readerConsumer = new FoldingSideEffectConsumer();
+                    Future<Long> numberOfValuesRead = pipelineReaders.submit(() -> {
+                        try (InputStream input = pipeline.newInputStream()) {
+                            return readPipelineOutput(input, readerConsumer);
+                        }
+                    });
+                    // The sink counts the bytes handed to the reader so that the serialized size can be reported.
+                    CountingOutputStream currentSink = new CountingOutputStream(pipeline.newOutputStream());
+                    currentSinks[threadIndex] = currentSink;
+                    try {
+                        writeAll(currentSink);
+                    } catch (IOException | RuntimeException e) {
+                        // Prevent the reader from waiting for data that will never arrive. If the reader failed first,
+                        // the writer only sees that the reader stopped, so attach the reader's failure.
+                        pipeline.abort();
+                        try {
+                            awaitPipelineReader(numberOfValuesRead);
+                        } catch (IOException | RuntimeException readerFailure) {
+                            e.addSuppressed(readerFailure);
+                        }
+                        throw e;
                     }
-                    closeWriter(writer);
+                    long numberOfValues = awaitPipelineReader(numberOfValuesRead);
+                    readerConsumer.foldInto(consumer);
+                    consumer.consume(numberOfValues);
                 };
             default:
                 throw new IllegalStateException("Write support missing for IO type " + options.ioType);
         }
     }
+
+    /**
+     * Waits for the reader at the end of a pipeline to reach the end of the data.
+     * @param numberOfValuesRead the result of the reader.
+     * @return the number of values read.
+     * @throws IOException if the reader failed or the calling thread was interrupted while waiting.
+     */
+    private static long awaitPipelineReader(Future<Long> numberOfValuesRead) throws IOException {
+        try {
+            return numberOfValuesRead.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the pipeline reader.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package com.amazon.ion.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Independent messages packed contiguously in a single byte array and located using an offset table. Each message is a
+ * complete stream that can be read without any context from the other messages.
+ */
+final class MessageBuffer {
+
+    final byte[] data;
+    // Message i occupies the bytes in [offsets[i], offsets[i + 1]).
+    private final int[] offsets;
+
+    private MessageBuffer(byte[] data, int[] offsets) {
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @return the number of messages.
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param index the index of a message.
+     * @return the offset of the first byte of the message.
+     */
+    int offset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @param index the index of a message.
+     * @return the number of bytes in the message.
+     */
+    int length(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * Builds a MessageBuffer by appending one message at a time.
+     */
+    static final class Builder {
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private int[] offsets = new int[64];
+        private int numberOfMessages = 0;
+
+        /**
+         * @return the stream to which the bytes of the current message are written.
+         */
+        OutputStream output() {
+            return data;
+        }
+
+        /**
+         * Ends the current message, which consists of all bytes written to {@link #output()} since the end of the
+         * previous message.
+         */
+        void endMessage() {
+            if (numberOfMessages + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[++numberOfMessages] = data.size();
+        }
+
+        /**
+         * Appends a message copied from the given bytes.
+         * @param bytes the bytes that contain the message.
+         * @param offset the offset of the first byte of the message.
+         * @param length the number of bytes in the message.
+         */
+        void addMessage(byte[] bytes, int offset, int length) {
+            data.write(bytes, offset, length);
+            endMessage();
+        }
+
+        /**
+         * @return a new MessageBuffer containing the messages added so far.
+         */
+        MessageBuffer build() {
+            return new MessageBuffer(data.toByteArray(), Arrays.copyOf(offsets, numberOfMessages + 1));
+        }
+    }
+}
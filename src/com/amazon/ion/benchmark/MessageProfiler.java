@@ -0,0 +1,70 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JMH Profiler plugin to measure read benchmarks that read each top-level value as an independent message (see
+ * --messages). Reports the number of messages per operation, the time spent constructing each message's reader
+ * separately from the time spent decoding each message, and the resulting number of messages read per second by each
+ * thread. Nothing is reported for iterations that did not read any messages.
+ */
+public class MessageProfiler implements InternalProfiler {
+
+    private static final LongAdder messageCount = new LongAdder();
+    private static final LongAdder constructionNanos = new LongAdder();
+    private static final LongAdder decodingNanos = new LongAdder();
+
+    /**
+     * Records the messages read by a single invocation. May be called concurrently by multiple benchmark threads.
+     * @param count the number of messages.
+     * @param construction the total time spent constructing the messages' readers, in nanoseconds.
+     * @param decoding the total time spent decoding the messages, in nanoseconds.
+     */
+    static void recordMessages(long count, long construction, long decoding) {
+        messageCount.add(count);
+        constructionNanos.add(construction);
+        decodingNanos.add(decoding);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Message profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        messageCount.reset();
+        constructionNanos.reset();
+        decodingNanos.reset();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult iterationResult
+    ) {
+        Collection<Result> results = new ArrayList<>();
+        long count = messageCount.sum();
+        long operations = iterationResult.getMetadata().getAllOps();
+        if (count > 0 && operations > 0) {
+            long construction = constructionNanos.sum();
+            long decoding = decodingNanos.sum();
+            results.add(new ScalarResult("Messages", (double) count / operations, "#/op", AggregationPolicy.AVG));
+            results.add(new ScalarResult("Reader construction", (double) construction / count, "ns/msg", AggregationPolicy.AVG));
+            results.add(new ScalarResult("Message decoding", (double) decoding / count, "ns/msg", AggregationPolicy.AVG));
+            results.add(new ScalarResult("Message rate", count * 1e9 / (construction + decoding), "msgs/sec", AggregationPolicy.AVG));
+        }
+        return results;
+    }
+}
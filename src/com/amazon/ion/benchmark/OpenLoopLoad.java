@@ -0,0 +1,216 @@
+package com.amazon.ion.benchmark;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a task open-loop for --profile: operations are scheduled at a fixed target rate regardless of how long each
+ * one takes, and each operation's latency is measured from the time it was scheduled to start rather than the time it
+ * actually started. When the task cannot keep up, the backlog therefore shows up in the measured latency instead of
+ * silently lowering the offered load (coordinated omission). The load is applied in stages of increasing target rate;
+ * each stage is one iteration of the task. Stages stop early once one exceeds the latency service level objective
+ * (SLO), if any, and the highest target rate sustained within the SLO is reported.
+ */
+final class OpenLoopLoad {
+
+    /**
+     * When more than this many nanoseconds remain until the next scheduled operation, the thread parks rather than
+     * spins.
+     */
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * The percentile of latency that must be within the SLO for a stage to be sustained.
+     */
+    static final double SLO_PERCENTILE = 0.99;
+
+    /**
+     * The outcome of a single stage.
+     */
+    static final class Stage {
+        final long targetRate;
+        // The number of operations scheduled to start during the stage that completed.
+        final long completed;
+        // The number of operations scheduled to start during the stage that had not started by the end of it. Each is
+        // recorded with the latency it had accumulated by the end of the stage, which is a lower bound.
+        final long missed;
+        final double achievedRate;
+        final LatencyHistogram latencies;
+        final boolean isWithinSlo;
+
+        private Stage(long targetRate, long completed, long missed, double achievedRate, LatencyHistogram latencies, boolean isWithinSlo) {
+            this.targetRate = targetRate;
+            this.completed = completed;
+            this.missed = missed;
+            this.achievedRate = achievedRate;
+            this.latencies = latencies;
+            this.isWithinSlo = isWithinSlo;
+        }
+    }
+
+    private final long[] targetRates;
+    private final long stageDurationNanos;
+    private final Long latencySloNanos;
+
+    /**
+     * @param targetRates the target rate of each stage, in operations per second. Stages are run in increasing order
+     *                    of rate.
+     * @param stageDurationNanos the duration of each stage, in nanoseconds.
+     * @param latencySloNanos the maximum latency, in nanoseconds, of the {@link #SLO_PERCENTILE} of operations in a
+     *                        sustained stage, or null if there is no SLO.
+     */
+    OpenLoopLoad(long[] targetRates, long stageDurationNanos, Long latencySloNanos) {
+        if (targetRates.length == 0) {
+            throw new IllegalArgumentException("At least one target rate is required.");
+        }
+        for (long targetRate : targetRates) {
+            if (targetRate < 1) {
+                throw new IllegalArgumentException("--target-rate must be at least 1.");
+            }
+        }
+        if (stageDurationNanos < 1) {
+            throw new IllegalArgumentException("--rate-stage-duration must be at least 1.");
+        }
+        if (latencySloNanos != null && latencySloNanos < 1) {
+            throw new IllegalArgumentException("--latency-slo must be at least 1.");
+        }
+        this.targetRates = targetRates.clone();
+        Arrays.sort(this.targetRates);
+        this.stageDurationNanos = stageDurationNanos;
+        this.latencySloNanos = latencySloNanos;
+    }
+
+    /**
+     * Waits until the given time.
+     * @param deadline the time, according to {@link System#nanoTime()}.
+     */
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Runs a single stage as one iteration of the given task.
+     * @param measurableTask the task, whose trial has been set up.
+     * @param task the task's code to run for each operation.
+     * @param targetRate the target rate, in operations per second.
+     * @return the outcome of the stage.
+     * @throws Exception if thrown by the task.
+     */
+    private Stage runStage(MeasurableTask measurableTask, MeasurableTask.Task task, long targetRate) throws Exception {
+        LatencyHistogram latencies = new LatencyHistogram();
+        double periodNanos = 1e9 / targetRate;
+        long completed = 0;
+        long missed = 0;
+        measurableTask.setUpIteration();
+        long stageStart = System.nanoTime();
+        long stageEnd = stageStart + stageDurationNanos;
+        for (long i = 0; ; i++) {
+            long intendedStart = stageStart + (long) (i * periodNanos);
+            if (intendedStart - stageEnd >= 0) {
+                break;
+            }
+            long now = System.nanoTime();
+            if (now - stageEnd >= 0) {
+                // The stage ended before this operation could start. It, and any others scheduled before the end of the
+                // stage, are recorded as missed with the latency they have accumulated so far.
+                latencies.record(now - intendedStart);
+                missed++;
+                continue;
+            }
+            // Prepare the invocation before its scheduled start. The harness is not part of the system under test, so
+            // any time the preparation takes beyond the scheduled start is not counted as latency.
+            long setUpOverrun = 0;
+            if (measurableTask.isSegmented()) {
+                measurableTask.setUpInvocation();
+                setUpOverrun = Math.max(0, System.nanoTime() - Math.max(now, intendedStart));
+            }
+            waitUntil(intendedStart);
+            task.run(SideEffectConsumer.NO_OP);
+            latencies.record(System.nanoTime() - intendedStart - setUpOverrun);
+            completed++;
+        }
+        double elapsedSeconds = (System.nanoTime() - stageStart) / 1e9;
+        measurableTask.tearDownIteration();
+        boolean isWithinSlo = latencySloNanos == null || latencies.percentile(SLO_PERCENTILE) <= latencySloNanos;
+        return new Stage(targetRate, completed, missed, completed / elapsedSeconds, latencies, isWithinSlo);
+    }
+
+    /**
+     * Runs each stage in increasing order of target rate, printing the outcome of each, until all stages have run, a
+     * stage exceeds the SLO, or the user types q (followed by Enter/Return).
+     * @param measurableTask the task, whose trial has been set up.
+     * @param in the stream from which the user's input is read.
+     * @param out the stream to which the outcomes are printed.
+     * @return the outcomes of the stages that ran, in order.
+     * @throws Exception if thrown by the task.
+     */
+    List<Stage> run(MeasurableTask measurableTask, InputStream in, PrintStream out) throws Exception {
+        MeasurableTask.Task task = measurableTask.getTask();
+        List<Stage> stages = new ArrayList<>(targetRates.length);
+        out.println(String.format(
+            "%12s %12s %10s %12s %12s %12s %12s %12s %6s",
+            "target/sec",
+            "achieved/sec",
+            "missed",
+            "p50 us",
+            "p90 us",
+            "p99 us",
+            "p99.9 us",
+            "max us",
+            "SLO"
+        ));
+        for (long targetRate : targetRates) {
+            Stage stage = runStage(measurableTask, task, targetRate);
+            stages.add(stage);
+            out.println(String.format(
+                "%12d %12.1f %10d %12.1f %12.1f %12.1f %12.1f %12.1f %6s",
+                stage.targetRate,
+                stage.achievedRate,
+                stage.missed,
+                stage.latencies.percentile(0.5) / 1e3,
+                stage.latencies.percentile(0.9) / 1e3,
+                stage.latencies.percentile(0.99) / 1e3,
+                stage.latencies.percentile(0.999) / 1e3,
+                stage.latencies.max() / 1e3,
+                latencySloNanos == null ? "n/a" : (stage.isWithinSlo ? "met" : "missed")
+            ));
+            if (!stage.isWithinSlo || (in.available() > 0 && in.read() == 'q')) {
+                break;
+            }
+        }
+        if (latencySloNanos != null) {
+            Long highestSustainedRate = highestSustainedRate(stages);
+            String slo = String.format("p99 latency of %.1f us", latencySloNanos / 1e3);
+            if (highestSustainedRate == null) {
+                out.println("None of the target rates was sustained within the " + slo + ".");
+            } else {
+                out.println("Highest target rate sustained within the " + slo + ": " + highestSustainedRate + " ops/sec.");
+            }
+        }
+        return stages;
+    }
+
+    /**
+     * @param stages the outcomes of stages, in increasing order of target rate.
+     * @return the highest target rate of the stages that were within the SLO, or null if none were.
+     */
+    static Long highestSustainedRate(List<Stage> stages) {
+        Long highestSustainedRate = null;
+        for (Stage stage : stages) {
+            if (stage.isWithinSlo) {
+                highestSustainedRate = stage.targetRate;
+            }
+        }
+        return highestSustainedRate;
+    }
+}
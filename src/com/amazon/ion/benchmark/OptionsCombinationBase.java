@@ -16,11 +16,15 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.Socket;
 import java.nio.file.Path;
 import java.util.function.Function;
 
+import static com.amazon.ion.benchmark.Constants.ALLOCATION_PHASES_NAME;
 import static com.amazon.ion.benchmark.Constants.API_NAME;
 import static com.amazon.ion.benchmark.Constants.AUTO_FLUSH_ENABLED;
+import static com.amazon.ion.benchmark.Constants.CONVERSION_CACHE_NAME;
+import static com.amazon.ion.benchmark.Constants.CONVERSION_CACHE_SIZE_NAME;
 import static com.amazon.ion.benchmark.Constants.FLUSH_PERIOD_NAME;
 import static com.amazon.ion.benchmark.Constants.FORMAT_NAME;
 import static com.amazon.ion.benchmark.Constants.ION_FLOAT_WIDTH_NAME;
@@ -32,6 +36,9 @@ import static com.amazon.ion.benchmark.Constants.IO_TYPE_NAME;
 import static com.amazon.ion.benchmark.Constants.JSON_USE_BIG_DECIMALS_NAME;
 import static com.amazon.ion.benchmark.Constants.LIMIT_NAME;
 import static com.amazon.ion.benchmark.Constants.PREALLOCATION_NAME;
+import static com.amazon.ion.benchmark.Constants.SOCKET_BUFFER_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.THREADS_NAME;
+import static com.amazon.ion.benchmark.Constants.VALUE_LATENCY_NAME;
 
 /**
  * Represents a combination of options to be used by a single benchmark trial.
@@ -44,6 +51,7 @@ abstract class OptionsCombinationBase {
     final API api;
     final IoType ioType;
     final Integer ioBufferSize;
+    final Integer socketBufferSize;
     final String importsForInputFile;
     final String importsForBenchmarkFile;
     final Integer floatWidth;
@@ -51,6 +59,11 @@ abstract class OptionsCombinationBase {
     final int limit;
     final boolean jsonUseBigDecimals;
     final boolean autoFlush;
+    final int threads;
+    final ConversionCacheScope conversionCacheScope;
+    final long conversionCacheSize;
+    final ValueLatencyMode valueLatency;
+    final boolean allocationPhases;
 
     /**
      * Retrieves and translates a value from the struct, if the field is present and is not the 'auto' value. Otherwise,
@@ -85,6 +98,7 @@ abstract class OptionsCombinationBase {
         api = getOrDefault(optionsCombinationStruct, API_NAME, val -> API.valueOf(((IonText) val).stringValue()), API.STREAMING);
         ioType = getOrDefault(optionsCombinationStruct, IO_TYPE_NAME, val -> IoType.valueOf(((IonText) val).stringValue()), IoType.FILE);
         ioBufferSize = getOrDefault(optionsCombinationStruct, IO_BUFFER_SIZE_NAME, val -> ((IonInt) val).intValue(), null);
+        socketBufferSize = getOrDefault(optionsCombinationStruct, SOCKET_BUFFER_SIZE_NAME, val -> ((IonInt) val).intValue(), null);
         importsForInputFile = getOrDefault(optionsCombinationStruct, ION_IMPORTS_FOR_INPUT_NAME, val -> ((IonText) val).stringValue(), null);
         importsForBenchmarkFile = getOrDefault(optionsCombinationStruct, ION_IMPORTS_FOR_BENCHMARK_NAME, val -> ((IonText) val).stringValue(), null);
         floatWidth = getOrDefault(optionsCombinationStruct, ION_FLOAT_WIDTH_NAME, val -> ((IonInt) val).intValue(), null);
@@ -92,20 +106,44 @@ abstract class OptionsCombinationBase {
         limit = getOrDefault(optionsCombinationStruct, LIMIT_NAME, val -> ((IonInt) val).intValue(), Integer.MAX_VALUE);
         jsonUseBigDecimals = getOrDefault(optionsCombinationStruct, JSON_USE_BIG_DECIMALS_NAME, val -> ((IonBool) val).booleanValue(), true);
         autoFlush = getOrDefault(optionsCombinationStruct, AUTO_FLUSH_ENABLED, val -> ((IonBool) val).booleanValue(), false);
+        threads = getOrDefault(optionsCombinationStruct, THREADS_NAME, val -> ((IonInt) val).intValue(), 1);
+        conversionCacheScope = getOrDefault(optionsCombinationStruct, CONVERSION_CACHE_NAME, val -> ConversionCacheScope.valueOf(((IonText) val).stringValue()), ConversionCacheScope.RUN);
+        conversionCacheSize = getOrDefault(optionsCombinationStruct, CONVERSION_CACHE_SIZE_NAME, val -> ((IonInt) val).longValue(), ConversionCache.DEFAULT_MAXIMUM_SIZE);
+        valueLatency = getOrDefault(optionsCombinationStruct, VALUE_LATENCY_NAME, val -> ValueLatencyMode.valueOf(((IonText) val).stringValue()), ValueLatencyMode.NONE);
+        allocationPhases = getOrDefault(optionsCombinationStruct, ALLOCATION_PHASES_NAME, val -> ((IonBool) val).booleanValue(), false);
     }
 
     /**
-     * Convert the input file to match the options, if necessary.
+     * Convert the input file to match the options, if necessary. Conversions are shared with other options
+     * combinations that encode the input identically, according to {@link #conversionCacheScope}. If the returned
+     * file differs from the input file, it must be released using {@link #releaseConvertedFile(Path)} when it is no
+     * longer needed.
      * @param inputFile the input file.
      * @return the Path to the resulting file, which will be the same as the input file if no conversion was required.
      * @throws IOException if thrown during conversion.
      */
     final Path convertFileIfNecessary(Path inputFile) throws IOException {
-        return format.convert(
-            inputFile,
-            TemporaryFiles.newTempFile(inputFile.toFile().getName(), format.getSuffix()),
-            this
-        );
+        return ConversionCache.convert(inputFile, this);
+    }
+
+    /**
+     * @param inputFile the input file.
+     * @return false if tasks for these options are known to use the input file as-is, without calling
+     *   {@link #convertFileIfNecessary(Path)}; otherwise, true.
+     * @throws IOException if thrown while inspecting the input file.
+     */
+    boolean mayRequireConversion(Path inputFile) throws IOException {
+        return true;
+    }
+
+    /**
+     * Releases a file returned by {@link #convertFileIfNecessary(Path)}. The file is deleted if conversions are not
+     * cached; otherwise, it is retained for reuse and becomes eligible for eviction from the cache.
+     * @param convertedFile the converted file.
+     * @throws IOException if thrown while deleting the file.
+     */
+    final void releaseConvertedFile(Path convertedFile) throws IOException {
+        ConversionCache.release(convertedFile, this);
     }
 
     /**
@@ -150,6 +188,32 @@ abstract class OptionsCombinationBase {
         return new BufferedInputStream(new FileInputStream(file), ioBufferSize);
     }
 
+    /**
+     * Creates a new InputStream over the given connection.
+     * @param socket the connection to be read. Closing the returned stream closes the connection.
+     * @return a new InputStream matching the options.
+     * @throws IOException if thrown when constructing the InputStream.
+     */
+    InputStream newInputStream(Socket socket) throws IOException {
+        if (ioBufferSize == null) {
+            return new BufferedInputStream(socket.getInputStream());
+        }
+        return new BufferedInputStream(socket.getInputStream(), ioBufferSize);
+    }
+
+    /**
+     * Creates a new OutputStream over the given connection.
+     * @param socket the connection to be written. Closing the returned stream closes the connection.
+     * @return a new OutputStream matching the options.
+     * @throws IOException if thrown when constructing the OutputStream.
+     */
+    OutputStream newOutputStream(Socket socket) throws IOException {
+        if (ioBufferSize == null) {
+            return new BufferedOutputStream(socket.getOutputStream());
+        }
+        return new BufferedOutputStream(socket.getOutputStream(), ioBufferSize);
+    }
+
     /**
      * Creates a new OutputStream over the given file. If the file already exists, it will be overwritten.
      * @param file the file to be written.
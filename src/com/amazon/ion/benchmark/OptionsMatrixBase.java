@@ -1,29 +1,41 @@
 package com.amazon.ion.benchmark;
 
+import com.amazon.ion.IonBool;
+import com.amazon.ion.IonInt;
 import com.amazon.ion.IonStruct;
 import com.amazon.ion.IonText;
 import com.amazon.ion.IonValue;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
 import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Defaults;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import java.io.Closeable;
 import java.io.File;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import static com.amazon.ion.benchmark.Constants.ALLOCATION_PHASES_NAME;
 import static com.amazon.ion.benchmark.Constants.API_NAME;
+import static com.amazon.ion.benchmark.Constants.CONVERSION_CACHE_NAME;
+import static com.amazon.ion.benchmark.Constants.CONVERSION_CACHE_SIZE_NAME;
 import static com.amazon.ion.benchmark.Constants.AUTO_FLUSH_ENABLED;
 import static com.amazon.ion.benchmark.Constants.FLUSH_PERIOD_NAME;
 import static com.amazon.ion.benchmark.Constants.FORMAT_NAME;
@@ -33,10 +45,19 @@ import static com.amazon.ion.benchmark.Constants.ION_IMPORTS_FOR_INPUT_NAME;
 import static com.amazon.ion.benchmark.Constants.ION_SYSTEM;
 import static com.amazon.ion.benchmark.Constants.ION_USE_SYMBOL_TOKENS_NAME;
 import static com.amazon.ion.benchmark.Constants.IO_BUFFER_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.IO_SYNC_NAME;
 import static com.amazon.ion.benchmark.Constants.IO_TYPE_NAME;
 import static com.amazon.ion.benchmark.Constants.JSON_USE_BIG_DECIMALS_NAME;
 import static com.amazon.ion.benchmark.Constants.LIMIT_NAME;
+import static com.amazon.ion.benchmark.Constants.MESSAGES_NAME;
+import static com.amazon.ion.benchmark.Constants.PARTITIONS_NAME;
+import static com.amazon.ion.benchmark.Constants.PATHS_NAME;
 import static com.amazon.ion.benchmark.Constants.PREALLOCATION_NAME;
+import static com.amazon.ion.benchmark.Constants.RETAINED_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.SOCKET_BUFFER_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.THREADS_NAME;
+import static com.amazon.ion.benchmark.Constants.VALUE_LATENCY_NAME;
+import static com.amazon.ion.benchmark.Constants.WRITE_SEGMENT_SIZE_NAME;
 
 /**
  * Represents the matrix of all options combinations, corresponding to all benchmark trials.
@@ -60,8 +81,14 @@ abstract class OptionsMatrixBase {
 
     private final String inputFile;
     private final String[] serializedOptionsCombinations;
+    private final Map<Integer, String[]> serializedOptionsCombinationsByThreads;
+    private final String[] serializedSegmentedOptionsCombinations;
     private final boolean profile;
+    // When --target-rate is specified with --profile, the open-loop load to apply instead of the closed profiling loop.
+    private final OpenLoopLoad openLoopLoad;
     private final Options jmhOptions;
+    private final String resultsFile;
+    private final ResultFormatType resultFormatType;
 
     /**
      * Retrieves the String value for the requested option, or null if the option is not present.
@@ -185,6 +212,67 @@ abstract class OptionsMatrixBase {
         combineOptionsWith(optionsCombinationStructs, newOptionName, newOptions, appliesToCombination);
     }
 
+    /**
+     * @param optionsCombination an options combination struct.
+     * @return the number of threads that should concurrently execute the given options combination.
+     */
+    static int getThreads(IonStruct optionsCombination) {
+        IonValue threads = optionsCombination.get(THREADS_NAME);
+        return threads == null ? 1 : ((IonInt) threads).intValue();
+    }
+
+    /**
+     * @param optionsCombinationStructs structs representing all options combinations.
+     * @param predicate the condition to test.
+     * @return true if at least one of the given options combinations satisfies the given condition; otherwise, false.
+     */
+    private static boolean anyOptionsCombination(
+        List<IonStruct> optionsCombinationStructs,
+        Predicate<IonStruct> predicate
+    ) {
+        return optionsCombinationStructs.stream().anyMatch(predicate);
+    }
+
+    /**
+     * @param optionsCombination an options combination struct.
+     * @param optionShortName the abbreviated name for a boolean option.
+     * @return true if the option is present and true in the given options combination; otherwise, false.
+     */
+    private static boolean isTrue(IonStruct optionsCombination, String optionShortName) {
+        IonValue value = optionsCombination.get(optionShortName);
+        return value instanceof IonBool && ((IonBool) value).booleanValue();
+    }
+
+    /**
+     * @param optionsCombination an options combination struct.
+     * @return true if the given options combination measures one segment of the input per invocation, which requires
+     *         it to be executed by {@link SegmentedBench} rather than {@link Bench}.
+     */
+    private static boolean isSegmented(IonStruct optionsCombination) {
+        return optionsCombination.get(WRITE_SEGMENT_SIZE_NAME) instanceof IonInt;
+    }
+
+    /**
+     * Groups the options combinations that are not segmented by the number of threads that should concurrently execute
+     * them. Each group requires a separate JMH run because JMH's thread count applies to all benchmarks in a run.
+     * @param optionsCombinationStructs the options combinations to group.
+     * @return the serialized options combinations in each group, ordered by thread count.
+     */
+    private static Map<Integer, String[]> groupOptionsCombinationsByThreads(List<IonStruct> optionsCombinationStructs) {
+        Map<Integer, List<IonStruct>> groups = new TreeMap<>();
+        for (IonStruct optionsCombinationStruct : optionsCombinationStructs) {
+            if (isSegmented(optionsCombinationStruct)) {
+                continue;
+            }
+            groups.computeIfAbsent(getThreads(optionsCombinationStruct), k -> new ArrayList<>()).add(optionsCombinationStruct);
+        }
+        Map<Integer, String[]> serializedGroups = new TreeMap<>();
+        for (Map.Entry<Integer, List<IonStruct>> group : groups.entrySet()) {
+            serializedGroups.put(group.getKey(), serializeOptionsCombinations(group.getValue()));
+        }
+        return serializedGroups;
+    }
+
     /**
      * Serialize the options combinations to text Ion.
      * @param optionsCombinationStructs the options combinations to serialize.
@@ -234,6 +322,21 @@ abstract class OptionsMatrixBase {
         return Integer.parseInt(intOrAuto);
     }
 
+    /**
+     * Returns either a thread count greater than 1 or `null`. To be used when the implicit default (represented by
+     * `null`) is a single thread.
+     * @param threads a String representation of a positive integer.
+     * @return null if the input represents 1; otherwise, the integer parsed from the input.
+     * @throws IllegalArgumentException if the input does not represent a positive integer.
+     */
+    static Integer getThreadsOrNull(String threads) {
+        int value = Integer.parseInt(threads);
+        if (value < 1) {
+            throw new IllegalArgumentException("--threads must be at least 1.");
+        }
+        return value == 1 ? null : value;
+    }
+
     /**
      * Returns either `true` or `null`. To be used when the implicit default (represented by `null`) is `false`.
      * @param valueString a String representation of a boolean.
@@ -292,6 +395,23 @@ abstract class OptionsMatrixBase {
             throw new IllegalArgumentException("Must provide an input file");
         }
         profile = optionsMatrix.get("--profile").equals(true);
+        long[] targetRates = ((List<?>) optionsMatrix.get("--target-rate")).stream()
+            .map(OptionsMatrixBase::getStringOrNull)
+            .mapToLong(Long::parseLong)
+            .toArray();
+        if (targetRates.length == 0) {
+            openLoopLoad = null;
+        } else {
+            if (!profile) {
+                throw new IllegalArgumentException("--target-rate may only be used with --profile.");
+            }
+            String latencySlo = getStringOrNull(optionsMatrix.get("--latency-slo"));
+            openLoopLoad = new OpenLoopLoad(
+                targetRates,
+                TimeUnit.SECONDS.toNanos(Long.parseLong(optionsMatrix.get("--rate-stage-duration").toString())),
+                latencySlo == null ? null : TimeUnit.MICROSECONDS.toNanos(Long.parseLong(latencySlo))
+            );
+        }
         List<IonStruct> optionsCombinationStructs = new ArrayList<>();
         IonStruct initialOptionsStruct = ION_SYSTEM.newEmptyStruct();
         initialOptionsStruct.addTypeAnnotation(commandName);
@@ -300,6 +420,17 @@ abstract class OptionsMatrixBase {
             int limit = Integer.parseInt(optionsMatrix.get("--limit").toString());
             addOptionTo(optionsCombinationStructs, LIMIT_NAME, ION_SYSTEM.newInt(limit), OPTION_ALWAYS_APPLIES);
         }
+        if (optionsMatrix.get("--conversion-cache") != null) {
+            ConversionCacheScope scope = ConversionCacheScope.valueOf(optionsMatrix.get("--conversion-cache").toString().toUpperCase());
+            addOptionTo(optionsCombinationStructs, CONVERSION_CACHE_NAME, ION_SYSTEM.newSymbol(scope.name()), OPTION_ALWAYS_APPLIES);
+        }
+        if (optionsMatrix.get("--conversion-cache-size") != null) {
+            long size = Long.parseLong(optionsMatrix.get("--conversion-cache-size").toString());
+            if (size < 0) {
+                throw new IllegalArgumentException("--conversion-cache-size must not be negative.");
+            }
+            addOptionTo(optionsCombinationStructs, CONVERSION_CACHE_SIZE_NAME, ION_SYSTEM.newInt(size), OPTION_ALWAYS_APPLIES);
+        }
         parseAndCombine(
             optionsMatrix.get("--format"),
             FORMAT_NAME,
@@ -321,7 +452,7 @@ abstract class OptionsMatrixBase {
         parseAndCombine(
             optionsMatrix.get("--io-type"),
             IO_TYPE_NAME,
-            (s) -> IoType.valueOf(s.toUpperCase()),
+            (s) -> IoType.valueOf(s.toUpperCase()).requireSupportFor(commandName),
             (type) -> ION_SYSTEM.newSymbol(type.name()),
             optionsCombinationStructs,
             OptionsMatrixBase::noImplicitDefault,
@@ -334,7 +465,18 @@ abstract class OptionsMatrixBase {
             ION_SYSTEM::newInt,
             optionsCombinationStructs,
             () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
-            s -> !IoType.BUFFER.name().equals(getStringValue(s, IO_TYPE_NAME))
+            // All other IO types access memory directly rather than through a buffered stream.
+            s -> IoType.FILE.name().equals(getStringValue(s, IO_TYPE_NAME))
+                || IoType.SOCKET.name().equals(getStringValue(s, IO_TYPE_NAME))
+        );
+        parseAndCombine(
+            optionsMatrix.get("--socket-buffer-size"),
+            SOCKET_BUFFER_SIZE_NAME,
+            OptionsMatrixBase::getIntOrAuto,
+            ION_SYSTEM::newInt,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
+            s -> IoType.SOCKET.name().equals(getStringValue(s, IO_TYPE_NAME))
         );
         parseAndCombine(
             optionsMatrix.get("--ion-imports-for-benchmark"),
@@ -361,7 +503,8 @@ abstract class OptionsMatrixBase {
             ION_SYSTEM::newInt,
             optionsCombinationStructs,
             () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
-            OPTION_ONLY_APPLIES_TO_ION
+            // Write benchmarks also flush JSON and CBOR writers after every N top-level values.
+            "write".equals(commandName) ? OPTION_ALWAYS_APPLIES : OPTION_ONLY_APPLIES_TO_ION
         );
         parseAndCombine(
             optionsMatrix.get("--api"),
@@ -413,18 +556,65 @@ abstract class OptionsMatrixBase {
             () -> ION_SYSTEM.newBool(false),
             OPTION_ONLY_APPLIES_TO_ION_STREAMING
         );
+        parseAndCombine(
+            optionsMatrix.get("--threads"),
+            THREADS_NAME,
+            OptionsMatrixBase::getThreadsOrNull,
+            ION_SYSTEM::newInt,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newInt(1),
+            OPTION_ALWAYS_APPLIES
+        );
         parseCommandSpecificOptions(optionsMatrix, optionsCombinationStructs);
+        // Parsed after the command-specific options so that it may depend on --paths.
+        parseAndCombine(
+            optionsMatrix.get("--value-latency"),
+            VALUE_LATENCY_NAME,
+            (s) -> ValueLatencyMode.valueOf(s.toUpperCase()),
+            (mode) -> ION_SYSTEM.newSymbol(mode.name()),
+            optionsCombinationStructs,
+            OptionsMatrixBase::noImplicitDefault,
+            // Only full streaming traversals visit each top-level value individually.
+            s -> API.STREAMING.name().equals(getStringValue(s, API_NAME)) && s.get(PATHS_NAME) == null
+        );
+        parseAndCombine(
+            optionsMatrix.get("--allocation-phases"),
+            ALLOCATION_PHASES_NAME,
+            OptionsMatrixBase::getTrueOrNull,
+            ION_SYSTEM::newBool,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newBool(false),
+            (s) -> {
+                // Each phase must be performed by the benchmark thread, by a single reader or writer per operation.
+                return s.get(PATHS_NAME) == null
+                    && !(s.get(PARTITIONS_NAME) instanceof IonInt)
+                    && !isTrue(s, MESSAGES_NAME);
+            }
+        );
+        boolean allocationPhases =
+            anyOptionsCombination(optionsCombinationStructs, s -> isTrue(s, ALLOCATION_PHASES_NAME));
+        if (allocationPhases && !AllocationProfiler.isSupported()) {
+            throw new IllegalArgumentException(
+                "--allocation-phases requires a JVM that counts the bytes allocated by each thread."
+            );
+        }
         serializedOptionsCombinations = serializeOptionsCombinations(optionsCombinationStructs);
+        serializedOptionsCombinationsByThreads = groupOptionsCombinationsByThreads(optionsCombinationStructs);
+        // Segmented options combinations are always single-threaded, so they are executed in a single additional run.
+        serializedSegmentedOptionsCombinations = serializeOptionsCombinations(
+            optionsCombinationStructs.stream().filter(OptionsMatrixBase::isSegmented).collect(Collectors.toList())
+        );
         if (profile) {
             if (optionsCombinationStructs.size() > 1) {
                 throw new IllegalArgumentException("Options must only be specified once when --profile is used.");
             }
             jmhOptions = null;
+            resultsFile = null;
+            resultFormatType = null;
         } else {
+            // The benchmark, options combinations, and thread count are added for each JMH run; see executeBenchmark().
             ChainedOptionsBuilder jmhOptionsBuilder = new OptionsBuilder()
-                .include(Bench.class.getSimpleName())
                 .param("input", inputFile)
-                .param("options", serializedOptionsCombinations)
                 .mode(Mode.valueOf(optionsMatrix.get("--mode").toString()))
                 .measurementIterations(Integer.parseInt(optionsMatrix.get("--iterations").toString()))
                 .warmupIterations(Integer.parseInt(optionsMatrix.get("--warmups").toString()))
@@ -434,22 +624,56 @@ abstract class OptionsMatrixBase {
                 .addProfiler(SerializedSizeProfiler.class)
                 .shouldDoGC(true)
                 .timeUnit(TimeUnit.valueOf(optionsMatrix.get("--time-unit").toString().toUpperCase()));
-            String resultsFile = getStringOrNull(optionsMatrix.get("--results-file"));
-            if (resultsFile != null) {
-                jmhOptionsBuilder.result(resultsFile);
+            // Profilers that report on a specific option are only added if some options combination enables it.
+            if (anyOptionsCombination(optionsCombinationStructs, s -> isTrue(s, MESSAGES_NAME))) {
+                jmhOptionsBuilder.addProfiler(MessageProfiler.class);
+            }
+            if (anyOptionsCombination(optionsCombinationStructs, s -> isTrue(s, RETAINED_SIZE_NAME))) {
+                jmhOptionsBuilder.addProfiler(RetainedSizeProfiler.class);
             }
+            if (anyOptionsCombination(optionsCombinationStructs, s -> s.get(VALUE_LATENCY_NAME) != null
+                && !ValueLatencyMode.NONE.name().equals(getStringValue(s, VALUE_LATENCY_NAME)))) {
+                jmhOptionsBuilder.addProfiler(LatencyProfiler.class);
+            }
+            if (anyOptionsCombination(optionsCombinationStructs, s -> s.get(IO_SYNC_NAME) != null
+                && !IoSyncType.NONE.name().equals(getStringValue(s, IO_SYNC_NAME)))) {
+                jmhOptionsBuilder.addProfiler(IoSyncProfiler.class);
+            }
+            if (anyOptionsCombination(
+                optionsCombinationStructs,
+                s -> IoType.PIPELINE.name().equals(getStringValue(s, IO_TYPE_NAME))
+            )) {
+                jmhOptionsBuilder.addProfiler(PipelineProfiler.class);
+            }
+            if (allocationPhases) {
+                jmhOptionsBuilder.addProfiler(AllocationProfiler.class);
+            }
+            if (optionsMatrix.get("--diagnostics").equals(true)) {
+                jmhOptionsBuilder
+                    .addProfiler(PeakHeapProfiler.class)
+                    .addProfiler(CpuTimeProfiler.class)
+                    .addProfiler(SyscallProfiler.class);
+            }
+            // Because there may be multiple JMH runs, the results are collected and written once all runs complete, rather
+            // than by JMH itself.
+            String requestedResultsFile = getStringOrNull(optionsMatrix.get("--results-file"));
             ResultsFormat resultsFormat = ResultsFormat.valueOf(optionsMatrix.get("--results-format").toString().toUpperCase());
             switch (resultsFormat) {
                 case ION:
-                    jmhOptionsBuilder.resultFormat(ResultFormatType.JSON);
+                    resultFormatType = ResultFormatType.JSON;
                     break;
                 case JMH:
-                    // This is the default format. If no results file is specified, do not explicitly specify the
-                    // output format because this causes JMH to write the results to a file with a default name.
-                    if (resultsFile != null) {
-                        jmhOptionsBuilder.resultFormat(ResultFormatType.TEXT);
-                    }
+                    // This is the default format. If no results file is specified, results are only written to the
+                    // console.
+                    resultFormatType = requestedResultsFile == null ? null : ResultFormatType.TEXT;
                     break;
+                default:
+                    throw new IllegalStateException("Unknown results format " + resultsFormat);
+            }
+            if (requestedResultsFile == null && resultFormatType != null) {
+                resultsFile = Defaults.RESULT_FILE_PREFIX + "." + resultFormatType.toString().toLowerCase();
+            } else {
+                resultsFile = requestedResultsFile;
             }
             jmhOptions = jmhOptionsBuilder.build();
         }
@@ -470,6 +694,15 @@ abstract class OptionsMatrixBase {
      */
     abstract void parseCommandSpecificOptions(Map<String, Object> optionsMatrix, List<IonStruct> optionsCombinationStructs);
 
+    /**
+     * @param benchmarkClass a class that declares JMH benchmarks.
+     * @return a pattern that matches only the benchmarks declared by the given class. The simple name of the class
+     *         alone is not sufficient because it may be contained in the name of another class.
+     */
+    private static String benchmarkPattern(Class<?> benchmarkClass) {
+        return "\\." + benchmarkClass.getSimpleName() + "\\.";
+    }
+
     /**
      * Execute all trials (one trial per options combination) for this matrix. If `profile` mode is enabled, execute
      * the only trial until the user chooses to exit.
@@ -481,16 +714,63 @@ abstract class OptionsMatrixBase {
             OptionsCombinationBase options = OptionsCombinationBase.from(serializedOptionsCombinations[0]);
             MeasurableTask measurableTask = options.createMeasurableTask(Paths.get(inputFile));
             measurableTask.setUpTrial();
-            MeasurableTask.Task task = measurableTask.getTask();
-            System.out.println("Entering profiling mode. Type q (followed by Enter/Return) to terminate after the next complete iteration.");
-            while (System.in.available() <= 0 || System.in.read() != 'q') {
-                measurableTask.setUpIteration();
-                task.run(SideEffectConsumer.NO_OP);
-                measurableTask.tearDownIteration();
+            if (openLoopLoad != null) {
+                System.out.println("Entering open-loop profiling mode. Type q (followed by Enter/Return) to terminate after the current stage.");
+                openLoopLoad.run(measurableTask, System.in, System.out);
+            } else {
+                MeasurableTask.Task task = measurableTask.getTask();
+                System.out.println("Entering profiling mode. Type q (followed by Enter/Return) to terminate after the next complete iteration.");
+                while (System.in.available() <= 0 || System.in.read() != 'q') {
+                    measurableTask.setUpIteration();
+                    if (measurableTask.isSegmented()) {
+                        measurableTask.setUpInvocation();
+                    }
+                    task.run(SideEffectConsumer.NO_OP);
+                    measurableTask.tearDownIteration();
+                }
             }
             measurableTask.tearDownTrial();
         } else {
-            new Runner(jmhOptions).run();
+            // Perform all conversions of the input up front and in parallel, rather than one at a time during the
+            // setup of each trial. The converted files remain pinned in the cache until all trials are complete.
+            List<OptionsCombinationBase> optionsCombinations = new ArrayList<>();
+            for (String serializedOptionsCombination : serializedOptionsCombinations) {
+                optionsCombinations.add(OptionsCombinationBase.from(serializedOptionsCombination));
+            }
+            Collection<RunResult> results = new ArrayList<>();
+            Closeable preparedConversions = ConversionCache.prepare(Paths.get(inputFile), optionsCombinations);
+            try {
+                for (Map.Entry<Integer, String[]> group : serializedOptionsCombinationsByThreads.entrySet()) {
+                    Options groupOptions = new OptionsBuilder()
+                        .parent(jmhOptions)
+                        .include(benchmarkPattern(Bench.class))
+                        .param("options", group.getValue())
+                        .threads(group.getKey())
+                        .build();
+                    results.addAll(new Runner(groupOptions).run());
+                }
+                if (serializedSegmentedOptionsCombinations.length > 0) {
+                    Options segmentedOptions = new OptionsBuilder()
+                        .parent(jmhOptions)
+                        .include(benchmarkPattern(SegmentedBench.class))
+                        .param("options", serializedSegmentedOptionsCombinations)
+                        .threads(1)
+                        .build();
+                    results.addAll(new Runner(segmentedOptions).run());
+                }
+            } finally {
+                preparedConversions.close();
+            }
+            if (resultFormatType != null) {
+                ResultFormatFactory.getInstance(resultFormatType, resultsFile).writeOut(results);
+            }
+            for (String scalingOptionName : new String[]{THREADS_NAME, PARTITIONS_NAME}) {
+                ScalingReport scalingReport = new ScalingReport(scalingOptionName);
+                scalingReport.addAll(results);
+                if (scalingReport.isScaled()) {
+                    scalingReport.print(System.out);
+                }
+            }
         }
         TemporaryFiles.cleanUpTempDirectory();
     }
@@ -0,0 +1,24 @@
+package com.amazon.ion.benchmark;
+
+/**
+ * The strategy for providing the in-memory output buffer to each write benchmark invocation.
+ */
+enum OutputBufferType {
+
+    /**
+     * Allocate a new ByteArrayOutputStream for each invocation.
+     */
+    NEW,
+
+    /**
+     * Reset and reuse the same ByteArrayOutputStream across invocations. Once the buffer has grown to fit the output,
+     * no further allocations are required.
+     */
+    REUSED,
+
+    /**
+     * Reset and reuse the same chain of fixed-size chunks across invocations. The output is never copied into a larger
+     * array as it grows; chunks are added to the chain as needed and recycled by subsequent invocations.
+     */
+    POOLED
+}
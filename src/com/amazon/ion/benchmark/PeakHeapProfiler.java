@@ -0,0 +1,78 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JMH Profiler plugin to measure the peak heap memory usage during each iteration, which includes memory that is only
+ * transiently live (e.g. a DOM or a list of write instructions) and therefore missed by {@link HeapProfiler}, which
+ * samples usage after the iteration ends. The peak usage of each heap memory pool (e.g. eden, survivor, and old
+ * generation, named as reported by the garbage collector in use) is reset before each iteration and reported after
+ * it. The total is the sum of the pools' peaks; because the pools may peak at different times, it is an upper bound
+ * on the peak total heap usage.
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+
+    /**
+     * @return the heap memory pools that are currently valid.
+     */
+    static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Peak heap usage profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        for (MemoryPoolMXBean pool : heapPools()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult iterationResult
+    ) {
+        Collection<Result> results = new ArrayList<>();
+        long totalPeak = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            MemoryUsage peakUsage = pool.getPeakUsage();
+            if (peakUsage == null) {
+                continue;
+            }
+            totalPeak += peakUsage.getUsed();
+            results.add(new ScalarResult(
+                "Peak heap usage [" + pool.getName() + "]",
+                peakUsage.getUsed() / 1e6,
+                "MB",
+                AggregationPolicy.MAX
+            ));
+        }
+        results.add(new ScalarResult("Peak heap usage", totalPeak / 1e6, "MB", AggregationPolicy.MAX));
+        return results;
+    }
+}
@@ -0,0 +1,88 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JMH Profiler plugin to measure the number of chunks handed from the writer to the reader per operation, and the
+ * latency of each handoff, for write benchmarks that use the pipeline IO type (see --io-type). Each reader thread
+ * records into its own {@link LatencyHistogram}, and the latency percentiles are computed from the histograms of all
+ * iterations and forks (see {@link LatencyProfiler.PercentileResult}). Nothing is reported for iterations that did not
+ * hand off any chunks.
+ */
+public class PipelineProfiler implements InternalProfiler {
+
+    private static final LongAdder handoffNanos = new LongAdder();
+    // The histograms of all threads that have recorded handoffs. Threads register once, on first use.
+    private static final Queue<LatencyHistogram> histograms = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<LatencyHistogram> threadHistogram = ThreadLocal.withInitial(() -> {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histograms.add(histogram);
+        return histogram;
+    });
+
+    /**
+     * Records a single handoff. May be called concurrently by multiple consumer threads.
+     * @param nanos the time between the chunk being published and being taken, in nanoseconds.
+     */
+    static void recordHandoff(long nanos) {
+        nanos = Math.max(0, nanos);
+        handoffNanos.add(nanos);
+        threadHistogram.get().record(nanos);
+    }
+
+    /**
+     * @return a new histogram of the handoffs recorded by all threads since the start of the current iteration.
+     */
+    private static LatencyHistogram merge() {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            merged.add(histogram);
+        }
+        return merged;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Pipeline profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        handoffNanos.reset();
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult iterationResult
+    ) {
+        Collection<Result> results = new ArrayList<>();
+        LatencyHistogram handoffs = merge();
+        long count = handoffs.count();
+        long operations = iterationResult.getMetadata().getAllOps();
+        if (count > 0 && operations > 0) {
+            results.add(new ScalarResult("Chunks", (double) count / operations, "#/op", AggregationPolicy.AVG));
+            results.add(new ScalarResult("Handoff latency", handoffNanos.sum() / 1e3 / count, "us", AggregationPolicy.AVG));
+            results.add(new LatencyProfiler.PercentileResult("Handoff latency p50", 0.5, handoffs));
+            results.add(new LatencyProfiler.PercentileResult("Handoff latency p99", 0.99, handoffs));
+            results.add(new ScalarResult("Handoff latency max", handoffs.max() / 1e3, "us", AggregationPolicy.MAX));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,127 @@
+package com.amazon.ion.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ByteArrayOutputStream that stores its data in a chain of fixed-size chunks. Unlike ByteArrayOutputStream, growing
+ * does not require copying the existing data into a larger array. Chunks are retained when the stream is reset, so
+ * they are recycled by subsequent writes; once the chain is large enough to hold the largest output, writing to the
+ * stream does not allocate. Not thread-safe.
+ */
+class PooledByteArrayOutputStream extends ByteArrayOutputStream {
+
+    /**
+     * The size of each chunk when no chunk size is specified.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final int chunkSize;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private byte[] currentChunk;
+    private int currentChunkIndex = 0;
+    private int positionInCurrentChunk = 0;
+    private int size = 0;
+
+    /**
+     * @param chunkSize the size of each chunk in the chain.
+     */
+    PooledByteArrayOutputStream(int chunkSize) {
+        // The superclass's buffer is not used.
+        super(0);
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.chunkSize = chunkSize;
+        currentChunk = new byte[chunkSize];
+        chunks.add(currentChunk);
+    }
+
+    /**
+     * Advances to the next chunk in the chain, adding a new chunk if all existing chunks are in use.
+     */
+    private void nextChunk() {
+        currentChunkIndex++;
+        if (currentChunkIndex == chunks.size()) {
+            chunks.add(new byte[chunkSize]);
+        }
+        currentChunk = chunks.get(currentChunkIndex);
+        positionInCurrentChunk = 0;
+    }
+
+    @Override
+    public void write(int b) {
+        if (positionInCurrentChunk == chunkSize) {
+            nextChunk();
+        }
+        currentChunk[positionInCurrentChunk++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            if (positionInCurrentChunk == chunkSize) {
+                nextChunk();
+            }
+            int numberOfBytesToCopy = Math.min(len, chunkSize - positionInCurrentChunk);
+            System.arraycopy(b, off, currentChunk, positionInCurrentChunk, numberOfBytesToCopy);
+            positionInCurrentChunk += numberOfBytesToCopy;
+            size += numberOfBytesToCopy;
+            off += numberOfBytesToCopy;
+            len -= numberOfBytesToCopy;
+        }
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        for (int i = 0; i < currentChunkIndex; i++) {
+            out.write(chunks.get(i), 0, chunkSize);
+        }
+        out.write(currentChunk, 0, positionInCurrentChunk);
+    }
+
+    /**
+     * Empties the stream, retaining all chunks for reuse.
+     */
+    @Override
+    public void reset() {
+        currentChunkIndex = 0;
+        currentChunk = chunks.get(0);
+        positionInCurrentChunk = 0;
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < currentChunkIndex; i++) {
+            System.arraycopy(chunks.get(i), 0, bytes, i * chunkSize, chunkSize);
+        }
+        System.arraycopy(currentChunk, 0, bytes, currentChunkIndex * chunkSize, positionInCurrentChunk);
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return new String(toByteArray(), Charset.defaultCharset());
+    }
+
+    @Override
+    public String toString(String charsetName) throws UnsupportedEncodingException {
+        return new String(toByteArray(), charsetName);
+    }
+}
@@ -17,7 +17,12 @@ import static com.amazon.ion.benchmark.Constants.ION_READER_BUFFER_SIZE_NAME;
 import static com.amazon.ion.benchmark.Constants.ION_READER_NAME;
 import static com.amazon.ion.benchmark.Constants.ION_USE_BIG_DECIMALS_NAME;
 import static com.amazon.ion.benchmark.Constants.ION_USE_LOB_CHUNKS_NAME;
+import static com.amazon.ion.benchmark.Constants.IO_READ_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.JSON_USE_NON_BLOCKING_PARSER_NAME;
+import static com.amazon.ion.benchmark.Constants.MESSAGES_NAME;
+import static com.amazon.ion.benchmark.Constants.PARTITIONS_NAME;
 import static com.amazon.ion.benchmark.Constants.PATHS_NAME;
+import static com.amazon.ion.benchmark.Constants.RETAINED_SIZE_NAME;
 
 /**
  * Represents a combination of read command options that corresponds to a single read benchmark trial.
@@ -29,6 +34,11 @@ class ReadOptionsCombination extends OptionsCombinationBase {
     final boolean useLobChunks;
     final boolean ionUseBigDecimals;
     final Integer initialBufferSize;
+    final Integer ioReadSize;
+    final boolean jsonUseNonBlockingParser;
+    final Integer partitions;
+    final boolean messages;
+    final boolean retainedSize;
 
     /**
      * @param serializedOptionsCombination text Ion representation of the options combination.
@@ -59,6 +69,16 @@ class ReadOptionsCombination extends OptionsCombinationBase {
         useLobChunks = getOrDefault(optionsCombinationStruct, ION_USE_LOB_CHUNKS_NAME, val -> ((IonBool) val).booleanValue(), false);
         ionUseBigDecimals = getOrDefault(optionsCombinationStruct, ION_USE_BIG_DECIMALS_NAME, val -> ((IonBool) val).booleanValue(), false);
         initialBufferSize = getOrDefault(optionsCombinationStruct, ION_READER_BUFFER_SIZE_NAME, val -> ((IonInt) val).intValue(), null);
+        ioReadSize = getOrDefault(optionsCombinationStruct, IO_READ_SIZE_NAME, val -> ((IonInt) val).intValue(), null);
+        jsonUseNonBlockingParser = getOrDefault(
+            optionsCombinationStruct,
+            JSON_USE_NON_BLOCKING_PARSER_NAME,
+            val -> ((IonBool) val).booleanValue(),
+            false
+        );
+        partitions = getOrDefault(optionsCombinationStruct, PARTITIONS_NAME, val -> ((IonInt) val).intValue(), null);
+        messages = getOrDefault(optionsCombinationStruct, MESSAGES_NAME, val -> ((IonBool) val).booleanValue(), false);
+        retainedSize = getOrDefault(optionsCombinationStruct, RETAINED_SIZE_NAME, val -> ((IonBool) val).booleanValue(), false);
     }
 
     @Override
@@ -1,5 +1,7 @@
 package com.amazon.ion.benchmark;
 
+import com.amazon.ion.IonBool;
+import com.amazon.ion.IonInt;
 import com.amazon.ion.IonStruct;
 
 import java.util.List;
@@ -11,7 +13,13 @@ import static com.amazon.ion.benchmark.Constants.ION_READER_NAME;
 import static com.amazon.ion.benchmark.Constants.ION_SYSTEM;
 import static com.amazon.ion.benchmark.Constants.ION_USE_BIG_DECIMALS_NAME;
 import static com.amazon.ion.benchmark.Constants.ION_USE_LOB_CHUNKS_NAME;
+import static com.amazon.ion.benchmark.Constants.IO_READ_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.IO_TYPE_NAME;
+import static com.amazon.ion.benchmark.Constants.JSON_USE_NON_BLOCKING_PARSER_NAME;
+import static com.amazon.ion.benchmark.Constants.MESSAGES_NAME;
+import static com.amazon.ion.benchmark.Constants.PARTITIONS_NAME;
 import static com.amazon.ion.benchmark.Constants.PATHS_NAME;
+import static com.amazon.ion.benchmark.Constants.RETAINED_SIZE_NAME;
 
 /**
  * Represents all read command options combinations, corresponding to all read benchmark trials. A single
@@ -84,6 +92,81 @@ class ReadOptionsMatrix extends OptionsMatrixBase {
                     IonReaderType.INCREMENTAL.name().equals(getStringValue(struct, ION_READER_NAME));
             }
         );
+        parseAndCombine(
+            optionsMatrix.get("--io-read-size"),
+            IO_READ_SIZE_NAME,
+            (s) -> {
+                Integer readSize = getIntOrAuto(s);
+                if (readSize != null && readSize < 1) {
+                    throw new IllegalArgumentException("--io-read-size must be at least 1, or auto.");
+                }
+                return readSize;
+            },
+            ION_SYSTEM::newInt,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
+            OPTION_ALWAYS_APPLIES
+        );
+        parseAndCombine(
+            optionsMatrix.get("--json-use-non-blocking-parser"),
+            JSON_USE_NON_BLOCKING_PARSER_NAME,
+            OptionsMatrixBase::getTrueOrNull,
+            ION_SYSTEM::newBool,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newBool(false),
+            OPTION_ONLY_APPLIES_TO_JSON
+        );
+        parseAndCombine(
+            optionsMatrix.get("--partitions"),
+            PARTITIONS_NAME,
+            (s) -> {
+                Integer partitions = getIntOrAuto(s);
+                if (partitions != null && partitions < 1) {
+                    throw new IllegalArgumentException("--partitions must be at least 1, or auto.");
+                }
+                return partitions;
+            },
+            ION_SYSTEM::newInt,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
+            (struct) -> {
+                // Partitions are sliced from the in-memory buffer, which is not read directly when --io-read-size is
+                // specified. Only full traversals are partitioned.
+                return OPTION_ONLY_APPLIES_TO_ION_BINARY.test(struct)
+                    && API.STREAMING.name().equals(getStringValue(struct, API_NAME))
+                    && IoType.BUFFER.name().equals(getStringValue(struct, IO_TYPE_NAME))
+                    && !(struct.get(IO_READ_SIZE_NAME) instanceof IonInt)
+                    && struct.get(PATHS_NAME) == null;
+            }
+        );
+        parseAndCombine(
+            optionsMatrix.get("--messages"),
+            MESSAGES_NAME,
+            OptionsMatrixBase::getTrueOrNull,
+            ION_SYSTEM::newBool,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newBool(false),
+            (struct) -> {
+                // Messages are sliced from the in-memory buffer and each is fully traversed by its own blocking reader.
+                IonBool useNonBlockingParser = (IonBool) struct.get(JSON_USE_NON_BLOCKING_PARSER_NAME);
+                return API.STREAMING.name().equals(getStringValue(struct, API_NAME))
+                    && IoType.BUFFER.name().equals(getStringValue(struct, IO_TYPE_NAME))
+                    && !(struct.get(IO_READ_SIZE_NAME) instanceof IonInt)
+                    && struct.get(PATHS_NAME) == null
+                    && !(struct.get(PARTITIONS_NAME) instanceof IonInt)
+                    && (useNonBlockingParser == null || !useNonBlockingParser.booleanValue());
+            }
+        );
+        parseAndCombine(
+            optionsMatrix.get("--retained-size"),
+            RETAINED_SIZE_NAME,
+            OptionsMatrixBase::getTrueOrNull,
+            ION_SYSTEM::newBool,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newBool(false),
+            // The retained size is measured by materializing the entire input as a DOM.
+            (struct) -> API.DOM.name().equals(getStringValue(struct, API_NAME)) && struct.get(PATHS_NAME) == null
+        );
     }
 
 }
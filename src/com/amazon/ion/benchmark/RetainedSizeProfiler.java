@@ -0,0 +1,147 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JMH Profiler plugin to measure the heap memory retained by the DOM materialized from the input data by read
+ * benchmarks that use --api dom and --retained-size true, i.e. the footprint of the decoded data if it were cached in
+ * memory. The DOM is materialized when the trial is set up, outside of any timed block, and kept reachable while the
+ * heap is garbage collected; the retained size is the difference between the heap usage after collection with and
+ * without it. Reports the retained size and the retained size per byte of input data. Nothing is reported for other
+ * benchmarks.
+ */
+public class RetainedSizeProfiler implements InternalProfiler {
+
+    /**
+     * Materializes a DOM, passing each of its top-level objects to the given consumer.
+     */
+    @FunctionalInterface
+    interface Materializer {
+        void materialize(SideEffectConsumer consumer) throws IOException;
+    }
+
+    // The objects that make up the most recently materialized DOM, which are kept reachable while it is measured.
+    private static List<Object> retained = null;
+    private static long retainedSize = -1;
+    private static long inputSize = -1;
+
+    /**
+     * @return the heap memory in use, in bytes, after a full garbage collection.
+     */
+    private static long usedHeapAfterGc() {
+        // A second collection reclaims objects that were only reachable from finalizable objects during the first.
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Materializes a DOM and records the heap memory it retains.
+     * @param materializer the code that materializes the DOM.
+     * @param inputSize the size, in bytes, of the data from which the DOM is materialized.
+     * @throws IOException if thrown while materializing the DOM.
+     */
+    static void measure(Materializer materializer, long inputSize) throws IOException {
+        // Materialize the DOM once without retaining it so that any state the library initializes and caches on first
+        // use (e.g. deserializers and symbol tables) is included in the baseline rather than the DOM's retained size.
+        materializer.materialize(SideEffectConsumer.NO_OP);
+        retained = new ArrayList<>();
+        long before = usedHeapAfterGc();
+        materializer.materialize(new SideEffectConsumer() {
+            @Override
+            public void consume(boolean b) {
+                // Primitives are not part of the DOM.
+            }
+
+            @Override
+            public void consume(int i) {
+                // Primitives are not part of the DOM.
+            }
+
+            @Override
+            public void consume(long l) {
+                // Primitives are not part of the DOM.
+            }
+
+            @Override
+            public void consume(float f) {
+                // Primitives are not part of the DOM.
+            }
+
+            @Override
+            public void consume(double d) {
+                // Primitives are not part of the DOM.
+            }
+
+            @Override
+            public void consume(Object o) {
+                retained.add(o);
+            }
+        });
+        long after = usedHeapAfterGc();
+        // The list that holds the top-level objects is included, but adds only one reference per top-level value.
+        RetainedSizeProfiler.retainedSize = Math.max(0, after - before);
+        RetainedSizeProfiler.inputSize = inputSize;
+        retained = null;
+    }
+
+    /**
+     * Discards the recorded size, if any, so that it is not reported for a subsequent benchmark in the same JVM. Note:
+     * the size must remain available until after the trial's final iteration, which JMH ends after tearing down the
+     * trial.
+     */
+    static void clear() {
+        retainedSize = -1;
+        inputSize = -1;
+    }
+
+    /**
+     * @return the retained size, in bytes, of the most recently measured DOM, or -1 if there is none.
+     */
+    static long getRetainedSize() {
+        return retainedSize;
+    }
+
+    @Override
+    public String getDescription() {
+        return "DOM retained size profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        // Nothing. The size is measured once per trial.
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult iterationResult
+    ) {
+        Collection<Result> results = new ArrayList<>();
+        if (retainedSize >= 0) {
+            results.add(new ScalarResult("Retained size", retainedSize / 1e6, "MB", AggregationPolicy.MAX));
+            if (inputSize > 0) {
+                results.add(new ScalarResult(
+                    "Retained size per input byte",
+                    (double) retainedSize / inputSize,
+                    "B/B",
+                    AggregationPolicy.MAX
+                ));
+            }
+        }
+        return results;
+    }
+}
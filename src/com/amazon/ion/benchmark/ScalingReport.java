@@ -0,0 +1,221 @@
+package com.amazon.ion.benchmark;
+
+import com.amazon.ion.IonInt;
+import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonValue;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.amazon.ion.benchmark.Constants.ION_SYSTEM;
+import static com.amazon.ion.benchmark.Constants.THREADS_NAME;
+
+/**
+ * Summarizes how the aggregate throughput of otherwise-identical options combinations scales along a single integer
+ * option (e.g. the number of threads or partitions). Combinations that differ only in the value of that option are grouped
+ * together, and each value is compared against the smallest value in its group.
+ */
+class ScalingReport {
+
+    /**
+     * The name of the allocation rate secondary result reported by JMH's GCProfiler.
+     */
+    private static final String ALLOCATION_RATE_RESULT = "\u00b7gc.alloc.rate";
+
+    /**
+     * The key for combinations that do not declare a value for the scaling option. Sorts before all valid values.
+     */
+    private static final int AUTO_FACTOR = 0;
+
+    /**
+     * The throughputs and allocation rate measured for a single options combination.
+     */
+    private static class Measurement {
+        final double aggregateThroughput;
+        final double minThreadThroughput;
+        final double maxThreadThroughput;
+        final Double allocationRate;
+
+        Measurement(double aggregateThroughput, double minThreadThroughput, double maxThreadThroughput, Double allocationRate) {
+            this.aggregateThroughput = aggregateThroughput;
+            this.minThreadThroughput = minThreadThroughput;
+            this.maxThreadThroughput = maxThreadThroughput;
+            this.allocationRate = allocationRate;
+        }
+    }
+
+    private final String optionName;
+
+    // Per-thread throughput is only meaningful when scaling by the number of JMH threads.
+    private final boolean reportsThreads;
+
+    // Maps each options combination (without the scaling option) to the measurements for each value of the scaling
+    // option, ordered by the options combinations' order of appearance.
+    private final Map<String, TreeMap<Integer, Measurement>> measurementsByBaseline = new LinkedHashMap<>();
+    private TimeUnit timeUnit = null;
+
+    /**
+     * @param optionName the short name of the integer option along which to measure scaling. Combinations that do
+     *                   not declare this option, or that declare it as 'auto', are listed first as 'auto' and are
+     *                   treated as if its value were 1 when computing efficiency.
+     */
+    ScalingReport(String optionName) {
+        this.optionName = optionName;
+        reportsThreads = THREADS_NAME.equals(optionName);
+    }
+
+    /**
+     * Converts a JMH score into a throughput in operations per time unit.
+     * @param mode the benchmark mode that produced the score.
+     * @param score the score. In Throughput mode, this is already a throughput. In all other modes, it is the time
+     *              taken per operation by a single thread.
+     * @param threads the number of threads that contributed to the score.
+     * @return the throughput.
+     */
+    private static double toThroughput(Mode mode, double score, int threads) {
+        return mode == Mode.Throughput ? score : threads / score;
+    }
+
+    /**
+     * Adds the given results to the report.
+     * @param runResults results from one or more JMH runs of Bench.
+     */
+    void addAll(Collection<RunResult> runResults) {
+        for (RunResult runResult : runResults) {
+            BenchmarkParams params = runResult.getParams();
+            IonStruct options = (IonStruct) ION_SYSTEM.singleValue(params.getParam("options"));
+            IonValue scalingValue = options.remove(optionName);
+            int scalingFactor = scalingValue instanceof IonInt ? ((IonInt) scalingValue).intValue() : AUTO_FACTOR;
+            timeUnit = params.getTimeUnit();
+            double aggregateThroughput = toThroughput(
+                params.getMode(),
+                runResult.getPrimaryResult().getScore(),
+                params.getThreads()
+            );
+            // JMH reports one raw result per thread for each iteration, but not in any particular thread order, so
+            // the slowest and fastest threads are found in each iteration and then averaged across all iterations of
+            // all forks.
+            double minThreadThroughput = 0;
+            double maxThreadThroughput = 0;
+            int iterations = 0;
+            for (BenchmarkResult benchmarkResult : runResult.getBenchmarkResults()) {
+                for (IterationResult iterationResult : benchmarkResult.getIterationResults()) {
+                    double iterationMin = Double.MAX_VALUE;
+                    double iterationMax = 0;
+                    for (Result threadResult : iterationResult.getRawPrimaryResults()) {
+                        double threadThroughput = toThroughput(params.getMode(), threadResult.getScore(), 1);
+                        iterationMin = Math.min(iterationMin, threadThroughput);
+                        iterationMax = Math.max(iterationMax, threadThroughput);
+                    }
+                    if (iterationMax > 0) {
+                        minThreadThroughput += iterationMin;
+                        maxThreadThroughput += iterationMax;
+                        iterations++;
+                    }
+                }
+            }
+            if (iterations > 0) {
+                minThreadThroughput /= iterations;
+                maxThreadThroughput /= iterations;
+            }
+            Result allocationRate = runResult.getSecondaryResults().get(ALLOCATION_RATE_RESULT);
+            measurementsByBaseline.computeIfAbsent(options.toString(), k -> new TreeMap<>()).put(
+                scalingFactor,
+                new Measurement(
+                    aggregateThroughput,
+                    minThreadThroughput,
+                    maxThreadThroughput,
+                    allocationRate == null ? null : allocationRate.getScore()
+                )
+            );
+        }
+    }
+
+    /**
+     * @return true if any of the added results used a value of the scaling option greater than 1.
+     */
+    boolean isScaled() {
+        return measurementsByBaseline.values().stream().anyMatch(measurements -> measurements.lastKey() > 1);
+    }
+
+    /**
+     * Prints the aggregate throughput, the allocation rate, the speedup, and the scaling efficiency of each measured
+     * value of the scaling option, and, when scaling by threads, the throughput of the slowest and fastest thread.
+     * Speedup is relative to the smallest measured value; efficiency is the speedup divided by the ratio of the value
+     * to the smallest value, such that perfectly linear scaling is reported as 100%.
+     * @param out the stream to which the report will be printed.
+     */
+    void print(PrintStream out) {
+        String throughputUnit = "ops/" + (timeUnit == null ? "" : timeUnit.name().toLowerCase());
+        out.println();
+        out.println("Scaling by " + optionName + " (throughput in " + throughputUnit + "):");
+        for (Map.Entry<String, TreeMap<Integer, Measurement>> entry : measurementsByBaseline.entrySet()) {
+            TreeMap<Integer, Measurement> measurements = entry.getValue();
+            int baselineFactor = Math.max(1, measurements.firstKey());
+            double baselineThroughput = measurements.firstEntry().getValue().aggregateThroughput;
+            out.println();
+            out.println(entry.getKey());
+            if (reportsThreads) {
+                out.println(String.format(
+                    "%10s %16s %16s %16s %14s %10s %12s",
+                    optionName,
+                    "aggregate",
+                    "thread min",
+                    "thread max",
+                    "alloc MB/sec",
+                    "speedup",
+                    "efficiency"
+                ));
+            } else {
+                out.println(String.format(
+                    "%10s %16s %14s %10s %12s",
+                    optionName,
+                    "aggregate",
+                    "alloc MB/sec",
+                    "speedup",
+                    "efficiency"
+                ));
+            }
+            for (Map.Entry<Integer, Measurement> row : measurements.entrySet()) {
+                Measurement measurement = row.getValue();
+                double speedup = measurement.aggregateThroughput / baselineThroughput;
+                double efficiency = speedup / ((double) Math.max(1, row.getKey()) / baselineFactor);
+                String factor = row.getKey() == AUTO_FACTOR ? Constants.AUTO_VALUE : row.getKey().toString();
+                String allocationRate = measurement.allocationRate == null
+                    ? "n/a"
+                    : String.format("%.3f", measurement.allocationRate);
+                if (reportsThreads) {
+                    out.println(String.format(
+                        "%10s %16.3f %16.3f %16.3f %14s %9.2fx %11.1f%%",
+                        factor,
+                        measurement.aggregateThroughput,
+                        measurement.minThreadThroughput,
+                        measurement.maxThreadThroughput,
+                        allocationRate,
+                        speedup,
+                        efficiency * 100
+                    ));
+                } else {
+                    out.println(String.format(
+                        "%10s %16.3f %14s %9.2fx %11.1f%%",
+                        factor,
+                        measurement.aggregateThroughput,
+                        allocationRate,
+                        speedup,
+                        efficiency * 100
+                    ));
+                }
+            }
+        }
+    }
+}
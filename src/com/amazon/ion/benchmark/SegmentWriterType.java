@@ -0,0 +1,19 @@
+package com.amazon.ion.benchmark;
+
+/**
+ * The writer used to write each segment of the input when write benchmarks are segmented (see --write-segment-size).
+ */
+enum SegmentWriterType {
+
+    /**
+     * Write each segment using a new writer, which is closed at the end of the segment. Each segment is written as a
+     * complete stream.
+     */
+    FRESH,
+
+    /**
+     * Write all segments in an iteration using the same writer, which is flushed at the end of each segment and closed
+     * at the end of the iteration. The segments together form a single stream.
+     */
+    CONTINUING
+}
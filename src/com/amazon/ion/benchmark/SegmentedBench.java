@@ -0,0 +1,76 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * JMH benchmark for a single segmented options combination (see --write-segment-size). Unlike {@link Bench}, each
+ * invocation measures the next segment of the input, which is prepared before the invocation outside of the timed
+ * block. This is a separate benchmark so that the overhead of invocation-level setup is only incurred by segmented
+ * options combinations.
+ */
+@State(Scope.Benchmark)
+public class SegmentedBench {
+
+    /**
+     * Name of the input file.
+     */
+    @Param({""})
+    private String input;
+
+    /**
+     * Serialized options combination.
+     */
+    @Param({"{}"})
+    private String options;
+
+    MeasurableTask measurableTask = null;
+    MeasurableTask.Task taskToMeasure = null;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws Exception {
+        OptionsCombinationBase optionsCombination = OptionsCombinationBase.from(options);
+        measurableTask = optionsCombination.createMeasurableTask(Paths.get(input));
+        measurableTask.setUpTrial();
+        taskToMeasure = measurableTask.getTask();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        measurableTask.tearDownTrial();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws IOException {
+        measurableTask.setUpIteration();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() throws IOException {
+        measurableTask.tearDownIteration();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws IOException {
+        measurableTask.setUpInvocation();
+    }
+
+    @Benchmark
+    public void run(
+        BlackholeSideEffectConsumer.PerThread consumers,
+        Blackhole blackhole,
+        ThreadParams threadParams
+    ) throws Exception {
+        taskToMeasure.run(consumers.forBlackhole(blackhole), threadParams.getThreadIndex());
+    }
+}
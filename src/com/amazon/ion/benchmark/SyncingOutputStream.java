@@ -0,0 +1,70 @@
+package com.amazon.ion.benchmark;
+
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * An OutputStream over a file that forces written data to the storage device using {@link FileChannel#force(boolean)}
+ * on close and, optionally, on every flush. The number of syncs and the time spent in them are reported to the
+ * {@link IoSyncProfiler}.
+ */
+class SyncingOutputStream extends FilterOutputStream {
+
+    private final FileChannel channel;
+    private final boolean syncOnFlush;
+    private boolean isClosed = false;
+
+    /**
+     * @param fileOutputStream the stream over the file to which the data will be written.
+     * @param out the stream through which data is written to fileOutputStream, e.g. a BufferedOutputStream. Must
+     *            flush all data to fileOutputStream when flushed.
+     * @param syncOnFlush true if data should be forced to the storage device on every flush; false if only on close.
+     */
+    SyncingOutputStream(FileOutputStream fileOutputStream, OutputStream out, boolean syncOnFlush) {
+        super(out);
+        this.channel = fileOutputStream.getChannel();
+        this.syncOnFlush = syncOnFlush;
+    }
+
+    /**
+     * Forces all data written to the file so far to the storage device. File metadata that is not required to read
+     * the data back (e.g. the modification time) is not forced.
+     * @throws IOException if thrown by the channel.
+     */
+    private void sync() throws IOException {
+        long start = System.nanoTime();
+        channel.force(false);
+        IoSyncProfiler.recordSync(System.nanoTime() - start);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // Note: FilterOutputStream's implementation writes one byte at a time.
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+        if (syncOnFlush) {
+            sync();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        try {
+            out.flush();
+            sync();
+        } finally {
+            out.close();
+        }
+    }
+}
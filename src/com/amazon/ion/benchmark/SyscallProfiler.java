@@ -0,0 +1,186 @@
+package com.amazon.ion.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JMH Profiler plugin to measure the I/O system calls issued during each iteration, using the counters Linux
+ * maintains in /proc/self/io. Reports the number of read and write system calls per operation, the average number of
+ * bytes transferred by each, and the number of bytes per operation actually read from or written to the storage layer
+ * (as opposed to served from or absorbed by the page cache). This shows how settings such as --io-buffer-size and
+ * --ion-reader-buffer-size change the number and size of the system calls made. The counters cover the whole process,
+ * so they include any I/O done by the benchmark harness itself, which is small relative to most benchmarks. Nothing is
+ * reported where /proc/self/io is not available, or for iterations that made no I/O system calls.
+ */
+public class SyscallProfiler implements InternalProfiler {
+
+    private static final Path PROC_SELF_IO = Paths.get("/proc/self/io");
+
+    // Bytes passed to read-like and write-like system calls, including those served by the page cache.
+    static final String READ_CHARS = "rchar";
+    static final String WRITE_CHARS = "wchar";
+    // The number of read-like and write-like system calls.
+    static final String READ_SYSCALLS = "syscr";
+    static final String WRITE_SYSCALLS = "syscw";
+    // Bytes actually fetched from or sent to the storage layer.
+    static final String STORAGE_READ_BYTES = "read_bytes";
+    static final String STORAGE_WRITE_BYTES = "write_bytes";
+
+    // The counters at the start of the iteration, or null if unavailable.
+    private Map<String, Long> countersBefore = null;
+
+    /**
+     * @param io the contents of a /proc/[pid]/io file, which contains one "name: value" counter per line.
+     * @return the value of each counter, by name.
+     */
+    static Map<String, Long> parseCounters(String io) {
+        Map<String, Long> counters = new HashMap<>();
+        for (String line : io.split("\n")) {
+            int separator = line.indexOf(':');
+            if (separator > 0) {
+                counters.put(line.substring(0, separator).trim(), Long.parseLong(line.substring(separator + 1).trim()));
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * @return the I/O counters of this process, by name, or null if unavailable.
+     */
+    private static Map<String, Long> readCounters() {
+        if (!Files.isReadable(PROC_SELF_IO)) {
+            return null;
+        }
+        try {
+            return parseCounters(new String(Files.readAllBytes(PROC_SELF_IO), StandardCharsets.US_ASCII));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param before the counters at the start of the iteration.
+     * @param after the counters at the end of the iteration.
+     * @param counter the name of a counter.
+     * @return the change in the given counter, or null if it is missing from either set of counters.
+     */
+    private static Long difference(Map<String, Long> before, Map<String, Long> after, String counter) {
+        Long start = before.get(counter);
+        Long end = after.get(counter);
+        return start == null || end == null ? null : end - start;
+    }
+
+    /**
+     * Computes the change in each I/O counter and adds the resulting statistics to the given results. Statistics that
+     * depend on a counter missing from either set of counters (e.g. the storage counters on kernels built without
+     * task I/O accounting) are skipped.
+     * @param before the counters at the start of the iteration.
+     * @param after the counters at the end of the iteration.
+     * @param operations the number of operations in the iteration.
+     * @param results the results.
+     */
+    static void addResults(
+        Map<String, Long> before,
+        Map<String, Long> after,
+        long operations,
+        Collection<Result> results
+    ) {
+        Long readSyscalls = difference(before, after, READ_SYSCALLS);
+        Long writeSyscalls = difference(before, after, WRITE_SYSCALLS);
+        if ((readSyscalls == null ? 0 : readSyscalls) + (writeSyscalls == null ? 0 : writeSyscalls) == 0) {
+            return;
+        }
+        if (readSyscalls != null) {
+            results.add(new ScalarResult(
+                "Read syscalls",
+                (double) readSyscalls / operations,
+                "#/op",
+                AggregationPolicy.AVG
+            ));
+            Long readChars = difference(before, after, READ_CHARS);
+            if (readSyscalls > 0 && readChars != null) {
+                results.add(new ScalarResult(
+                    "Bytes per read syscall",
+                    (double) readChars / readSyscalls,
+                    "B",
+                    AggregationPolicy.AVG
+                ));
+            }
+        }
+        if (writeSyscalls != null) {
+            results.add(new ScalarResult(
+                "Write syscalls",
+                (double) writeSyscalls / operations,
+                "#/op",
+                AggregationPolicy.AVG
+            ));
+            Long writeChars = difference(before, after, WRITE_CHARS);
+            if (writeSyscalls > 0 && writeChars != null) {
+                results.add(new ScalarResult(
+                    "Bytes per write syscall",
+                    (double) writeChars / writeSyscalls,
+                    "B",
+                    AggregationPolicy.AVG
+                ));
+            }
+        }
+        Long storageReadBytes = difference(before, after, STORAGE_READ_BYTES);
+        if (storageReadBytes != null) {
+            results.add(new ScalarResult(
+                "Storage bytes read",
+                (double) storageReadBytes / operations,
+                "B/op",
+                AggregationPolicy.AVG
+            ));
+        }
+        Long storageWriteBytes = difference(before, after, STORAGE_WRITE_BYTES);
+        if (storageWriteBytes != null) {
+            results.add(new ScalarResult(
+                "Storage bytes written",
+                (double) storageWriteBytes / operations,
+                "B/op",
+                AggregationPolicy.AVG
+            ));
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "I/O syscall profiler";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        countersBefore = readCounters();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult iterationResult
+    ) {
+        Map<String, Long> countersAfter = readCounters();
+        Collection<Result> results = new ArrayList<>();
+        long operations = iterationResult.getMetadata().getAllOps();
+        if (countersBefore != null && countersAfter != null && operations > 0) {
+            addResults(countersBefore, countersAfter, operations, results);
+        }
+        return results;
+    }
+}
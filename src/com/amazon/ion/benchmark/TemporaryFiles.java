@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -13,6 +14,8 @@ import java.util.stream.Collectors;
 final class TemporaryFiles {
 
     private static final Path tempDirectory;
+    // Unlike the temporary directory, the cache directory is retained across benchmark runs.
+    private static final Path cacheDirectory;
 
     static {
         File tempDir = new File(System.getProperty("java.io.tmpdir"));
@@ -21,6 +24,7 @@ final class TemporaryFiles {
         }
         File tempLogDir = new File(tempDir, "ion-java-benchmark");
         tempDirectory = tempLogDir.toPath();
+        cacheDirectory = new File(tempDir, "ion-java-benchmark-cache").toPath();
     }
 
     private TemporaryFiles() {
@@ -28,12 +32,13 @@ final class TemporaryFiles {
     }
 
     /**
-     * Delete all files within the temporary directory, then delete the temporary directory itself.
+     * Delete all files and subdirectories within the temporary directory, then delete the temporary directory itself.
      * @throws IOException if thrown while trying to delete any file or directory.
      */
     static void cleanUpTempDirectory() throws IOException {
         if (tempDirectory.toFile().isDirectory()) {
-            List<Path> files = Files.list(tempDirectory).collect(Collectors.toList());
+            // Sort in reverse order so that the contents of each directory are deleted before the directory itself.
+            List<Path> files = Files.walk(tempDirectory).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
             for (Path file : files) {
                 Files.deleteIfExists(file);
             }
@@ -52,6 +57,29 @@ final class TemporaryFiles {
         }
     }
 
+    /**
+     * Returns a subdirectory of the temporary directory, creating it if necessary. Like all other files in the
+     * temporary directory, the subdirectory is shared by all forks of a benchmark run and deleted by
+     * {@link #cleanUpTempDirectory()}.
+     * @param name the name of the subdirectory.
+     * @return Path to the subdirectory.
+     * @throws IOException if thrown while trying to create the directory.
+     */
+    static Path getTempDirectory(String name) throws IOException {
+        return Files.createDirectories(tempDirectory.resolve(name));
+    }
+
+    /**
+     * Returns a subdirectory of the cache directory, creating it if necessary. Files in the cache directory are not
+     * deleted by {@link #cleanUpTempDirectory()}, so they may be reused by subsequent benchmark runs.
+     * @param name the name of the subdirectory.
+     * @return Path to the subdirectory.
+     * @throws IOException if thrown while trying to create the directory.
+     */
+    static Path getCacheDirectory(String name) throws IOException {
+        return Files.createDirectories(cacheDirectory.resolve(name));
+    }
+
     /**
      * Create a new temporary file inside the temporary directory.
      * @param prefix name prefix for the new temporary file.
@@ -0,0 +1,41 @@
+package com.amazon.ion.benchmark;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An InputStream that returns at most a fixed number of bytes from each call to read, regardless of how many bytes
+ * are requested or available. This simulates data that arrives in pieces, e.g. over a socket.
+ */
+class TrickleInputStream extends FilterInputStream {
+
+    private final int maximumReadSize;
+
+    /**
+     * @param in the stream to read.
+     * @param maximumReadSize the maximum number of bytes to return from each call to read.
+     */
+    TrickleInputStream(InputStream in, int maximumReadSize) {
+        super(in);
+        if (maximumReadSize < 1) {
+            throw new IllegalArgumentException("Maximum read size must be positive.");
+        }
+        this.maximumReadSize = maximumReadSize;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, maximumReadSize));
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return super.skip(Math.min(n, maximumReadSize));
+    }
+
+    @Override
+    public int available() throws IOException {
+        return Math.min(super.available(), maximumReadSize);
+    }
+}
@@ -0,0 +1,23 @@
+package com.amazon.ion.benchmark;
+
+/**
+ * Whether and how the latency of each top-level value (or message) is recorded (see --value-latency).
+ */
+enum ValueLatencyMode {
+
+    /**
+     * Do not time individual values.
+     */
+    NONE,
+
+    /**
+     * Time each value and report the distribution of all latencies.
+     */
+    ALL,
+
+    /**
+     * Time each value and report the distribution of all latencies, and, where the size of each value is known, the
+     * distribution of the latencies of the values in each range of sizes.
+     */
+    BY_SIZE
+}
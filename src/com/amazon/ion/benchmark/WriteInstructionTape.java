@@ -0,0 +1,263 @@
+package com.amazon.ion.benchmark;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact, replayable sequence of write instructions. Each instruction is a one-byte opcode followed by its
+ * operands. Primitive operands are stored inline; all other operands are stored in a constant pool and referenced by
+ * index, with equal strings (e.g. repeated field names) sharing a single entry. The meaning of each opcode other than
+ * {@link #EXECUTE} and {@link #END_OF_VALUE} is defined by the {@link MeasurableWriteTask} that generates and replays
+ * the tape, which allows each task to replay the tape using a single loop specialized for its writer type rather than
+ * one interface call per instruction.
+ */
+final class WriteInstructionTape {
+
+    /**
+     * The opcode reserved for an arbitrary {@link MeasurableWriteTask.WriteInstruction}, which is stored in the
+     * constant pool. Subclasses of MeasurableWriteTask must not assign this value to any other opcode.
+     */
+    static final byte EXECUTE = 0;
+
+    /**
+     * The opcode reserved for marking the end of a top-level value, which is appended only when the latency of each
+     * value is measured (see {@link ValueLatencyMode}). Replaying it records the time since the end of the previous
+     * value (see {@link MeasurableWriteTask#recordValueLatency(long)}). Subclasses of MeasurableWriteTask must not
+     * assign this value to any other opcode.
+     */
+    static final byte END_OF_VALUE = -1;
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private final boolean isOffHeap;
+    private ByteBuffer instructions;
+    private Object[] constants = new Object[64];
+    private int numberOfConstants = 0;
+    // The constant pool index of each distinct string constant.
+    private final Map<String, Integer> stringConstantIndexes = new HashMap<>();
+
+    /**
+     * @param isOffHeap true if the opcodes and primitive operands should be stored in direct memory outside of the
+     *                  Java heap, which keeps them out of heap usage and garbage collection measurements.
+     */
+    WriteInstructionTape(boolean isOffHeap) {
+        this.isOffHeap = isOffHeap;
+        instructions = allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param capacity the capacity in bytes.
+     * @return a new ByteBuffer with the given capacity, allocated according to {@link #isOffHeap}.
+     */
+    private ByteBuffer allocate(int capacity) {
+        return isOffHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Ensures that the given number of bytes may be appended, growing the instruction buffer if necessary.
+     * @param numberOfBytes the number of bytes.
+     */
+    private void reserve(int numberOfBytes) {
+        if (instructions.remaining() >= numberOfBytes) {
+            return;
+        }
+        long requiredCapacity = (long) instructions.position() + numberOfBytes;
+        if (requiredCapacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException(
+                "The write instructions for this input exceed 2 GB. Use --limit to reduce the number of values written."
+            );
+        }
+        int newCapacity = (int) Math.min(Integer.MAX_VALUE, Math.max(requiredCapacity, 2L * instructions.capacity()));
+        ByteBuffer newInstructions = allocate(newCapacity);
+        // Cast to Buffer so that the resulting bytecode is compatible with Java 8, where ByteBuffer does not override
+        // flip().
+        ((Buffer) instructions).flip();
+        newInstructions.put(instructions);
+        instructions = newInstructions;
+    }
+
+    /**
+     * Appends an opcode with no operands.
+     * @param opcode the opcode.
+     */
+    void append(byte opcode) {
+        reserve(1);
+        instructions.put(opcode);
+    }
+
+    /**
+     * Appends an opcode with a one-byte operand.
+     * @param opcode the opcode.
+     * @param operand the operand.
+     */
+    void appendByte(byte opcode, byte operand) {
+        reserve(2);
+        instructions.put(opcode).put(operand);
+    }
+
+    /**
+     * Appends an opcode with an int operand.
+     * @param opcode the opcode.
+     * @param operand the operand.
+     */
+    void appendInt(byte opcode, int operand) {
+        reserve(1 + Integer.BYTES);
+        instructions.put(opcode).putInt(operand);
+    }
+
+    /**
+     * Appends an opcode with a long operand.
+     * @param opcode the opcode.
+     * @param operand the operand.
+     */
+    void appendLong(byte opcode, long operand) {
+        reserve(1 + Long.BYTES);
+        instructions.put(opcode).putLong(operand);
+    }
+
+    /**
+     * Appends an opcode with a double operand.
+     * @param opcode the opcode.
+     * @param operand the operand.
+     */
+    void appendDouble(byte opcode, double operand) {
+        reserve(1 + Double.BYTES);
+        instructions.put(opcode).putDouble(operand);
+    }
+
+    /**
+     * Appends an opcode with an operand that is stored in the constant pool.
+     * @param opcode the opcode.
+     * @param operand the operand.
+     */
+    void appendConstant(byte opcode, Object operand) {
+        appendInt(opcode, addConstant(operand));
+    }
+
+    /**
+     * Appends an opcode with a String operand that is stored in the constant pool, sharing the entry of any equal
+     * String that was previously appended.
+     * @param opcode the opcode.
+     * @param operand the operand.
+     */
+    void appendString(byte opcode, String operand) {
+        Integer index = stringConstantIndexes.get(operand);
+        if (index == null) {
+            index = addConstant(operand);
+            stringConstantIndexes.put(operand, index);
+        }
+        appendInt(opcode, index);
+    }
+
+    /**
+     * Appends an arbitrary instruction, which will be executed when the {@link #EXECUTE} opcode is replayed.
+     * @param instruction the instruction.
+     */
+    void appendInstruction(MeasurableWriteTask.WriteInstruction<?> instruction) {
+        appendConstant(EXECUTE, instruction);
+    }
+
+    /**
+     * @param constant a constant.
+     * @return the index of the constant in the constant pool.
+     */
+    private int addConstant(Object constant) {
+        if (numberOfConstants == constants.length) {
+            constants = Arrays.copyOf(constants, numberOfConstants * 2);
+        }
+        constants[numberOfConstants] = constant;
+        return numberOfConstants++;
+    }
+
+    /**
+     * Removes all instructions and constants, retaining the memory that holds the instructions for reuse.
+     */
+    void reset() {
+        ((Buffer) instructions).clear();
+        Arrays.fill(constants, 0, numberOfConstants, null);
+        numberOfConstants = 0;
+        stringConstantIndexes.clear();
+    }
+
+    /**
+     * Removes all instructions and constants, releasing the memory that holds them.
+     */
+    void clear() {
+        instructions = allocate(INITIAL_CAPACITY);
+        constants = new Object[64];
+        numberOfConstants = 0;
+        stringConstantIndexes.clear();
+    }
+
+    /**
+     * Creates a new cursor positioned at the first instruction. Each cursor is independent, so multiple threads may
+     * replay the tape concurrently as long as no instructions are appended.
+     * @return a new Cursor.
+     */
+    Cursor cursor() {
+        ByteBuffer view = instructions.duplicate();
+        ((Buffer) view).flip();
+        return new Cursor(view, constants);
+    }
+
+    /**
+     * Reads instructions from a tape in order. Callers read an opcode, then read the opcode's operands in the order
+     * and with the types in which they were appended.
+     */
+    static final class Cursor {
+        private final ByteBuffer instructions;
+        private final Object[] constants;
+
+        private Cursor(ByteBuffer instructions, Object[] constants) {
+            this.instructions = instructions;
+            this.constants = constants;
+        }
+
+        /**
+         * @return true if there is at least one more instruction.
+         */
+        boolean hasNext() {
+            return instructions.hasRemaining();
+        }
+
+        /**
+         * @return the next opcode or one-byte operand.
+         */
+        byte nextByte() {
+            return instructions.get();
+        }
+
+        /**
+         * @return the next int operand.
+         */
+        int nextInt() {
+            return instructions.getInt();
+        }
+
+        /**
+         * @return the next long operand.
+         */
+        long nextLong() {
+            return instructions.getLong();
+        }
+
+        /**
+         * @return the next double operand.
+         */
+        double nextDouble() {
+            return instructions.getDouble();
+        }
+
+        /**
+         * @param <V> the type of the constant.
+         * @return the next operand stored in the constant pool.
+         */
+        @SuppressWarnings("unchecked")
+        <V> V nextConstant() {
+            return (V) constants[instructions.getInt()];
+        }
+    }
+}
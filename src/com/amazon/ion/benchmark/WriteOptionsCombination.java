@@ -1,19 +1,52 @@
 package com.amazon.ion.benchmark;
 
+import com.amazon.ion.IonBool;
 import com.amazon.ion.IonInt;
 import com.amazon.ion.IonStruct;
+import com.amazon.ion.IonText;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
 
 import static com.amazon.ion.benchmark.Constants.ION_WRITER_BLOCK_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.IO_SYNC_NAME;
+import static com.amazon.ion.benchmark.Constants.OUTPUT_BUFFER_CHUNK_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.OUTPUT_BUFFER_NAME;
+import static com.amazon.ion.benchmark.Constants.PIPELINE_CHUNK_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.PIPELINE_QUEUE_DEPTH_NAME;
+import static com.amazon.ion.benchmark.Constants.WRITE_INSTRUCTIONS_OFF_HEAP_NAME;
+import static com.amazon.ion.benchmark.Constants.WRITE_SEGMENT_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.WRITE_SEGMENT_WRITER_NAME;
 
 /**
  * Represents a combination of write command options that corresponds to a single write benchmark trial.
  */
 class WriteOptionsCombination extends OptionsCombinationBase {
 
+    /**
+     * The default size in bytes of each chunk handed from the writer to the reader when --io-type pipeline is used.
+     */
+    static final int DEFAULT_PIPELINE_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The default number of chunks in the ring between the writer and the reader when --io-type pipeline is used.
+     */
+    static final int DEFAULT_PIPELINE_QUEUE_DEPTH = 16;
+
     final Integer ionWriterBlockSize;
+    final OutputBufferType outputBuffer;
+    final int outputBufferChunkSize;
+    final IoSyncType ioSync;
+    final boolean writeInstructionsOffHeap;
+    final Integer writeSegmentSize;
+    final SegmentWriterType writeSegmentWriter;
+    final int pipelineChunkSize;
+    final int pipelineQueueDepth;
 
     /**
      * @param serializedOptionsCombination text Ion representation of the options combination.
@@ -22,6 +55,51 @@ class WriteOptionsCombination extends OptionsCombinationBase {
         super(serializedOptionsCombination);
         IonStruct optionsCombinationStruct = (IonStruct) Constants.ION_SYSTEM.singleValue(serializedOptionsCombination);
         ionWriterBlockSize = getOrDefault(optionsCombinationStruct, ION_WRITER_BLOCK_SIZE_NAME, val -> ((IonInt) val).intValue(), null);
+        outputBuffer = getOrDefault(optionsCombinationStruct, OUTPUT_BUFFER_NAME, val -> OutputBufferType.valueOf(((IonText) val).stringValue()), OutputBufferType.NEW);
+        outputBufferChunkSize = getOrDefault(optionsCombinationStruct, OUTPUT_BUFFER_CHUNK_SIZE_NAME, val -> ((IonInt) val).intValue(), PooledByteArrayOutputStream.DEFAULT_CHUNK_SIZE);
+        ioSync = getOrDefault(optionsCombinationStruct, IO_SYNC_NAME, val -> IoSyncType.valueOf(((IonText) val).stringValue()), IoSyncType.NONE);
+        writeInstructionsOffHeap = getOrDefault(optionsCombinationStruct, WRITE_INSTRUCTIONS_OFF_HEAP_NAME, val -> ((IonBool) val).booleanValue(), false);
+        writeSegmentSize = getOrDefault(optionsCombinationStruct, WRITE_SEGMENT_SIZE_NAME, val -> ((IonInt) val).intValue(), null);
+        writeSegmentWriter = getOrDefault(optionsCombinationStruct, WRITE_SEGMENT_WRITER_NAME, val -> SegmentWriterType.valueOf(((IonText) val).stringValue()), SegmentWriterType.FRESH);
+        pipelineChunkSize = getOrDefault(optionsCombinationStruct, PIPELINE_CHUNK_SIZE_NAME, val -> ((IonInt) val).intValue(), DEFAULT_PIPELINE_CHUNK_SIZE);
+        pipelineQueueDepth = getOrDefault(optionsCombinationStruct, PIPELINE_QUEUE_DEPTH_NAME, val -> ((IonInt) val).intValue(), DEFAULT_PIPELINE_QUEUE_DEPTH);
+    }
+
+    /**
+     * Creates a new OutputStream over the given file, to which the benchmark output will be written. Unlike
+     * {@link #newOutputStream(File)}, the returned stream forces data to the storage device as required by
+     * {@link #ioSync}.
+     * @param file the file to be written. If the file already exists, it will be overwritten.
+     * @return a new OutputStream matching the options.
+     * @throws IOException if thrown when constructing the OutputStream.
+     */
+    OutputStream newBenchmarkOutputStream(File file) throws IOException {
+        if (ioSync == IoSyncType.NONE) {
+            return newOutputStream(file);
+        }
+        FileOutputStream fileOutputStream = new FileOutputStream(file, false);
+        OutputStream bufferedOutputStream = ioBufferSize == null
+            ? new BufferedOutputStream(fileOutputStream)
+            : new BufferedOutputStream(fileOutputStream, ioBufferSize);
+        return new SyncingOutputStream(fileOutputStream, bufferedOutputStream, ioSync == IoSyncType.FLUSH);
+    }
+
+    /**
+     * Creates a new output buffer that matches the options. Reused and pooled buffers are expected to be reset and
+     * reused by the caller across invocations.
+     * @return a new ByteArrayOutputStream.
+     */
+    ByteArrayOutputStream newOutputBuffer() {
+        if (outputBuffer == OutputBufferType.POOLED) {
+            return new PooledByteArrayOutputStream(outputBufferChunkSize);
+        }
+        return newByteArrayOutputStream();
+    }
+
+    @Override
+    boolean mayRequireConversion(Path inputFile) throws IOException {
+        // Write tasks only convert inputs that cannot be parsed by the format being written.
+        return !format.canParse(Format.classify(inputFile));
     }
 
     @Override
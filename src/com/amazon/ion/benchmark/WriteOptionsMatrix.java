@@ -1,12 +1,23 @@
 package com.amazon.ion.benchmark;
 
+import com.amazon.ion.IonInt;
 import com.amazon.ion.IonStruct;
 
 import java.util.List;
 import java.util.Map;
 
+import static com.amazon.ion.benchmark.Constants.API_NAME;
 import static com.amazon.ion.benchmark.Constants.ION_SYSTEM;
 import static com.amazon.ion.benchmark.Constants.ION_WRITER_BLOCK_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.IO_SYNC_NAME;
+import static com.amazon.ion.benchmark.Constants.IO_TYPE_NAME;
+import static com.amazon.ion.benchmark.Constants.OUTPUT_BUFFER_CHUNK_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.OUTPUT_BUFFER_NAME;
+import static com.amazon.ion.benchmark.Constants.PIPELINE_CHUNK_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.PIPELINE_QUEUE_DEPTH_NAME;
+import static com.amazon.ion.benchmark.Constants.WRITE_INSTRUCTIONS_OFF_HEAP_NAME;
+import static com.amazon.ion.benchmark.Constants.WRITE_SEGMENT_SIZE_NAME;
+import static com.amazon.ion.benchmark.Constants.WRITE_SEGMENT_WRITER_NAME;
 
 /**
  * Represents all write command options combinations, corresponding to all write benchmark trials. A single
@@ -22,6 +33,19 @@ class WriteOptionsMatrix extends OptionsMatrixBase {
         super("write", optionsMatrix);
     }
 
+    /**
+     * @param segmentSizeOrAuto a String representation of a positive integer, or 'auto'.
+     * @return null if the input is 'auto'; otherwise, the integer parsed from the input.
+     * @throws IllegalArgumentException if the input does not represent a positive integer or 'auto'.
+     */
+    private static Integer getSegmentSizeOrAuto(String segmentSizeOrAuto) {
+        Integer value = getIntOrAuto(segmentSizeOrAuto);
+        if (value != null && value < 1) {
+            throw new IllegalArgumentException("--write-segment-size must be at least 1.");
+        }
+        return value;
+    }
+
     @Override
     void parseCommandSpecificOptions(Map<String, Object> optionsMatrix, List<IonStruct> optionsCombinationStructs) {
         parseAndCombine(
@@ -33,6 +57,85 @@ class WriteOptionsMatrix extends OptionsMatrixBase {
             () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
             OPTION_ONLY_APPLIES_TO_ION_BINARY
         );
+        parseAndCombine(
+            optionsMatrix.get("--output-buffer"),
+            OUTPUT_BUFFER_NAME,
+            (s) -> OutputBufferType.valueOf(s.toUpperCase()),
+            (type) -> ION_SYSTEM.newSymbol(type.name()),
+            optionsCombinationStructs,
+            OptionsMatrixBase::noImplicitDefault,
+            s -> IoType.BUFFER.name().equals(getStringValue(s, IO_TYPE_NAME))
+        );
+        parseAndCombine(
+            optionsMatrix.get("--output-buffer-chunk-size"),
+            OUTPUT_BUFFER_CHUNK_SIZE_NAME,
+            OptionsMatrixBase::getIntOrAuto,
+            ION_SYSTEM::newInt,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
+            s -> OutputBufferType.POOLED.name().equals(getStringValue(s, OUTPUT_BUFFER_NAME))
+        );
+        parseAndCombine(
+            optionsMatrix.get("--io-sync"),
+            IO_SYNC_NAME,
+            (s) -> IoSyncType.valueOf(s.toUpperCase()),
+            (type) -> ION_SYSTEM.newSymbol(type.name()),
+            optionsCombinationStructs,
+            OptionsMatrixBase::noImplicitDefault,
+            s -> IoType.FILE.name().equals(getStringValue(s, IO_TYPE_NAME))
+        );
+        parseAndCombine(
+            optionsMatrix.get("--write-instructions-off-heap"),
+            WRITE_INSTRUCTIONS_OFF_HEAP_NAME,
+            OptionsMatrixBase::getTrueOrNull,
+            ION_SYSTEM::newBool,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newBool(false),
+            OPTION_ALWAYS_APPLIES
+        );
+        parseAndCombine(
+            optionsMatrix.get("--write-segment-size"),
+            WRITE_SEGMENT_SIZE_NAME,
+            WriteOptionsMatrix::getSegmentSizeOrAuto,
+            ION_SYSTEM::newInt,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
+            s -> API.STREAMING.name().equals(getStringValue(s, API_NAME))
+        );
+        for (IonStruct optionsCombinationStruct : optionsCombinationStructs) {
+            // Segments are prepared before each invocation, which JMH only supports for single-threaded benchmarks.
+            if (optionsCombinationStruct.get(WRITE_SEGMENT_SIZE_NAME) instanceof IonInt
+                && getThreads(optionsCombinationStruct) != 1) {
+                throw new IllegalArgumentException("--write-segment-size may not be used with more than one thread.");
+            }
+        }
+        parseAndCombine(
+            optionsMatrix.get("--write-segment-writer"),
+            WRITE_SEGMENT_WRITER_NAME,
+            (s) -> SegmentWriterType.valueOf(s.toUpperCase()),
+            (type) -> ION_SYSTEM.newSymbol(type.name()),
+            optionsCombinationStructs,
+            OptionsMatrixBase::noImplicitDefault,
+            s -> s.get(WRITE_SEGMENT_SIZE_NAME) instanceof IonInt
+        );
+        parseAndCombine(
+            optionsMatrix.get("--pipeline-chunk-size"),
+            PIPELINE_CHUNK_SIZE_NAME,
+            OptionsMatrixBase::getIntOrAuto,
+            ION_SYSTEM::newInt,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
+            s -> IoType.PIPELINE.name().equals(getStringValue(s, IO_TYPE_NAME))
+        );
+        parseAndCombine(
+            optionsMatrix.get("--pipeline-queue-depth"),
+            PIPELINE_QUEUE_DEPTH_NAME,
+            OptionsMatrixBase::getIntOrAuto,
+            ION_SYSTEM::newInt,
+            optionsCombinationStructs,
+            () -> ION_SYSTEM.newSymbol(Constants.AUTO_VALUE),
+            s -> IoType.PIPELINE.name().equals(getStringValue(s, IO_TYPE_NAME))
+        );
     }
 
 }
@@ -3,8 +3,12 @@ package com.amazon.ion.benchmark;
 import com.amazon.ion.IonDatagram;
 import com.amazon.ion.IonReader;
 import com.amazon.ion.IonSystem;
+import com.amazon.ion.IonValue;
+import com.amazon.ion.IonWriter;
 import com.amazon.ion.SymbolTable;
+import com.amazon.ion.system.IonBinaryWriterBuilder;
 import com.amazon.ion.system.IonReaderBuilder;
+import com.amazon.ion.system.IonSystemBuilder;
 import com.amazon.ion.util.Equivalence;
 import com.amazon.ion.util.IonStreamUtils;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -14,23 +18,48 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.IterationResultMetaData;
+import org.openjdk.jmh.results.Result;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertArrayEquals;
@@ -211,6 +240,7 @@ public class OptionsTest {
         Format format = Format.ION_BINARY;
         API api = API.STREAMING;
         Integer ioBufferSize = null;
+        Integer socketBufferSize = null;
         IoType ioType = IoType.FILE;
         String importsForInputFile = null;
         String importsForBenchmarkFile = null;
@@ -218,6 +248,9 @@ public class OptionsTest {
         boolean useSymbolTokens = false;
         Integer floatWidth = null;
         boolean jsonUseBigDecimals = true;
+        int threads = 1;
+        ConversionCacheScope conversionCacheScope = ConversionCacheScope.RUN;
+        long conversionCacheSize = ConversionCache.DEFAULT_MAXIMUM_SIZE;
 
         final T preallocation(Integer preallocation) {
             this.preallocation = preallocation;
@@ -279,6 +312,26 @@ public class OptionsTest {
             return (T) this;
         }
 
+        final T threads(int threads) {
+            this.threads = threads;
+            return (T) this;
+        }
+
+        final T socketBufferSize(Integer socketBufferSize) {
+            this.socketBufferSize = socketBufferSize;
+            return (T) this;
+        }
+
+        final T conversionCacheScope(ConversionCacheScope conversionCacheScope) {
+            this.conversionCacheScope = conversionCacheScope;
+            return (T) this;
+        }
+
+        final T conversionCacheSize(long conversionCacheSize) {
+            this.conversionCacheSize = conversionCacheSize;
+            return (T) this;
+        }
+
         void assertOptionsEqual(U that) {
             assertEquals(flushPeriod, that.flushPeriod);
             assertEquals(api, that.api);
@@ -291,6 +344,10 @@ public class OptionsTest {
             assertEquals(ioBufferSize, that.ioBufferSize);
             assertEquals(floatWidth, that.floatWidth);
             assertEquals(jsonUseBigDecimals, that.jsonUseBigDecimals);
+            assertEquals(threads, that.threads);
+            assertEquals(socketBufferSize, that.socketBufferSize);
+            assertEquals(conversionCacheScope, that.conversionCacheScope);
+            assertEquals(conversionCacheSize, that.conversionCacheSize);
         }
     }
 
@@ -305,6 +362,11 @@ public class OptionsTest {
         boolean useLobChunks = false;
         boolean useBigDecimals = false;
         Integer initialBufferSize = null;
+        Integer ioReadSize = null;
+        boolean jsonUseNonBlockingParser = false;
+        Integer partitions = null;
+        boolean messages = false;
+        boolean retainedSize = false;
 
         static ExpectedReadOptionsCombination defaultOptions() {
             return new ExpectedReadOptionsCombination();
@@ -335,6 +397,31 @@ public class OptionsTest {
             return this;
         }
 
+        final ExpectedReadOptionsCombination ioReadSize(Integer ioReadSize) {
+            this.ioReadSize = ioReadSize;
+            return this;
+        }
+
+        final ExpectedReadOptionsCombination jsonUseNonBlockingParser(boolean jsonUseNonBlockingParser) {
+            this.jsonUseNonBlockingParser = jsonUseNonBlockingParser;
+            return this;
+        }
+
+        final ExpectedReadOptionsCombination partitions(Integer partitions) {
+            this.partitions = partitions;
+            return this;
+        }
+
+        final ExpectedReadOptionsCombination messages(boolean messages) {
+            this.messages = messages;
+            return this;
+        }
+
+        final ExpectedReadOptionsCombination retainedSize(boolean retainedSize) {
+            this.retainedSize = retainedSize;
+            return this;
+        }
+
         @Override
         void assertOptionsEqual(ReadOptionsCombination that) {
             super.assertOptionsEqual(that);
@@ -343,6 +430,11 @@ public class OptionsTest {
             assertEquals(useLobChunks, that.useLobChunks);
             assertEquals(useBigDecimals, that.ionUseBigDecimals);
             assertEquals(initialBufferSize, that.initialBufferSize);
+            assertEquals(ioReadSize, that.ioReadSize);
+            assertEquals(jsonUseNonBlockingParser, that.jsonUseNonBlockingParser);
+            assertEquals(partitions, that.partitions);
+            assertEquals(messages, that.messages);
+            assertEquals(retainedSize, that.retainedSize);
         }
     }
 
@@ -354,6 +446,10 @@ public class OptionsTest {
 
         Integer ionWriterBlockSize = null;
         Boolean autoFlush = null;
+        OutputBufferType outputBuffer = OutputBufferType.NEW;
+        int outputBufferChunkSize = PooledByteArrayOutputStream.DEFAULT_CHUNK_SIZE;
+        IoSyncType ioSync = IoSyncType.NONE;
+        boolean writeInstructionsOffHeap = false;
 
         static ExpectedWriteOptionsCombination defaultOptions() {
             return new ExpectedWriteOptionsCombination();
@@ -369,10 +465,34 @@ public class OptionsTest {
             return this;
         }
 
+        final ExpectedWriteOptionsCombination outputBuffer(OutputBufferType outputBuffer) {
+            this.outputBuffer = outputBuffer;
+            return this;
+        }
+
+        final ExpectedWriteOptionsCombination outputBufferChunkSize(int outputBufferChunkSize) {
+            this.outputBufferChunkSize = outputBufferChunkSize;
+            return this;
+        }
+
+        final ExpectedWriteOptionsCombination ioSync(IoSyncType ioSync) {
+            this.ioSync = ioSync;
+            return this;
+        }
+
+        final ExpectedWriteOptionsCombination writeInstructionsOffHeap(boolean writeInstructionsOffHeap) {
+            this.writeInstructionsOffHeap = writeInstructionsOffHeap;
+            return this;
+        }
+
         @Override
         void assertOptionsEqual(WriteOptionsCombination that) {
             super.assertOptionsEqual(that);
             assertEquals(ionWriterBlockSize, that.ionWriterBlockSize);
+            assertEquals(outputBuffer, that.outputBuffer);
+            assertEquals(outputBufferChunkSize, that.outputBufferChunkSize);
+            assertEquals(ioSync, that.ioSync);
+            assertEquals(writeInstructionsOffHeap, that.writeInstructionsOffHeap);
         }
     }
 
@@ -427,13 +547,19 @@ public class OptionsTest {
         );
         task.setUpTrial();
         byte[] streamBytes;
-        if (optionsCombination.ioType == IoType.FILE) {
+        if (optionsCombination.ioType == IoType.BUFFER) {
+            assertNotNull(task.buffer);
+            assertNull(task.chunks);
+            streamBytes = task.buffer;
+        } else {
             assertNull(task.buffer);
+            assertEquals(
+                optionsCombination.ioType == IoType.MMAP || optionsCombination.ioType == IoType.OFF_HEAP,
+                task.chunks != null
+            );
+            assertEquals(optionsCombination.ioType == IoType.SOCKET, task.server != null);
             assertEquals(!isConversionRequired, inputPath.toFile().equals(task.inputFile));
             streamBytes = Files.readAllBytes(task.inputFile.toPath());
-        } else {
-            assertNotNull(task.buffer);
-            streamBytes = task.buffer;
         }
         assertFormat(streamBytes, expectedFormat);
         if (expectedFormat.canParse(Format.classify(inputPath))) {
@@ -455,9 +581,14 @@ public class OptionsTest {
         callable.run(SideEffectConsumer.NO_OP);
         task.tearDownIteration();
         task.tearDownTrial();
-        if (isConversionRequired && optionsCombination.ioType == IoType.FILE) {
-            // Conversion was required, so the inputFile is a trial-specific temporary file. Ensure it is deleted.
-            assertFalse(task.inputFile.exists());
+        assertNull(task.chunks);
+        if (isConversionRequired && optionsCombination.ioType != IoType.BUFFER) {
+            // Conversion was required, so the inputFile is a converted file. It is deleted only if conversions are
+            // not cached; otherwise, it is retained for reuse by other trials.
+            assertEquals(
+                optionsCombination.conversionCacheScope != ConversionCacheScope.NONE,
+                task.inputFile.exists()
+            );
         }
         // Verify that the original file was not deleted.
         assertTrue(inputPath.toFile().exists());
@@ -496,25 +627,27 @@ public class OptionsTest {
         MeasurableTask.Task callable = task.getTask();
         task.setUpIteration();
         if (expectedIoType == IoType.FILE) {
-            assertTrue(task.currentFile.exists());
-            assertNull(task.currentBuffer);
+            assertEquals(optionsCombination.threads, task.currentFiles.length);
+            assertTrue(task.currentFiles[0].exists());
+            assertNull(task.currentBuffers);
         } else {
-            assertNull(task.currentFile);
+            assertNull(task.currentFiles);
             // No preparation is needed for the buffer.
-            assertNull(task.currentBuffer);
+            assertEquals(optionsCombination.threads, task.currentBuffers.length);
+            assertNull(task.currentBuffers[0]);
         }
         callable.run(SideEffectConsumer.NO_OP);
         File outputFile = null;
         byte[] outputBytes;
         if (expectedIoType == IoType.FILE) {
-            assertNull(task.currentBuffer);
-            assertNotNull(task.currentFile);
-            outputFile = task.currentFile;
-            outputBytes = Files.readAllBytes(task.currentFile.toPath());
+            assertNull(task.currentBuffers);
+            assertNotNull(task.currentFiles[0]);
+            outputFile = task.currentFiles[0];
+            outputBytes = Files.readAllBytes(outputFile.toPath());
         } else {
-            assertNull(task.currentFile);
-            assertNotNull(task.currentBuffer);
-            outputBytes = task.currentBuffer.toByteArray();
+            assertNull(task.currentFiles);
+            assertNotNull(task.currentBuffers[0]);
+            outputBytes = task.currentBuffers[0].toByteArray();
         }
         assertFormat(outputBytes, expectedOutputFormat);
         assertDataEquals(expectedOutputFormat, task.inputFile, outputBytes, optionsCombination);
@@ -532,8 +665,9 @@ public class OptionsTest {
             assertFalse(outputFile.exists());
             assertTrue(task.inputFile.exists());
         }
-        assertNull(task.currentFile);
-        assertNull(task.currentBuffer);
+        assertNull(task.currentFiles);
+        assertNull(task.currentBuffers);
+        assertNull(task.currentSinks);
     }
 
     /**
@@ -591,6 +725,21 @@ public class OptionsTest {
         return lhs.equals(rhs);
     }
 
+    /**
+     * Ends an iteration of the given profiler, as if the given number of operations had been performed.
+     * @param profiler the profiler.
+     * @param operations the number of operations in the iteration.
+     * @return the scores of the results reported by the profiler, by label.
+     */
+    private static Map<String, Double> scoresAfterIteration(InternalProfiler profiler, long operations) {
+        Map<String, Double> scores = new HashMap<>();
+        IterationResult iterationResult = new IterationResult(null, null, new IterationResultMetaData(operations, operations));
+        for (Result result : profiler.afterIteration(null, null, iterationResult)) {
+            scores.put(result.getLabel(), result.getScore());
+        }
+        return scores;
+    }
+
     @Before
     public void prepareTemporaryDirectory() throws IOException {
         TemporaryFiles.prepareTempDirectory();
@@ -2064,6 +2213,2277 @@ public class OptionsTest {
         assertTrue(expectedCombinations.isEmpty());
     }
 
+    @Test
+    public void readWithMultipleThreads() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--threads",
+            "1",
+            "--threads",
+            "4",
+            "--io-type",
+            "buffer",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "binaryStructs.10n"
+        );
+        assertEquals(4, optionsCombinations.size());
+        List<ExpectedReadOptionsCombination> expectedCombinations = new ArrayList<>(4);
+        expectedCombinations.add(ExpectedReadOptionsCombination.defaultOptions().ioType(IoType.BUFFER).api(API.STREAMING).threads(1));
+        expectedCombinations.add(ExpectedReadOptionsCombination.defaultOptions().ioType(IoType.BUFFER).api(API.STREAMING).threads(4));
+        expectedCombinations.add(ExpectedReadOptionsCombination.defaultOptions().ioType(IoType.BUFFER).api(API.DOM).threads(1));
+        expectedCombinations.add(ExpectedReadOptionsCombination.defaultOptions().ioType(IoType.BUFFER).api(API.DOM).threads(4));
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            expectedCombinations.removeIf(candidate -> candidate.api == optionsCombination.api && candidate.threads == optionsCombination.threads);
+            assertReadTaskExecutesCorrectly("binaryStructs.10n", optionsCombination, Format.ION_BINARY, false);
+        }
+        assertTrue(expectedCombinations.isEmpty());
+    }
+
+    /**
+     * Executes the given task concurrently using the number of threads specified by the options, asserting that no
+     * thread raises an exception.
+     * @param measurableTask the task to execute, which must have already been set up for the trial.
+     * @param optionsCombination the options from which the task was created.
+     * @throws Exception if an unexpected error occurs.
+     */
+    private static void assertTaskExecutesConcurrently(
+        MeasurableTask measurableTask,
+        OptionsCombinationBase optionsCombination
+    ) throws Exception {
+        MeasurableTask.Task task = measurableTask.getTask();
+        ExecutorService executor = Executors.newFixedThreadPool(optionsCombination.threads);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < optionsCombination.threads; i++) {
+                int threadIndex = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 10; j++) {
+                        task.run(SideEffectConsumer.NO_OP, threadIndex);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Object> future : futures) {
+                // Rethrows any exception raised by the task.
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void readTaskExecutesConcurrently() throws Exception {
+        ReadOptionsCombination optionsCombination = parseSingleOptionsCombination(
+            "read",
+            "--threads",
+            "4",
+            "--io-type",
+            "buffer",
+            "--ion-use-lob-chunks",
+            "true",
+            "binaryLargeLobs.10n"
+        );
+        assertEquals(4, optionsCombination.threads);
+        MeasurableTask measurableTask = optionsCombination.createMeasurableTask(fileInTestDirectory("binaryLargeLobs.10n"));
+        measurableTask.setUpTrial();
+        measurableTask.setUpIteration();
+        assertTaskExecutesConcurrently(measurableTask, optionsCombination);
+        measurableTask.tearDownIteration();
+        measurableTask.tearDownTrial();
+    }
+
+    @Test
+    public void writeTaskExecutesConcurrently() throws Exception {
+        List<WriteOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "write",
+            "--threads",
+            "4",
+            "--io-type",
+            "buffer",
+            "--io-type",
+            "file",
+            "binaryStructs.10n"
+        );
+        assertEquals(2, optionsCombinations.size());
+        for (WriteOptionsCombination optionsCombination : optionsCombinations) {
+            ExpectedWriteOptionsCombination.defaultOptions()
+                .threads(4)
+                .ioType(optionsCombination.ioType)
+                .assertOptionsEqual(optionsCombination);
+            MeasurableWriteTask<?> task = (MeasurableWriteTask<?>) optionsCombination.createMeasurableTask(
+                fileInTestDirectory("binaryStructs.10n")
+            );
+            task.setUpTrial();
+            task.setUpIteration();
+            assertTaskExecutesConcurrently(task, optionsCombination);
+            // Each thread must have written the complete data to its own output.
+            for (int i = 0; i < optionsCombination.threads; i++) {
+                byte[] outputBytes;
+                if (optionsCombination.ioType == IoType.FILE) {
+                    outputBytes = Files.readAllBytes(task.currentFiles[i].toPath());
+                } else {
+                    outputBytes = task.currentBuffers[i].toByteArray();
+                }
+                assertDataEquals(Format.ION_BINARY, task.inputFile, outputBytes, optionsCombination);
+            }
+            File[] outputFiles = task.currentFiles;
+            task.tearDownIteration();
+            task.tearDownTrial();
+            if (outputFiles != null) {
+                for (File outputFile : outputFiles) {
+                    assertFalse(outputFile.exists());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void invalidThreadCountRaisesError() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> parseOptionsCombinations("read", "--threads", "0", "binaryStructs.10n")
+        );
+    }
+
+    @Test
+    public void readFromMemoryMappedFile() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--io-type",
+            "mmap",
+            "--io-buffer-size",
+            "16",
+            "--format",
+            "ion_binary",
+            "--format",
+            "ion_text",
+            "--format",
+            "json",
+            "--format",
+            "cbor",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "textStructs.ion"
+        );
+        assertEquals(8, optionsCombinations.size());
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            // The IO buffer size does not apply because the mapped file is read directly.
+            ExpectedReadOptionsCombination.defaultOptions()
+                .ioType(IoType.MMAP)
+                .format(optionsCombination.format)
+                .api(optionsCombination.api)
+                .assertOptionsEqual(optionsCombination);
+            assertReadTaskExecutesCorrectly(
+                "textStructs.ion",
+                optionsCombination,
+                optionsCombination.format,
+                optionsCombination.format != Format.ION_TEXT
+            );
+        }
+    }
+
+    @Test
+    public void readFromOffHeapBuffer() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--io-type",
+            "off_heap",
+            "--format",
+            "ion_binary",
+            "--format",
+            "json",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "--paths",
+            fileInTestDirectory("paths.ion").toString(),
+            "binaryStructs.10n"
+        );
+        assertEquals(4, optionsCombinations.size());
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            assertEquals(IoType.OFF_HEAP, optionsCombination.ioType);
+            assertReadTaskExecutesCorrectly(
+                "binaryStructs.10n",
+                optionsCombination,
+                optionsCombination.format,
+                optionsCombination.format != Format.ION_BINARY
+            );
+        }
+    }
+
+    @Test
+    public void byteBufferInputStreamSpansChunks() throws Exception {
+        ByteBuffer first = ByteBuffer.wrap(new byte[]{0, 1, 2});
+        ByteBuffer empty = ByteBuffer.allocateDirect(0);
+        ByteBuffer second = ByteBuffer.allocateDirect(4);
+        second.put(new byte[]{3, 4, 5, (byte) 0xFF});
+        second.flip();
+        try (InputStream input = new ByteBufferInputStream(first, empty, second)) {
+            assertEquals(0, input.read());
+            assertEquals(2, input.skip(2));
+            byte[] bytes = new byte[8];
+            assertEquals(4, input.read(bytes, 0, bytes.length));
+            assertArrayEquals(new byte[]{3, 4, 5, (byte) 0xFF, 0, 0, 0, 0}, bytes);
+            assertEquals(-1, input.read());
+        }
+        // The stream reads from duplicates of the buffers.
+        assertEquals(0, first.position());
+        assertEquals(0, second.position());
+    }
+
+    @Test
+    public void writeToMemoryMappedFileRaisesError() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> parseOptionsCombinations("write", "--io-type", "mmap", "binaryStructs.10n")
+        );
+    }
+
+    @Test
+    public void writeToOffHeapBufferRaisesError() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> parseOptionsCombinations("write", "--io-type", "off_heap", "binaryStructs.10n")
+        );
+    }
+
+    /**
+     * Executes a single invocation of a write task with the given options, which must use either the buffer or discard
+     * IO type.
+     * @param optionsCombination the options from which to create the task.
+     * @param inputFileName the file to write.
+     * @return the number of bytes written by the invocation.
+     * @throws Exception if an unexpected error occurs.
+     */
+    private static long executeWriteTaskAndGetSerializedSize(
+        WriteOptionsCombination optionsCombination,
+        String inputFileName
+    ) throws Exception {
+        MeasurableWriteTask<?> task = (MeasurableWriteTask<?>) optionsCombination.createMeasurableTask(
+            fileInTestDirectory(inputFileName)
+        );
+        task.setUpTrial();
+        task.setUpIteration();
+        task.getTask().run(SideEffectConsumer.NO_OP);
+        long serializedSize;
+        if (optionsCombination.ioType == IoType.DISCARD || optionsCombination.ioType == IoType.SOCKET) {
+            assertNull(task.currentFiles);
+            assertNull(task.currentBuffers);
+            serializedSize = task.currentSinks[0].getCount();
+        } else {
+            assertNull(task.currentSinks);
+            serializedSize = task.currentBuffers[0].size();
+        }
+        task.tearDownIteration();
+        task.tearDownTrial();
+        assertNull(task.currentSinks);
+        return serializedSize;
+    }
+
+    @Test
+    public void writeToDiscardSink() throws Exception {
+        List<WriteOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "write",
+            "--io-type",
+            "discard",
+            "--io-type",
+            "buffer",
+            "--format",
+            "ion_binary",
+            "--format",
+            "ion_text",
+            "--format",
+            "json",
+            "--format",
+            "cbor",
+            "textStructs.ion"
+        );
+        assertEquals(8, optionsCombinations.size());
+        for (WriteOptionsCombination discardOptions : optionsCombinations) {
+            if (discardOptions.ioType != IoType.DISCARD) {
+                continue;
+            }
+            // The discard sink must count exactly the bytes that would have been written to a buffer.
+            WriteOptionsCombination bufferOptions = null;
+            for (WriteOptionsCombination candidate : optionsCombinations) {
+                if (candidate.ioType == IoType.BUFFER && candidate.format == discardOptions.format) {
+                    bufferOptions = candidate;
+                }
+            }
+            assertNotNull(bufferOptions);
+            long discardedSize = executeWriteTaskAndGetSerializedSize(discardOptions, "textStructs.ion");
+            assertTrue(discardedSize > 0);
+            assertEquals(executeWriteTaskAndGetSerializedSize(bufferOptions, "textStructs.ion"), discardedSize);
+        }
+    }
+
+    @Test
+    public void readFromSocket() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--io-type",
+            "socket",
+            "--io-type",
+            "buffer",
+            "--socket-buffer-size",
+            "auto",
+            "--socket-buffer-size",
+            "4096",
+            "--io-buffer-size",
+            "auto",
+            "--io-buffer-size",
+            "16",
+            "--format",
+            "ion_binary",
+            "--format",
+            "json",
+            "textStructs.ion"
+        );
+        // --socket-buffer-size and --io-buffer-size do not apply to the BUFFER IoType.
+        assertEquals(10, optionsCombinations.size());
+        List<ExpectedReadOptionsCombination> expectedCombinations = new ArrayList<>(10);
+        for (Format format : Arrays.asList(Format.ION_BINARY, Format.JSON)) {
+            expectedCombinations.add(ExpectedReadOptionsCombination.defaultOptions().format(format).ioType(IoType.BUFFER));
+            for (Integer socketBufferSize : Arrays.asList(null, 4096)) {
+                for (Integer ioBufferSize : Arrays.asList(null, 16)) {
+                    expectedCombinations.add(
+                        ExpectedReadOptionsCombination.defaultOptions()
+                            .format(format)
+                            .ioType(IoType.SOCKET)
+                            .socketBufferSize(socketBufferSize)
+                            .ioBufferSize(ioBufferSize)
+                    );
+                }
+            }
+        }
+        Map<Format, List<String>> expectedValuesByFormat = new HashMap<>();
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            expectedCombinations.removeIf(candidate -> candidate.format == optionsCombination.format
+                && candidate.ioType == optionsCombination.ioType
+                && nullSafeEquals(candidate.socketBufferSize, optionsCombination.socketBufferSize)
+                && nullSafeEquals(candidate.ioBufferSize, optionsCombination.ioBufferSize)
+            );
+            assertReadTaskExecutesCorrectly("textStructs.ion", optionsCombination, optionsCombination.format, true);
+            // The data received over the socket must be identical to the data read from the buffer.
+            List<String> values = executeReadTaskAndRecordValues("textStructs.ion", optionsCombination);
+            assertFalse(values.isEmpty());
+            List<String> expectedValues = expectedValuesByFormat.putIfAbsent(optionsCombination.format, values);
+            if (expectedValues != null) {
+                assertEquals(expectedValues, values);
+            }
+        }
+        assertTrue(expectedCombinations.isEmpty());
+    }
+
+    @Test
+    public void readFromSocketConcurrently() throws Exception {
+        ReadOptionsCombination optionsCombination = parseSingleOptionsCombination(
+            "read",
+            "--threads",
+            "4",
+            "--io-type",
+            "socket",
+            "--socket-buffer-size",
+            "1024",
+            "binaryLargeLobs.10n"
+        );
+        MeasurableReadTask measurableTask = (MeasurableReadTask) optionsCombination.createMeasurableTask(
+            fileInTestDirectory("binaryLargeLobs.10n")
+        );
+        measurableTask.setUpTrial();
+        measurableTask.setUpIteration();
+        assertTaskExecutesConcurrently(measurableTask, optionsCombination);
+        measurableTask.tearDownIteration();
+        measurableTask.tearDownTrial();
+        assertNull(measurableTask.server);
+    }
+
+    @Test
+    public void writeToSocket() throws Exception {
+        List<WriteOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "write",
+            "--io-type",
+            "socket",
+            "--io-type",
+            "buffer",
+            "--socket-buffer-size",
+            "2048",
+            "--format",
+            "ion_binary",
+            "--format",
+            "json",
+            "--format",
+            "cbor",
+            "textStructs.ion"
+        );
+        assertEquals(6, optionsCombinations.size());
+        for (WriteOptionsCombination socketOptions : optionsCombinations) {
+            if (socketOptions.ioType != IoType.SOCKET) {
+                continue;
+            }
+            assertEquals(Integer.valueOf(2048), socketOptions.socketBufferSize);
+            // Exactly the bytes that would have been written to a buffer must be sent over the socket.
+            WriteOptionsCombination bufferOptions = null;
+            for (WriteOptionsCombination candidate : optionsCombinations) {
+                if (candidate.ioType == IoType.BUFFER && candidate.format == socketOptions.format) {
+                    bufferOptions = candidate;
+                }
+            }
+            assertNotNull(bufferOptions);
+            assertNull(bufferOptions.socketBufferSize);
+            long sentSize = executeWriteTaskAndGetSerializedSize(socketOptions, "textStructs.ion");
+            assertTrue(sentSize > 0);
+            assertEquals(executeWriteTaskAndGetSerializedSize(bufferOptions, "textStructs.ion"), sentSize);
+        }
+    }
+
+    @Test
+    public void writeWithSync() throws Exception {
+        List<WriteOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "write",
+            "--io-type",
+            "file",
+            "--io-type",
+            "buffer",
+            "--io-sync",
+            "none",
+            "--io-sync",
+            "flush",
+            "--io-sync",
+            "close",
+            "--ion-flush-period",
+            "1",
+            "--format",
+            "ion_binary",
+            "--format",
+            "json",
+            "--format",
+            "cbor",
+            "textStructs.ion"
+        );
+        // --io-sync does not apply to the BUFFER IoType.
+        assertEquals(12, optionsCombinations.size());
+        List<ExpectedWriteOptionsCombination> expectedCombinations = new ArrayList<>(12);
+        for (Format format : Arrays.asList(Format.ION_BINARY, Format.JSON, Format.CBOR)) {
+            expectedCombinations.add(
+                ExpectedWriteOptionsCombination.defaultOptions().format(format).ioType(IoType.BUFFER).flushPeriod(1)
+            );
+            for (IoSyncType ioSync : IoSyncType.values()) {
+                expectedCombinations.add(
+                    ExpectedWriteOptionsCombination.defaultOptions()
+                        .format(format)
+                        .ioType(IoType.FILE)
+                        .ioSync(ioSync)
+                        .flushPeriod(1)
+                );
+            }
+        }
+        for (WriteOptionsCombination optionsCombination : optionsCombinations) {
+            expectedCombinations.removeIf(candidate -> candidate.format == optionsCombination.format
+                && candidate.ioType == optionsCombination.ioType
+                && candidate.ioSync == optionsCombination.ioSync
+                && nullSafeEquals(candidate.flushPeriod, optionsCombination.flushPeriod)
+            );
+            IoSyncProfiler profiler = new IoSyncProfiler();
+            profiler.beforeIteration(null, null);
+            assertWriteTaskExecutesCorrectly("textStructs.ion", optionsCombination, optionsCombination.format, optionsCombination.ioType);
+            // Nothing is reported for iterations without syncs.
+            long syncCount = scoresAfterIteration(profiler, 1).getOrDefault("Sync count", 0.0).longValue();
+            switch (optionsCombination.ioSync) {
+                case NONE:
+                    assertEquals(0, syncCount);
+                    break;
+                case CLOSE:
+                    assertEquals(1, syncCount);
+                    break;
+                case FLUSH:
+                    // At least one sync after each of the two top-level values, plus one on close.
+                    assertTrue(syncCount >= 3);
+                    break;
+            }
+        }
+        assertTrue(expectedCombinations.isEmpty());
+    }
+
+    @Test
+    public void writeWithOffHeapInstructions() throws Exception {
+        List<WriteOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "write",
+            "--io-type",
+            "buffer",
+            "--write-instructions-off-heap",
+            "true",
+            "--write-instructions-off-heap",
+            "false",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "--ion-use-symbol-tokens",
+            "true",
+            "--ion-flush-period",
+            "1",
+            "--format",
+            "ion_binary",
+            "--format",
+            "ion_text",
+            "--format",
+            "json",
+            "--format",
+            "cbor",
+            "textStructs.ion"
+        );
+        assertEquals(16, optionsCombinations.size());
+        List<ExpectedWriteOptionsCombination> expectedCombinations = new ArrayList<>(16);
+        for (Format format : Format.values()) {
+            for (API api : API.values()) {
+                for (boolean writeInstructionsOffHeap : new boolean[]{true, false}) {
+                    expectedCombinations.add(
+                        ExpectedWriteOptionsCombination.defaultOptions()
+                            .format(format)
+                            .api(api)
+                            .ioType(IoType.BUFFER)
+                            .flushPeriod(1)
+                            .writeInstructionsOffHeap(writeInstructionsOffHeap)
+                    );
+                }
+            }
+        }
+        for (WriteOptionsCombination optionsCombination : optionsCombinations) {
+            expectedCombinations.removeIf(candidate -> candidate.format == optionsCombination.format
+                && candidate.api == optionsCombination.api
+                && candidate.writeInstructionsOffHeap == optionsCombination.writeInstructionsOffHeap
+            );
+            assertWriteTaskExecutesCorrectly("textStructs.ion", optionsCombination, optionsCombination.format, IoType.BUFFER);
+        }
+        assertTrue(expectedCombinations.isEmpty());
+    }
+
+    @Test
+    public void writeInstructionTapeRoundTrips() {
+        for (boolean isOffHeap : new boolean[]{true, false}) {
+            WriteInstructionTape tape = new WriteInstructionTape(isOffHeap);
+            MeasurableWriteTask.WriteInstruction<List<Object>> instruction = values -> values.add("executed");
+            // Enough instructions to require the tape to grow beyond its initial capacity.
+            for (int i = 0; i < 10000; i++) {
+                tape.append((byte) 1);
+                tape.appendByte((byte) 2, (byte) i);
+                tape.appendInt((byte) 3, i);
+                tape.appendLong((byte) 4, Long.MAX_VALUE - i);
+                tape.appendDouble((byte) 5, i / 2.0);
+                tape.appendString((byte) 6, "field" + (i % 10));
+                tape.appendConstant((byte) 7, BigInteger.valueOf(i));
+            }
+            tape.appendInstruction(instruction);
+            WriteInstructionTape.Cursor cursor = tape.cursor();
+            Object[] fieldNames = new Object[10];
+            for (int i = 0; i < 10000; i++) {
+                assertEquals(1, cursor.nextByte());
+                assertEquals(2, cursor.nextByte());
+                assertEquals((byte) i, cursor.nextByte());
+                assertEquals(3, cursor.nextByte());
+                assertEquals(i, cursor.nextInt());
+                assertEquals(4, cursor.nextByte());
+                assertEquals(Long.MAX_VALUE - i, cursor.nextLong());
+                assertEquals(5, cursor.nextByte());
+                assertEquals(i / 2.0, cursor.nextDouble(), 0.0);
+                assertEquals(6, cursor.nextByte());
+                Object fieldName = cursor.nextConstant();
+                assertEquals("field" + (i % 10), fieldName);
+                // Equal strings share a constant pool entry.
+                if (fieldNames[i % 10] == null) {
+                    fieldNames[i % 10] = fieldName;
+                }
+                assertSame(fieldNames[i % 10], fieldName);
+                assertEquals(7, cursor.nextByte());
+                assertEquals(BigInteger.valueOf(i), cursor.nextConstant());
+            }
+            assertEquals(WriteInstructionTape.EXECUTE, cursor.nextByte());
+            assertTrue(instruction == cursor.nextConstant());
+            assertFalse(cursor.hasNext());
+            // Each cursor is independent.
+            assertTrue(tape.cursor().hasNext());
+            tape.clear();
+            assertFalse(tape.cursor().hasNext());
+        }
+    }
+
+    @Test
+    public void writeSegmentOptions() throws Exception {
+        List<WriteOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "write",
+            "--write-segment-size",
+            "3",
+            "--write-segment-size",
+            "auto",
+            "--write-segment-writer",
+            "fresh",
+            "--write-segment-writer",
+            "continuing",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "--threads",
+            "1",
+            "textStructs.ion"
+        );
+        // Segments only apply to streaming combinations, and the segment writer only applies to segmented
+        // combinations.
+        assertEquals(4, optionsCombinations.size());
+        int numberOfSegmentedCombinations = 0;
+        for (WriteOptionsCombination optionsCombination : optionsCombinations) {
+            if (optionsCombination.writeSegmentSize != null) {
+                numberOfSegmentedCombinations++;
+                assertEquals(3, (int) optionsCombination.writeSegmentSize);
+                assertEquals(API.STREAMING, optionsCombination.api);
+                assertEquals(1, optionsCombination.threads);
+            } else {
+                assertEquals(SegmentWriterType.FRESH, optionsCombination.writeSegmentWriter);
+            }
+        }
+        assertEquals(2, numberOfSegmentedCombinations);
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> parseOptionsCombinations("write", "--write-segment-size", "0", "textStructs.ion")
+        );
+        // Segments cannot be written by multiple threads, so the combination is rejected rather than ignored.
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> parseOptionsCombinations("write", "--write-segment-size", "3", "--threads", "1", "--threads", "2", "textStructs.ion")
+        );
+        // Multiple threads may still be used when the input is not segmented, or with the DOM API.
+        assertEquals(1, parseOptionsCombinations("write", "--threads", "2", "textStructs.ion").size());
+        assertEquals(
+            1,
+            parseOptionsCombinations("write", "--write-segment-size", "auto", "--threads", "4", "textStructs.ion").size()
+        );
+        assertEquals(
+            1,
+            parseOptionsCombinations("write", "--write-segment-size", "3", "--api", "dom", "--threads", "2", "textStructs.ion").size()
+        );
+    }
+
+    @Test
+    public void segmentedWriteCyclesThroughInput() throws Exception {
+        Path inputPath = fileInTestDirectory("textStructs.ion");
+        int numberOfValues = Constants.ION_SYSTEM.getLoader().load(inputPath.toFile()).size();
+        int segmentSize = 3;
+        int numberOfSegments = (numberOfValues + segmentSize - 1) / segmentSize;
+        for (String format : new String[]{"ion_binary", "ion_text", "json", "cbor"}) {
+            for (SegmentWriterType segmentWriter : SegmentWriterType.values()) {
+                WriteOptionsCombination optionsCombination = parseSingleOptionsCombination(
+                    "write",
+                    "--io-type",
+                    "buffer",
+                    "--format",
+                    format,
+                    "--write-segment-size",
+                    Integer.toString(segmentSize),
+                    "--write-segment-writer",
+                    segmentWriter.name().toLowerCase(),
+                    "textStructs.ion"
+                );
+                MeasurableWriteTask<?> task = (MeasurableWriteTask<?>) optionsCombination.createMeasurableTask(inputPath);
+                assertTrue(task.isSegmented());
+                task.setUpTrial();
+                MeasurableTask.Task callable = task.getTask();
+                task.setUpIteration();
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] firstSegment = null;
+                for (int i = 0; i < numberOfSegments; i++) {
+                    task.setUpInvocation();
+                    callable.run(SideEffectConsumer.NO_OP);
+                    if (segmentWriter == SegmentWriterType.FRESH) {
+                        // Each segment is a complete stream written to its own buffer.
+                        byte[] segment = task.currentBuffers[0].toByteArray();
+                        if (firstSegment == null) {
+                            firstSegment = segment;
+                        }
+                        output.write(segment);
+                    }
+                }
+                if (segmentWriter == SegmentWriterType.CONTINUING) {
+                    ByteArrayOutputStream continuingOutput = task.currentBuffers[0];
+                    task.tearDownIteration();
+                    output = continuingOutput;
+                    task.setUpIteration();
+                }
+                // All segments together contain exactly the input data.
+                assertDataEquals(optionsCombination.format, task.inputFile, output.toByteArray(), optionsCombination);
+                // Once the input is exhausted, the segments start over from the beginning of the input.
+                task.setUpInvocation();
+                callable.run(SideEffectConsumer.NO_OP);
+                if (segmentWriter == SegmentWriterType.FRESH) {
+                    assertArrayEquals(firstSegment, task.currentBuffers[0].toByteArray());
+                }
+                task.tearDownIteration();
+                task.tearDownTrial();
+            }
+        }
+    }
+
+    @Test
+    public void segmentedWriteRespectsLimit() throws Exception {
+        Path inputPath = fileInTestDirectory("textStructs.ion");
+        WriteOptionsCombination optionsCombination = parseSingleOptionsCombination(
+            "write",
+            "--io-type",
+            "buffer",
+            "--format",
+            "ion_text",
+            "--limit",
+            "2",
+            "--write-segment-size",
+            "3",
+            "--write-segment-writer",
+            "continuing",
+            "textStructs.ion"
+        );
+        MeasurableWriteTask<?> task = (MeasurableWriteTask<?>) optionsCombination.createMeasurableTask(inputPath);
+        task.setUpTrial();
+        MeasurableTask.Task callable = task.getTask();
+        task.setUpIteration();
+        // Each segment is truncated to the limit, after which the segments start over.
+        for (int i = 0; i < 3; i++) {
+            task.setUpInvocation();
+            callable.run(SideEffectConsumer.NO_OP);
+        }
+        ByteArrayOutputStream output = task.currentBuffers[0];
+        task.tearDownIteration();
+        task.tearDownTrial();
+        IonDatagram expected = Constants.ION_SYSTEM.getLoader().load(inputPath.toFile());
+        IonDatagram actual = Constants.ION_SYSTEM.getLoader().load(output.toByteArray());
+        assertEquals(6, actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertTrue(Equivalence.ionEquals(expected.get(i % 2), actual.get(i)));
+        }
+    }
+
+    @Test
+    public void chunkRingHandsOffDataInOrder() throws Exception {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        ChunkRing ring = new ChunkRing(3, 1000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The ring is reused for consecutive streams.
+            for (int stream = 0; stream < 2; stream++) {
+                Future<byte[]> read = executor.submit(() -> {
+                    ByteArrayOutputStream received = new ByteArrayOutputStream();
+                    try (InputStream input = ring.newInputStream()) {
+                        byte[] buffer = new byte[777];
+                        int numberOfBytesRead;
+                        while ((numberOfBytesRead = input.read(buffer)) >= 0) {
+                            received.write(buffer, 0, numberOfBytesRead);
+                        }
+                    }
+                    return received.toByteArray();
+                });
+                try (OutputStream output = ring.newOutputStream()) {
+                    output.write(data[0]);
+                    output.write(data, 1, 5000);
+                    output.flush();
+                    output.write(data, 5001, data.length - 5001);
+                }
+                assertArrayEquals(data, read.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void writeToPipeline() throws Exception {
+        List<WriteOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "write",
+            "--io-type",
+            "pipeline",
+            "--io-type",
+            "buffer",
+            "--pipeline-chunk-size",
+            "256",
+            "--pipeline-queue-depth",
+            "2",
+            "--pipeline-queue-depth",
+            "auto",
+            "--format",
+            "ion_binary",
+            "--format",
+            "ion_text",
+            "--format",
+            "json",
+            "--format",
+            "cbor",
+            "binaryStructs.10n"
+        );
+        // The pipeline options only apply to the pipeline IO type.
+        assertEquals(12, optionsCombinations.size());
+        Path inputPath = fileInTestDirectory("binaryStructs.10n");
+        long expectedNumberOfValues = Constants.ION_SYSTEM.getLoader().load(inputPath.toFile()).size();
+        for (WriteOptionsCombination optionsCombination : optionsCombinations) {
+            if (optionsCombination.ioType != IoType.PIPELINE) {
+                assertEquals(WriteOptionsCombination.DEFAULT_PIPELINE_CHUNK_SIZE, optionsCombination.pipelineChunkSize);
+                assertEquals(WriteOptionsCombination.DEFAULT_PIPELINE_QUEUE_DEPTH, optionsCombination.pipelineQueueDepth);
+                continue;
+            }
+            assertEquals(256, optionsCombination.pipelineChunkSize);
+            MeasurableWriteTask<?> task = (MeasurableWriteTask<?>) optionsCombination.createMeasurableTask(inputPath);
+            task.setUpTrial();
+            MeasurableTask.Task callable = task.getTask();
+            task.setUpIteration();
+            PipelineProfiler profiler = new PipelineProfiler();
+            profiler.beforeIteration(null, null);
+            long[] numberOfValuesRead = new long[1];
+            callable.run(new SideEffectConsumer() {
+                @Override
+                public void consume(boolean b) {}
+
+                @Override
+                public void consume(int i) {}
+
+                @Override
+                public void consume(long l) {
+                    numberOfValuesRead[0] = l;
+                }
+
+                @Override
+                public void consume(float f) {}
+
+                @Override
+                public void consume(double d) {}
+
+                @Override
+                public void consume(Object o) {}
+            });
+            // The reader at the end of the pipeline reads every top-level value that was written.
+            assertEquals(expectedNumberOfValues, numberOfValuesRead[0]);
+            long serializedSize = task.currentSinks[0].getCount();
+            assertTrue(scoresAfterIteration(profiler, 1).get("Chunks") >= serializedSize / 256);
+            task.tearDownIteration();
+            task.tearDownTrial();
+        }
+    }
+
+    @Test
+    public void writeWithReusedAndPooledOutputBuffers() throws Exception {
+        List<WriteOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "write",
+            "--io-type",
+            "buffer",
+            "--io-type",
+            "file",
+            "--output-buffer",
+            "new",
+            "--output-buffer",
+            "reused",
+            "--output-buffer",
+            "pooled",
+            "--output-buffer-chunk-size",
+            "auto",
+            "--output-buffer-chunk-size",
+            "16",
+            "binaryStructs.10n"
+        );
+        assertEquals(5, optionsCombinations.size());
+        List<ExpectedWriteOptionsCombination> expectedCombinations = new ArrayList<>(5);
+        // --output-buffer does not apply to the FILE IoType.
+        expectedCombinations.add(ExpectedWriteOptionsCombination.defaultOptions().ioType(IoType.FILE));
+        expectedCombinations.add(ExpectedWriteOptionsCombination.defaultOptions().ioType(IoType.BUFFER));
+        expectedCombinations.add(ExpectedWriteOptionsCombination.defaultOptions().ioType(IoType.BUFFER).outputBuffer(OutputBufferType.REUSED));
+        expectedCombinations.add(ExpectedWriteOptionsCombination.defaultOptions().ioType(IoType.BUFFER).outputBuffer(OutputBufferType.POOLED));
+        expectedCombinations.add(ExpectedWriteOptionsCombination.defaultOptions().ioType(IoType.BUFFER).outputBuffer(OutputBufferType.POOLED).outputBufferChunkSize(16));
+        for (WriteOptionsCombination optionsCombination : optionsCombinations) {
+            expectedCombinations.removeIf(candidate -> candidate.ioType == optionsCombination.ioType
+                && candidate.outputBuffer == optionsCombination.outputBuffer
+                && candidate.outputBufferChunkSize == optionsCombination.outputBufferChunkSize
+            );
+            assertWriteTaskExecutesCorrectly("binaryStructs.10n", optionsCombination, Format.ION_BINARY, optionsCombination.ioType);
+            if (optionsCombination.ioType == IoType.BUFFER) {
+                // Multiple invocations must produce the same output, with reusable buffers reset between invocations.
+                MeasurableWriteTask<?> task = (MeasurableWriteTask<?>) optionsCombination.createMeasurableTask(
+                    fileInTestDirectory("binaryStructs.10n")
+                );
+                task.setUpTrial();
+                MeasurableTask.Task callable = task.getTask();
+                task.setUpIteration();
+                callable.run(SideEffectConsumer.NO_OP);
+                ByteArrayOutputStream firstBuffer = task.currentBuffers[0];
+                byte[] firstOutput = firstBuffer.toByteArray();
+                callable.run(SideEffectConsumer.NO_OP);
+                assertEquals(optionsCombination.outputBuffer != OutputBufferType.NEW, firstBuffer == task.currentBuffers[0]);
+                assertArrayEquals(firstOutput, task.currentBuffers[0].toByteArray());
+                task.tearDownIteration();
+                task.tearDownTrial();
+            }
+        }
+        assertTrue(expectedCombinations.isEmpty());
+    }
+
+    @Test
+    public void pooledByteArrayOutputStreamRecyclesChunks() throws Exception {
+        PooledByteArrayOutputStream output = new PooledByteArrayOutputStream(4);
+        byte[] bytes = new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        output.write(bytes, 0, 3);
+        output.write(3);
+        output.write(bytes, 4, 6);
+        assertEquals(10, output.size());
+        assertArrayEquals(bytes, output.toByteArray());
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        output.writeTo(copy);
+        assertArrayEquals(bytes, copy.toByteArray());
+        output.reset();
+        assertEquals(0, output.size());
+        assertArrayEquals(new byte[0], output.toByteArray());
+        output.write(bytes, 5, 5);
+        assertArrayEquals(new byte[]{5, 6, 7, 8, 9}, output.toByteArray());
+    }
+
+    @Test
+    public void readWithLimitedReadSizes() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--io-read-size",
+            "auto",
+            "--io-read-size",
+            "1",
+            "--io-read-size",
+            "7",
+            "--io-type",
+            "buffer",
+            "--io-type",
+            "file",
+            "--ion-reader",
+            "incremental",
+            "--ion-reader",
+            "non_incremental",
+            "binaryAllTypes.10n"
+        );
+        assertEquals(12, optionsCombinations.size());
+        List<ExpectedReadOptionsCombination> expectedCombinations = new ArrayList<>(12);
+        for (Integer ioReadSize : Arrays.asList(null, 1, 7)) {
+            for (IoType ioType : Arrays.asList(IoType.BUFFER, IoType.FILE)) {
+                for (IonReaderType readerType : IonReaderType.values()) {
+                    expectedCombinations.add(
+                        ExpectedReadOptionsCombination.defaultOptions()
+                            .ioReadSize(ioReadSize)
+                            .ioType(ioType)
+                            .readerType(readerType)
+                    );
+                }
+            }
+        }
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            expectedCombinations.removeIf(candidate -> nullSafeEquals(candidate.ioReadSize, optionsCombination.ioReadSize)
+                && candidate.ioType == optionsCombination.ioType
+                && candidate.readerType == optionsCombination.readerType
+            );
+            assertReadTaskExecutesCorrectly("binaryAllTypes.10n", optionsCombination, Format.ION_BINARY, false);
+        }
+        assertTrue(expectedCombinations.isEmpty());
+    }
+
+    /**
+     * A SideEffectConsumer that records the String representation of each value it consumes. May be used by multiple
+     * threads concurrently.
+     */
+    private static class RecordingSideEffectConsumer implements SideEffectConsumer {
+
+        final List<String> values = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void consume(boolean b) {
+            values.add(String.valueOf(b));
+        }
+
+        @Override
+        public void consume(int i) {
+            values.add(String.valueOf(i));
+        }
+
+        @Override
+        public void consume(long l) {
+            values.add(String.valueOf(l));
+        }
+
+        @Override
+        public void consume(float f) {
+            values.add(String.valueOf(f));
+        }
+
+        @Override
+        public void consume(double d) {
+            values.add(String.valueOf(d));
+        }
+
+        @Override
+        public void consume(Object o) {
+            values.add(String.valueOf(o));
+        }
+    }
+
+    /**
+     * Executes the given read task once and returns the values it consumed.
+     * @param inputFileName the name of the file in the test directory to read.
+     * @param optionsCombination the options to use when reading.
+     * @return the String representations of the consumed values, in order.
+     * @throws Exception if thrown while executing the task.
+     */
+    private static List<String> executeReadTaskAndRecordValues(
+        String inputFileName,
+        ReadOptionsCombination optionsCombination
+    ) throws Exception {
+        MeasurableReadTask task = (MeasurableReadTask) optionsCombination.createMeasurableTask(
+            fileInTestDirectory(inputFileName)
+        );
+        task.setUpTrial();
+        RecordingSideEffectConsumer consumer = new RecordingSideEffectConsumer();
+        MeasurableTask.Task callable = task.getTask();
+        task.setUpIteration();
+        callable.run(consumer);
+        task.tearDownIteration();
+        task.tearDownTrial();
+        return consumer.values;
+    }
+
+    @Test
+    public void readJsonWithNonBlockingParser() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--format",
+            "json",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "--io-type",
+            "buffer",
+            "--io-type",
+            "file",
+            "--io-read-size",
+            "auto",
+            "--io-read-size",
+            "7",
+            "--json-use-non-blocking-parser",
+            "true",
+            "--json-use-non-blocking-parser",
+            "false",
+            "objects.json"
+        );
+        assertEquals(16, optionsCombinations.size());
+        List<ExpectedReadOptionsCombination> expectedCombinations = new ArrayList<>(16);
+        for (API api : API.values()) {
+            for (IoType ioType : Arrays.asList(IoType.BUFFER, IoType.FILE)) {
+                for (Integer ioReadSize : Arrays.asList(null, 7)) {
+                    for (boolean jsonUseNonBlockingParser : Arrays.asList(true, false)) {
+                        expectedCombinations.add(
+                            ExpectedReadOptionsCombination.defaultOptions()
+                                .format(Format.JSON)
+                                .api(api)
+                                .ioType(ioType)
+                                .ioReadSize(ioReadSize)
+                                .jsonUseNonBlockingParser(jsonUseNonBlockingParser)
+                        );
+                    }
+                }
+            }
+        }
+        Map<API, List<String>> expectedValuesByApi = new HashMap<>();
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            expectedCombinations.removeIf(candidate -> candidate.api == optionsCombination.api
+                && candidate.ioType == optionsCombination.ioType
+                && nullSafeEquals(candidate.ioReadSize, optionsCombination.ioReadSize)
+                && candidate.jsonUseNonBlockingParser == optionsCombination.jsonUseNonBlockingParser
+            );
+            assertReadTaskExecutesCorrectly("objects.json", optionsCombination, Format.JSON, false);
+            // The non-blocking parser must consume exactly the same values as the blocking parser, regardless of
+            // the size of the chunks in which the data is fed.
+            List<String> values = executeReadTaskAndRecordValues("objects.json", optionsCombination);
+            assertFalse(values.isEmpty());
+            List<String> expectedValues = expectedValuesByApi.putIfAbsent(optionsCombination.api, values);
+            if (expectedValues != null) {
+                assertEquals(expectedValues, values);
+            }
+        }
+        assertTrue(expectedCombinations.isEmpty());
+    }
+
+    @Test
+    public void readWithPartitions() throws Exception {
+        String importsFileName = fileInTestDirectory("importsVersion1.ion").toString();
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--ion-imports-for-input",
+            importsFileName,
+            "--ion-imports-for-benchmark",
+            importsFileName,
+            "--io-type",
+            "buffer",
+            "--ion-flush-period",
+            "auto",
+            "--ion-flush-period",
+            "1",
+            "--ion-reader",
+            "incremental",
+            "--ion-reader",
+            "non_incremental",
+            "--partitions",
+            "auto",
+            "--partitions",
+            "1",
+            "--partitions",
+            "2",
+            "--partitions",
+            "3",
+            "--partitions",
+            "100",
+            "binaryStructsWithImports.10n"
+        );
+        assertEquals(20, optionsCombinations.size());
+        List<ExpectedReadOptionsCombination> expectedCombinations = new ArrayList<>(20);
+        for (Integer flushPeriod : Arrays.asList(null, 1)) {
+            for (IonReaderType readerType : IonReaderType.values()) {
+                for (Integer partitions : Arrays.asList(null, 1, 2, 3, 100)) {
+                    expectedCombinations.add(
+                        ExpectedReadOptionsCombination.defaultOptions()
+                            .importsForInputFile(importsFileName)
+                            .importsForBenchmarkFile(importsFileName)
+                            .ioType(IoType.BUFFER)
+                            .flushPeriod(flushPeriod)
+                            .readerType(readerType)
+                            .partitions(partitions)
+                    );
+                }
+            }
+        }
+        List<String> expectedValues = null;
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            expectedCombinations.removeIf(candidate -> nullSafeEquals(candidate.flushPeriod, optionsCombination.flushPeriod)
+                && candidate.readerType == optionsCombination.readerType
+                && nullSafeEquals(candidate.partitions, optionsCombination.partitions)
+            );
+            assertReadTaskExecutesCorrectly(
+                "binaryStructsWithImports.10n",
+                optionsCombination,
+                Format.ION_BINARY,
+                optionsCombination.flushPeriod != null
+            );
+            List<String> values = executeReadTaskAndRecordValues("binaryStructsWithImports.10n", optionsCombination);
+            assertFalse(values.isEmpty());
+            if (optionsCombination.partitions != null) {
+                // Each partition folds the values it reads into one result, which it passes to the caller's consumer.
+                // The values contained in the partitions are verified by inputIndexPartitionsData.
+                assertTrue(values.size() <= 2 * optionsCombination.partitions);
+            } else if (expectedValues == null) {
+                expectedValues = values;
+            } else {
+                assertEquals(expectedValues, values);
+            }
+        }
+        assertTrue(expectedCombinations.isEmpty());
+    }
+
+    @Test
+    public void partitionsDoNotApplyToOtherReads() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--io-type",
+            "buffer",
+            "--io-type",
+            "file",
+            "--format",
+            "ion_binary",
+            "--format",
+            "ion_text",
+            "--partitions",
+            "4",
+            "binaryStructs.10n"
+        );
+        assertEquals(4, optionsCombinations.size());
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            if (optionsCombination.format == Format.ION_BINARY && optionsCombination.ioType == IoType.BUFFER) {
+                assertEquals(Integer.valueOf(4), optionsCombination.partitions);
+            } else {
+                assertNull(optionsCombination.partitions);
+            }
+        }
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> parseOptionsCombinations("read", "--io-type", "buffer", "--partitions", "0", "binaryStructs.10n")
+        );
+    }
+
+    /**
+     * Asserts that every way of partitioning the given binary Ion data produces partitions that together contain
+     * exactly the values in the data.
+     * @param data binary Ion data.
+     * @param index an index of the data.
+     * @param readerBuilder the builder for readers of the data and the partitions.
+     */
+    private static void assertPartitionsContainValues(
+        byte[] data,
+        InputIndex index,
+        IonReaderBuilder readerBuilder
+    ) throws IOException {
+        IonSystem system = IonSystemBuilder.standard().withCatalog(readerBuilder.getCatalog()).build();
+        List<IonValue> expectedValues = new ArrayList<>(system.getLoader().load(data));
+        for (int numberOfPartitions : new int[]{1, 2, index.size(), index.size() + 1}) {
+            byte[][] partitions = index.partition(data, numberOfPartitions, readerBuilder);
+            assertEquals(Math.min(numberOfPartitions, index.size()), partitions.length);
+            List<IonValue> values = new ArrayList<>();
+            for (byte[] partition : partitions) {
+                values.addAll(system.getLoader().load(partition));
+            }
+            assertEquals(expectedValues, values);
+        }
+    }
+
+    @Test
+    public void inputIndexPartitionsData() throws Exception {
+        Path input = fileInTestDirectory("binaryStructs.10n");
+        InputIndex index = InputIndex.of(input);
+        assertTrue(index.size() > 1);
+        assertPartitionsContainValues(Files.readAllBytes(input), index, IonReaderBuilder.standard());
+
+        // Shared symbol table imports are re-declared at the start of each partition.
+        Path inputWithImports = fileInTestDirectory("binaryStructsWithImports.10n");
+        assertPartitionsContainValues(
+            Files.readAllBytes(inputWithImports),
+            InputIndex.of(inputWithImports),
+            IonReaderBuilder.standard().withCatalog(
+                IonUtilities.newCatalog(fileInTestDirectory("importsVersion1.ion").toString())
+            )
+        );
+
+        // A flush after every value appends a local symbol table before each value that declares new symbols. Each
+        // partition must begin with the symbols accumulated by every preceding append.
+        Path inputWithAppends = TemporaryFiles.newTempFile("appends", ".10n");
+        try (
+            IonReader reader = IonReaderBuilder.standard().build(Files.readAllBytes(input));
+            IonWriter writer = IonBinaryWriterBuilder.standard()
+                .withLocalSymbolTableAppendEnabled()
+                .build(Files.newOutputStream(inputWithAppends))
+        ) {
+            while (reader.next() != null) {
+                writer.writeValue(reader);
+                writer.flush();
+            }
+        }
+        int numberOfSymbolTables = 0;
+        try (IonReader appendsReader = IonReaderBuilder.standard().build(Files.readAllBytes(inputWithAppends))) {
+            SymbolTable previousSymbolTable = null;
+            while (appendsReader.next() != null) {
+                if (appendsReader.getSymbolTable() != previousSymbolTable) {
+                    previousSymbolTable = appendsReader.getSymbolTable();
+                    numberOfSymbolTables++;
+                }
+            }
+        }
+        assertTrue(numberOfSymbolTables > 1);
+        InputIndex indexWithAppends = InputIndex.of(inputWithAppends);
+        assertPartitionsContainValues(Files.readAllBytes(inputWithAppends), indexWithAppends, IonReaderBuilder.standard());
+    }
+
+    @Test
+    public void partitionsConsumeIntoTheirOwnConsumers() throws Exception {
+        ReadOptionsCombination optionsCombination = parseSingleOptionsCombination(
+            "read",
+            "--io-type",
+            "buffer",
+            "--partitions",
+            "2",
+            "binaryStructs.10n"
+        );
+        MeasurableReadTask task = (MeasurableReadTask) optionsCombination.createMeasurableTask(
+            fileInTestDirectory("binaryStructs.10n")
+        );
+        task.setUpTrial();
+        Thread owner = Thread.currentThread();
+        AtomicInteger numberOfValuesConsumed = new AtomicInteger(0);
+        task.getTask().run(new RecordingSideEffectConsumer() {
+            @Override
+            public void consume(long l) {
+                assertSame(owner, Thread.currentThread());
+                numberOfValuesConsumed.incrementAndGet();
+            }
+
+            @Override
+            public void consume(Object o) {
+                assertSame(owner, Thread.currentThread());
+            }
+        });
+        // Each partition passes its result to the caller's consumer.
+        assertEquals(2, numberOfValuesConsumed.get());
+        task.tearDownTrial();
+    }
+
+    @Test
+    public void readWithMessages() throws Exception {
+        String[][] formatsAndInputs = new String[][]{
+            {"ion_binary", "binaryStructs.10n"},
+            {"ion_text", "binaryStructs.10n"},
+            {"json", "objects.json"},
+            {"cbor", "objects.cbor"}
+        };
+        for (String[] formatAndInput : formatsAndInputs) {
+            List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+                "read",
+                "--format",
+                formatAndInput[0],
+                "--io-type",
+                "buffer",
+                "--messages",
+                "true",
+                "--messages",
+                "false",
+                formatAndInput[1]
+            );
+            assertEquals(2, optionsCombinations.size());
+            List<ExpectedReadOptionsCombination> expectedCombinations = new ArrayList<>(2);
+            for (boolean messages : Arrays.asList(true, false)) {
+                expectedCombinations.add(
+                    ExpectedReadOptionsCombination.defaultOptions()
+                        .format(Format.valueOf(formatAndInput[0].toUpperCase()))
+                        .ioType(IoType.BUFFER)
+                        .messages(messages)
+                );
+            }
+            List<String> expectedValues = null;
+            for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+                expectedCombinations.removeIf(candidate -> candidate.messages == optionsCombination.messages);
+                // Reading each top-level value as its own message must consume exactly the same values, in order, as
+                // reading the whole input with a single reader.
+                List<String> values = executeReadTaskAndRecordValues(formatAndInput[1], optionsCombination);
+                assertFalse(values.isEmpty());
+                if (expectedValues == null) {
+                    expectedValues = values;
+                } else {
+                    assertEquals(expectedValues, values);
+                }
+            }
+            assertTrue(expectedCombinations.isEmpty());
+        }
+    }
+
+    @Test
+    public void messagesDoNotApplyToOtherReads() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--io-type",
+            "buffer",
+            "--io-type",
+            "file",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "--messages",
+            "true",
+            "binaryStructs.10n"
+        );
+        assertEquals(4, optionsCombinations.size());
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            assertEquals(
+                optionsCombination.api == API.STREAMING && optionsCombination.ioType == IoType.BUFFER,
+                optionsCombination.messages
+            );
+        }
+        ReadOptionsCombination partitioned = parseSingleOptionsCombination(
+            "read",
+            "--io-type",
+            "buffer",
+            "--partitions",
+            "2",
+            "--messages",
+            "true",
+            "binaryStructs.10n"
+        );
+        assertFalse(partitioned.messages);
+    }
+
+    @Test
+    public void messageBufferSplitsInputIntoIndependentValues() throws Exception {
+        byte[] data = Files.readAllBytes(fileInTestDirectory("binaryStructs.10n"));
+        ReadOptionsCombination optionsCombination = parseSingleOptionsCombination(
+            "read",
+            "--io-type",
+            "buffer",
+            "--messages",
+            "true",
+            "binaryStructs.10n"
+        );
+        MeasurableReadTask task = (MeasurableReadTask) optionsCombination.createMeasurableTask(
+            fileInTestDirectory("binaryStructs.10n")
+        );
+        MessageBuffer messages = task.splitIntoMessages(data);
+        List<IonValue> expectedValues = new ArrayList<>(Constants.ION_SYSTEM.getLoader().load(data));
+        assertEquals(expectedValues.size(), messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            byte[] message = Arrays.copyOfRange(messages.data, messages.offset(i), messages.offset(i) + messages.length(i));
+            IonDatagram values = Constants.ION_SYSTEM.getLoader().load(message);
+            assertEquals(1, values.size());
+            assertEquals(expectedValues.get(i), values.get(0));
+        }
+        // Each invocation reports one message per top-level value.
+        MessageProfiler profiler = new MessageProfiler();
+        profiler.beforeIteration(null, null);
+        task.setUpTrial();
+        task.getTask().run(new RecordingSideEffectConsumer());
+        task.tearDownTrial();
+        assertEquals(expectedValues.size(), scoresAfterIteration(profiler, 1).get("Messages"), 0);
+    }
+
+    @Test
+    public void peakHeapProfilerReportsTransientAllocations() {
+        PeakHeapProfiler profiler = new PeakHeapProfiler();
+        profiler.beforeIteration(null, null);
+        byte[] transientAllocation = new byte[64 * 1024 * 1024];
+        transientAllocation[transientAllocation.length - 1] = 1;
+        assertEquals(1, transientAllocation[transientAllocation.length - 1]);
+        transientAllocation = null;
+        System.gc();
+        Map<String, Double> results = new HashMap<>();
+        for (Result result : profiler.afterIteration(null, null, null)) {
+            results.put(result.getLabel(), result.getScore());
+        }
+        // One result per heap pool, plus the total.
+        assertEquals(PeakHeapProfiler.heapPools().size() + 1, results.size());
+        // The allocation is no longer live, but is included in the peak.
+        assertTrue(results.get("Peak heap usage") >= 64 * 1024 * 1024 / 1e6);
+    }
+
+    @Test
+    public void retainedSizeIsMeasuredForDomReads() throws Exception {
+        for (String format : Arrays.asList("ion_binary", "json", "cbor")) {
+            List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+                "read",
+                "--format",
+                format,
+                "--api",
+                "dom",
+                "--api",
+                "streaming",
+                "--retained-size",
+                "true",
+                "--retained-size",
+                "false",
+                "--io-type",
+                "buffer",
+                "binaryStructs.10n"
+            );
+            // The option only applies to DOM reads.
+            assertEquals(3, optionsCombinations.size());
+            ExpectedReadOptionsCombination.defaultOptions()
+                .format(Format.valueOf(format.toUpperCase()))
+                .api(API.STREAMING)
+                .ioType(IoType.BUFFER)
+                .assertOptionsEqual(
+                    optionsCombinations.stream().filter(c -> c.api == API.STREAMING).findFirst().get()
+                );
+            for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+                MeasurableReadTask task = (MeasurableReadTask) optionsCombination.createMeasurableTask(
+                    fileInTestDirectory("binaryStructs.10n")
+                );
+                task.setUpTrial();
+                try {
+                    if (optionsCombination.retainedSize) {
+                        assertEquals(API.DOM, optionsCombination.api);
+                        assertTrue(RetainedSizeProfiler.getRetainedSize() >= 0);
+                    } else {
+                        assertEquals(-1, RetainedSizeProfiler.getRetainedSize());
+                    }
+                } finally {
+                    task.tearDownTrial();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void latencyHistogramReportsPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.5));
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000, histogram.max());
+        // Each reported value is an upper bound within 1/32 of the exact value.
+        for (double fraction : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = (long) Math.ceil(fraction * 100_000);
+            long reported = histogram.percentile(fraction);
+            assertTrue(reported >= exact);
+            assertTrue(reported <= exact + exact / 32);
+        }
+        assertEquals(100_000, histogram.percentile(1.0));
+        LatencyHistogram other = new LatencyHistogram();
+        other.record(7);
+        other.record(Long.MAX_VALUE);
+        histogram.add(other);
+        assertEquals(100_002, histogram.count());
+        assertEquals(Long.MAX_VALUE, histogram.max());
+        assertEquals(Long.MAX_VALUE, histogram.percentile(1.0));
+        other.reset();
+        assertEquals(0, other.count());
+        assertEquals(0, other.max());
+        // Small values are counted exactly.
+        other.record(3);
+        other.record(-1);
+        assertEquals(0, other.percentile(0.5));
+        assertEquals(3, other.percentile(1.0));
+    }
+
+    @Test
+    public void latencyPercentilesAreMergedAcrossIterations() throws Exception {
+        // One iteration is uniformly fast; the other is uniformly slow.
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            fast.record(1000);
+        }
+        slow.record(1_000_000);
+        LatencyProfiler.PercentileResult fastResult = new LatencyProfiler.PercentileResult("p50", 0.5, fast);
+        LatencyProfiler.PercentileResult slowResult = new LatencyProfiler.PercentileResult("p50", 0.5, slow);
+        // Results are sent from forked JVMs, so they must survive serialization.
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(slowResult);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized.toByteArray()))) {
+            slowResult = (LatencyProfiler.PercentileResult) in.readObject();
+        }
+        assertEquals(1000, slowResult.getScore(), 1e-9);
+        LatencyProfiler.PercentileResult aggregated = fastResult.getIterationAggregator().aggregate(
+            Arrays.asList(fastResult, slowResult)
+        );
+        // The median of all 100 values is fast, whereas the mean of the two medians would be about 500 us.
+        assertEquals(1, aggregated.getScore(), 1.0 / 32);
+        assertEquals("p50", aggregated.getLabel());
+    }
+
+    @Test
+    public void valueLatencyOptions() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "--value-latency",
+            "none",
+            "--value-latency",
+            "by_size",
+            "binaryStructs.10n"
+        );
+        assertEquals(3, optionsCombinations.size());
+        int numberOfBySizeCombinations = 0;
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            if (optionsCombination.api == API.DOM) {
+                assertEquals(ValueLatencyMode.NONE, optionsCombination.valueLatency);
+            } else if (optionsCombination.valueLatency == ValueLatencyMode.BY_SIZE) {
+                assertEquals(API.STREAMING, optionsCombination.api);
+                numberOfBySizeCombinations++;
+            }
+        }
+        assertEquals(1, numberOfBySizeCombinations);
+        WriteOptionsCombination writeOptionsCombination = parseSingleOptionsCombination(
+            "write",
+            "--value-latency",
+            "all",
+            "textStructs.ion"
+        );
+        assertEquals(ValueLatencyMode.ALL, writeOptionsCombination.valueLatency);
+    }
+
+    @Test
+    public void valueLatencyIsRecordedForEachValue() throws Exception {
+        int numberOfValues = Constants.ION_SYSTEM.getLoader().load(fileInTestDirectory("binaryStructs.10n").toFile()).size();
+        LatencyProfiler profiler = new LatencyProfiler();
+        for (String format : new String[]{"ion_binary", "ion_text", "json", "cbor"}) {
+            for (String messages : new String[]{"false", "true"}) {
+                ReadOptionsCombination readOptionsCombination = parseSingleOptionsCombination(
+                    "read",
+                    "--format",
+                    format,
+                    "--io-type",
+                    "buffer",
+                    "--messages",
+                    messages,
+                    "--value-latency",
+                    "by_size",
+                    "binaryStructs.10n"
+                );
+                profiler.beforeIteration(null, null);
+                executeReadTaskAndRecordValues("binaryStructs.10n", readOptionsCombination);
+                assertEquals(numberOfValues, scoresAfterIteration(profiler, 1).get("Timed values"), 0);
+            }
+            for (String valueLatency : new String[]{"none", "all"}) {
+                WriteOptionsCombination writeOptionsCombination = parseSingleOptionsCombination(
+                    "write",
+                    "--format",
+                    format,
+                    "--io-type",
+                    "buffer",
+                    "--ion-flush-period",
+                    "2",
+                    "--value-latency",
+                    valueLatency,
+                    "binaryStructs.10n"
+                );
+                profiler.beforeIteration(null, null);
+                executeWriteTaskAndGetSerializedSize(writeOptionsCombination, "binaryStructs.10n");
+                // Nothing is reported for iterations that did not time any values.
+                assertEquals(
+                    valueLatency.equals("all") ? numberOfValues : 0,
+                    scoresAfterIteration(profiler, 1).getOrDefault("Timed values", 0.0),
+                    0
+                );
+            }
+        }
+    }
+
+    @Test
+    public void allocationPhasesAreRecordedForEachOperation() throws Exception {
+        AllocationProfiler profiler = new AllocationProfiler();
+        for (String format : new String[]{"ion_binary", "ion_text", "json", "cbor"}) {
+            for (String ioType : new String[]{"buffer", "file"}) {
+                ReadOptionsCombination readOptionsCombination = parseSingleOptionsCombination(
+                    "read",
+                    "--format",
+                    format,
+                    "--io-type",
+                    ioType,
+                    "--allocation-phases",
+                    "true",
+                    "binaryStructs.10n"
+                );
+                assertTrue(readOptionsCombination.allocationPhases);
+                profiler.beforeIteration(null, null);
+                executeReadTaskAndRecordValues("binaryStructs.10n", readOptionsCombination);
+                for (AllocationProfiler.Phase phase : AllocationProfiler.Phase.values()) {
+                    assertEquals(1, AllocationProfiler.getCount(phase));
+                }
+                // Constructing a reader always allocates the reader itself.
+                assertTrue(AllocationProfiler.getAllocatedBytes(AllocationProfiler.Phase.CONSTRUCTION) > 0);
+            }
+            for (String allocationPhases : new String[]{"false", "true"}) {
+                WriteOptionsCombination writeOptionsCombination = parseSingleOptionsCombination(
+                    "write",
+                    "--format",
+                    format,
+                    "--io-type",
+                    "buffer",
+                    "--allocation-phases",
+                    allocationPhases,
+                    "binaryStructs.10n"
+                );
+                profiler.beforeIteration(null, null);
+                executeWriteTaskAndGetSerializedSize(writeOptionsCombination, "binaryStructs.10n");
+                for (AllocationProfiler.Phase phase : AllocationProfiler.Phase.values()) {
+                    assertEquals(allocationPhases.equals("true") ? 1 : 0, AllocationProfiler.getCount(phase));
+                }
+            }
+        }
+        // Messages are each read by their own reader, so allocation phases do not apply.
+        ReadOptionsCombination messagesOptionsCombination = parseSingleOptionsCombination(
+            "read",
+            "--io-type",
+            "buffer",
+            "--messages",
+            "true",
+            "--allocation-phases",
+            "true",
+            "binaryStructs.10n"
+        );
+        assertFalse(messagesOptionsCombination.allocationPhases);
+    }
+
+    @Test
+    public void cpuTimeProfilerSeparatesCpuTimeFromWaiting() throws Exception {
+        // The process name may contain spaces and parentheses.
+        long[] ticks = CpuTimeProfiler.parseProcessTicks(
+            "1234 (java (x) y) S 1 1234 1234 0 -1 4194304 100 0 0 0 250 37 0 0 20 0 30 0 688421 0"
+        );
+        assertArrayEquals(new long[]{250, 37}, ticks);
+
+        CpuTimeProfiler profiler = new CpuTimeProfiler();
+        CountDownLatch iterationDone = new CountDownLatch(1);
+        CountDownLatch iterationMeasured = new CountDownLatch(1);
+        // Like JMH's worker threads, the thread remains alive after the iteration so that its CPU time can be read.
+        Thread benchmarkThread = new Thread(() -> {
+            // Spin for about as long as it then sleeps, so that utilization is roughly half.
+            long spinEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            long spins = 0;
+            while (System.nanoTime() < spinEnd) {
+                spins++;
+            }
+            assertTrue(spins > 0);
+            try {
+                Thread.sleep(100);
+                iterationDone.countDown();
+                iterationMeasured.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "test" + CpuTimeProfiler.BENCHMARK_THREAD_NAME + "1");
+        profiler.beforeIteration(null, null);
+        benchmarkThread.start();
+        iterationDone.await();
+        Map<String, Double> results = new HashMap<>();
+        for (Result result : profiler.afterIteration(null, null, new IterationResult(null, null, new IterationResultMetaData(1, 1)))) {
+            results.put(result.getLabel(), result.getScore());
+        }
+        iterationMeasured.countDown();
+        benchmarkThread.join();
+        assertTrue(results.get("CPU time") > 0);
+        assertTrue(results.get("CPU utilization") > 0);
+        assertTrue(results.get("CPU utilization") < 100);
+    }
+
+    @Test
+    public void syscallProfilerReportsSyscallsPerOperation() {
+        Map<String, Long> before = SyscallProfiler.parseCounters(
+            "rchar: 1000\nwchar: 0\nsyscr: 10\nsyscw: 0\nread_bytes: 0\nwrite_bytes: 0\ncancelled_write_bytes: 0\n"
+        );
+        assertEquals(7, before.size());
+        assertEquals(1000L, (long) before.get(SyscallProfiler.READ_CHARS));
+        Map<String, Long> after = SyscallProfiler.parseCounters(
+            "rchar: 9000\nwchar: 4096\nsyscr: 14\nsyscw: 2\nread_bytes: 8192\nwrite_bytes: 4096\ncancelled_write_bytes: 0\n"
+        );
+        List<Result> results = new ArrayList<>();
+        SyscallProfiler.addResults(before, after, 2, results);
+        Map<String, Double> scores = new HashMap<>();
+        for (Result result : results) {
+            scores.put(result.getLabel(), result.getScore());
+        }
+        assertEquals(2.0, scores.get("Read syscalls"), 0);
+        assertEquals(1.0, scores.get("Write syscalls"), 0);
+        assertEquals(2000.0, scores.get("Bytes per read syscall"), 0);
+        assertEquals(2048.0, scores.get("Bytes per write syscall"), 0);
+        assertEquals(4096.0, scores.get("Storage bytes read"), 0);
+        assertEquals(2048.0, scores.get("Storage bytes written"), 0);
+        // Nothing is reported for iterations that made no I/O system calls.
+        results.clear();
+        SyscallProfiler.addResults(before, before, 2, results);
+        assertTrue(results.isEmpty());
+        // Statistics that depend on counters missing from either set of counters are skipped.
+        results.clear();
+        SyscallProfiler.addResults(
+            before,
+            SyscallProfiler.parseCounters("rchar: 9000\nwchar: 4096\nsyscr: 14\nsyscw: 2\n"),
+            2,
+            results
+        );
+        scores.clear();
+        for (Result result : results) {
+            scores.put(result.getLabel(), result.getScore());
+        }
+        assertEquals(4, scores.size());
+        assertEquals(2.0, scores.get("Read syscalls"), 0);
+        assertEquals(2048.0, scores.get("Bytes per write syscall"), 0);
+        assertFalse(scores.containsKey("Storage bytes read"));
+        assertFalse(scores.containsKey("Storage bytes written"));
+    }
+
+    /**
+     * A MeasurableTask that sleeps for a fixed duration in each invocation and counts its iterations.
+     */
+    private static class SleepingTask implements MeasurableTask {
+
+        private final long sleepMillis;
+        int iterations = 0;
+
+        SleepingTask(long sleepMillis) {
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public void setUpTrial() {
+            // Nothing to do.
+        }
+
+        @Override
+        public void tearDownTrial() {
+            // Nothing to do.
+        }
+
+        @Override
+        public void setUpIteration() {
+            iterations++;
+        }
+
+        @Override
+        public void tearDownIteration() {
+            // Nothing to do.
+        }
+
+        @Override
+        public Task getTask() {
+            return (consumer, threadIndex) -> Thread.sleep(sleepMillis);
+        }
+    }
+
+    @Test
+    public void openLoopLoadMeasuresFromIntendedStartTime() throws Exception {
+        long stageDurationNanos = TimeUnit.MILLISECONDS.toNanos(200);
+        SleepingTask task = new SleepingTask(5);
+        // The task takes 5 ms, so it sustains 20 operations per second within a 50 ms SLO, but not 1000 per second:
+        // the backlog grows throughout the stage, and later stages are not attempted.
+        OpenLoopLoad load = new OpenLoopLoad(new long[]{1000, 20, 5000}, stageDurationNanos, TimeUnit.MILLISECONDS.toNanos(50));
+        List<OpenLoopLoad.Stage> stages = load.run(
+            task,
+            new ByteArrayInputStream(new byte[0]),
+            new PrintStream(new ByteArrayOutputStream())
+        );
+        assertEquals(2, stages.size());
+        assertEquals(2, task.iterations);
+        OpenLoopLoad.Stage sustained = stages.get(0);
+        assertEquals(20, sustained.targetRate);
+        assertTrue(sustained.isWithinSlo);
+        assertEquals(4, sustained.completed + sustained.missed);
+        OpenLoopLoad.Stage overloaded = stages.get(1);
+        assertEquals(1000, overloaded.targetRate);
+        assertFalse(overloaded.isWithinSlo);
+        // Every operation scheduled during the stage is accounted for, whether or not it started.
+        assertEquals(200, overloaded.completed + overloaded.missed);
+        assertEquals(200, overloaded.latencies.count());
+        assertTrue(overloaded.missed > 0);
+        assertTrue(overloaded.latencies.max() >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(Long.valueOf(20), OpenLoopLoad.highestSustainedRate(stages));
+    }
+
+    @Test
+    public void openLoopLoadExcludesInvocationSetUpFromLatency() throws Exception {
+        long setUpMillis = 20;
+        // A segmented task whose invocations are free but take a while to prepare.
+        SleepingTask task = new SleepingTask(0) {
+            @Override
+            public void setUpInvocation() throws IOException {
+                try {
+                    Thread.sleep(setUpMillis);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            @Override
+            public boolean isSegmented() {
+                return true;
+            }
+        };
+        OpenLoopLoad load = new OpenLoopLoad(new long[]{10}, TimeUnit.MILLISECONDS.toNanos(300), null);
+        List<OpenLoopLoad.Stage> stages = load.run(
+            task,
+            new ByteArrayInputStream(new byte[0]),
+            new PrintStream(new ByteArrayOutputStream())
+        );
+        OpenLoopLoad.Stage stage = stages.get(0);
+        assertEquals(3, stage.completed);
+        assertTrue(stage.latencies.max() < TimeUnit.MILLISECONDS.toNanos(setUpMillis));
+    }
+
+    @Test
+    public void targetRateRequiresProfile() throws Exception {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> parseOptionsCombinations("read", "--target-rate", "100", "binaryStructs.10n")
+        );
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> parseOptionsCombinations("read", "--profile", "--target-rate", "0", "binaryStructs.10n")
+        );
+        ReadOptionsCombination optionsCombination = parseSingleOptionsCombination(
+            "read",
+            "--profile",
+            "--target-rate",
+            "100",
+            "--target-rate",
+            "200",
+            "--latency-slo",
+            "1000",
+            "binaryStructs.10n"
+        );
+        assertNotNull(optionsCombination);
+    }
+
+    /**
+     * Asserts that the given index locates each of the top-level values in the given binary Ion data.
+     * @param data binary Ion data.
+     * @param index an index of the data.
+     */
+    private static void assertIndexLocatesValues(byte[] data, InputIndex index) throws IOException {
+        // When there is one partition per value, each partition holds exactly the bytes the index locates for a value.
+        assertPartitionsContainValues(data, index, IonReaderBuilder.standard());
+        for (int i = 1; i < index.size(); i++) {
+            assertTrue(index.finishOffset(i - 1) <= index.startOffset(i));
+        }
+    }
+
+    @Test
+    public void inputIndexLocatesTopLevelValues() throws Exception {
+        Path input = fileInTestDirectory("binaryStructs.10n");
+        InputIndex index = InputIndex.of(input);
+        assertIndexLocatesValues(Files.readAllBytes(input), index);
+        // The index is retained for subsequent uses of the same unmodified input.
+        assertTrue(index == InputIndex.of(input));
+    }
+
+    @Test
+    public void inputIndexIsRebuiltWhenInputChanges() throws Exception {
+        Path input = TemporaryFiles.newTempFile("index", ".10n");
+        byte[] original = Files.readAllBytes(fileInTestDirectory("binaryStructs.10n"));
+        Files.write(input, original);
+        InputIndex index = InputIndex.of(input);
+        assertIndexLocatesValues(original, index);
+
+        // Append a second stream, which begins a new symbol table context.
+        ByteArrayOutputStream modified = new ByteArrayOutputStream();
+        modified.write(original);
+        modified.write(Constants.ION_SYSTEM.getLoader().load("{foo: bar} baz").getBytes());
+        Files.write(input, modified.toByteArray());
+        Files.setLastModifiedTime(input, FileTime.fromMillis(Files.getLastModifiedTime(input).toMillis() + 1000));
+        InputIndex modifiedIndex = InputIndex.of(input);
+        assertEquals(index.size() + 2, modifiedIndex.size());
+        assertIndexLocatesValues(modified.toByteArray(), modifiedIndex);
+
+        // Truncation uses the index to locate the end of the retained values.
+        Path truncated = TemporaryFiles.newTempFile("truncated", ".10n");
+        assertEquals(truncated, IonUtilities.truncateBinaryIonFile(input, truncated, index.size()));
+        assertArrayEquals(original, Files.readAllBytes(truncated));
+    }
+
+    @Test
+    public void truncationDoesNotBuildInputIndex() throws Exception {
+        Path input = TemporaryFiles.newTempFile("unindexed", ".10n");
+        byte[] original = Files.readAllBytes(fileInTestDirectory("binaryStructs.10n"));
+        ByteArrayOutputStream twoStreams = new ByteArrayOutputStream();
+        twoStreams.write(original);
+        twoStreams.write(Constants.ION_SYSTEM.getLoader().load("{foo: bar} baz").getBytes());
+        Files.write(input, twoStreams.toByteArray());
+        // Without an index, truncation scans the input only up to the last retained value.
+        Path truncated = TemporaryFiles.newTempFile("truncated", ".10n");
+        int numberOfOriginalValues = Constants.ION_SYSTEM.getLoader().load(original).size();
+        assertEquals(truncated, IonUtilities.truncateBinaryIonFile(input, truncated, numberOfOriginalValues));
+        assertArrayEquals(original, Files.readAllBytes(truncated));
+        assertNull(InputIndex.ifAvailable(input));
+        assertEquals(input, IonUtilities.truncateBinaryIonFile(input, truncated, numberOfOriginalValues + 2));
+        assertNull(InputIndex.ifAvailable(input));
+    }
+
+    @Test
+    public void readWithoutConversionCache() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--conversion-cache",
+            "none",
+            "--format",
+            "ion_text",
+            "--format",
+            "json",
+            "binaryStructs.10n"
+        );
+        assertEquals(2, optionsCombinations.size());
+        List<ExpectedReadOptionsCombination> expectedCombinations = new ArrayList<>();
+        expectedCombinations.add(ExpectedReadOptionsCombination.defaultOptions().conversionCacheScope(ConversionCacheScope.NONE).format(Format.ION_TEXT));
+        expectedCombinations.add(ExpectedReadOptionsCombination.defaultOptions().conversionCacheScope(ConversionCacheScope.NONE).format(Format.JSON));
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            expectedCombinations.removeIf(candidate -> candidate.format == optionsCombination.format);
+            assertReadTaskExecutesCorrectly("binaryStructs.10n", optionsCombination, optionsCombination.format, true);
+        }
+        assertTrue(expectedCombinations.isEmpty());
+    }
+
+    @Test
+    public void conversionCacheIsSharedAcrossCombinations() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--format",
+            "ion_text",
+            "--io-type",
+            "file",
+            "--io-type",
+            "buffer",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "--threads",
+            "1",
+            "--threads",
+            "2",
+            "binaryStructs.10n"
+        );
+        assertEquals(8, optionsCombinations.size());
+        Path inputPath = fileInTestDirectory("binaryStructs.10n");
+        File convertedFile = null;
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            ExpectedReadOptionsCombination.defaultOptions()
+                .format(Format.ION_TEXT)
+                .ioType(optionsCombination.ioType)
+                .api(optionsCombination.api)
+                .threads(optionsCombination.threads)
+                .assertOptionsEqual(optionsCombination);
+            MeasurableReadTask task = (MeasurableReadTask) optionsCombination.createMeasurableTask(inputPath);
+            task.setUpTrial();
+            if (convertedFile == null) {
+                convertedFile = task.inputFile;
+            } else {
+                // The options that differ between these combinations do not affect the encoding of the input.
+                assertEquals(convertedFile, task.inputFile);
+            }
+            task.tearDownTrial();
+            assertTrue(task.inputFile.exists());
+        }
+        // Options that affect the encoding require a separate conversion.
+        ReadOptionsCombination limitedCombination = parseSingleOptionsCombination(
+            "read",
+            "--format",
+            "ion_text",
+            "--limit",
+            "1",
+            "binaryStructs.10n"
+        );
+        assertNotEquals(
+            ConversionCache.keyFor(inputPath, optionsCombinations.get(0)),
+            ConversionCache.keyFor(inputPath, limitedCombination)
+        );
+    }
+
+    @Test
+    public void conversionCacheLooksUpEntriesByInputMetadata() throws Exception {
+        ReadOptionsCombination textCombination = parseSingleOptionsCombination(
+            "read",
+            "--format",
+            "ion_text",
+            "binaryStructs.10n"
+        );
+        Path input = TemporaryFiles.newTempFile("metadata", ".10n");
+        byte[] original = Files.readAllBytes(fileInTestDirectory("binaryStructs.10n"));
+        Files.write(input, original);
+        Path convertedFile = textCombination.convertFileIfNecessary(input);
+        assertNotEquals(input, convertedFile);
+        textCombination.releaseConvertedFile(convertedFile);
+
+        // The entry is found without hashing the input, so a change that preserves the input's length and modification
+        // time is not detected.
+        FileTime lastModified = Files.getLastModifiedTime(input);
+        byte[] changed = original.clone();
+        changed[changed.length - 1] ^= 1;
+        Files.write(input, changed);
+        Files.setLastModifiedTime(input, lastModified);
+        assertEquals(convertedFile, textCombination.convertFileIfNecessary(input));
+        textCombination.releaseConvertedFile(convertedFile);
+
+        // Once the input's modification time changes, there is no alias for it, so it is hashed. Its original content
+        // matches the existing entry, which is reused.
+        Files.write(input, original);
+        Files.setLastModifiedTime(input, FileTime.fromMillis(lastModified.toMillis() + 1000));
+        byte[] convertedData = Files.readAllBytes(convertedFile);
+        Files.write(convertedFile, "reused".getBytes(StandardCharsets.UTF_8));
+        assertEquals(convertedFile, textCombination.convertFileIfNecessary(input));
+        assertArrayEquals("reused".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(convertedFile));
+        Files.write(convertedFile, convertedData);
+        textCombination.releaseConvertedFile(convertedFile);
+
+        // Inputs that require no conversion are returned without consulting the cache.
+        ReadOptionsCombination binaryCombination = parseSingleOptionsCombination("read", "binaryStructs.10n");
+        assertEquals(input, binaryCombination.convertFileIfNecessary(input));
+    }
+
+    @Test
+    public void conversionCacheEvictsLeastRecentlyUsed() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--conversion-cache-size",
+            "1",
+            "--format",
+            "ion_text",
+            "--format",
+            "json",
+            "binaryStructs.10n"
+        );
+        assertEquals(2, optionsCombinations.size());
+        ReadOptionsCombination textCombination = optionsCombinations.get(0).format == Format.ION_TEXT
+            ? optionsCombinations.get(0)
+            : optionsCombinations.get(1);
+        ReadOptionsCombination jsonCombination = textCombination == optionsCombinations.get(0)
+            ? optionsCombinations.get(1)
+            : optionsCombinations.get(0);
+        ExpectedReadOptionsCombination.defaultOptions().conversionCacheSize(1).format(Format.ION_TEXT).assertOptionsEqual(textCombination);
+        Path inputPath = fileInTestDirectory("binaryStructs.10n");
+        Path textFile = textCombination.convertFileIfNecessary(inputPath);
+        // Files in use are not evicted, even though the cache exceeds its maximum size.
+        Path jsonFile = jsonCombination.convertFileIfNecessary(inputPath);
+        assertTrue(textFile.toFile().exists());
+        assertTrue(jsonFile.toFile().exists());
+        textCombination.releaseConvertedFile(textFile);
+        jsonCombination.releaseConvertedFile(jsonFile);
+        // Once released, the least-recently-used files are evicted until the cache fits within its maximum size.
+        Files.setLastModifiedTime(jsonFile, FileTime.fromMillis(Files.getLastModifiedTime(textFile).toMillis() - 1000));
+        ConversionCache.evict(textFile.getParent(), textFile.toFile().length());
+        assertTrue(textFile.toFile().exists());
+        assertFalse(jsonFile.toFile().exists());
+        // A new conversion evicts all other released files that exceed the maximum size, but not itself.
+        ReadOptionsCombination limitedCombination = parseSingleOptionsCombination(
+            "read",
+            "--conversion-cache-size",
+            "1",
+            "--format",
+            "ion_text",
+            "--limit",
+            "1",
+            "binaryStructs.10n"
+        );
+        Path limitedFile = limitedCombination.convertFileIfNecessary(inputPath);
+        assertTrue(limitedFile.toFile().exists());
+        assertFalse(textFile.toFile().exists());
+        limitedCombination.releaseConvertedFile(limitedFile);
+    }
+
+    @Test
+    public void conversionCachePreparesDistinctConversions() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--format",
+            "ion_binary",
+            "--format",
+            "ion_text",
+            "--format",
+            "json",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "--io-type",
+            "file",
+            "--io-type",
+            "buffer",
+            "binaryStructs.10n"
+        );
+        assertEquals(12, optionsCombinations.size());
+        Path inputPath = fileInTestDirectory("binaryStructs.10n");
+        ConversionCache.prepare(inputPath, optionsCombinations).close();
+        // Binary Ion requires no conversion. Text Ion requires one conversion for both APIs, while JSON requires one
+        // conversion per API.
+        File[] convertedFiles = TemporaryFiles.getTempDirectory("conversions").toFile().listFiles();
+        assertNotNull(convertedFiles);
+        assertEquals(3, convertedFiles.length);
+        List<File> preparedFiles = Arrays.asList(convertedFiles);
+        for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+            MeasurableReadTask task = (MeasurableReadTask) optionsCombination.createMeasurableTask(inputPath);
+            task.setUpTrial();
+            if (optionsCombination.format == Format.ION_BINARY) {
+                assertEquals(inputPath.toFile(), task.inputFile);
+            } else {
+                assertTrue(preparedFiles.contains(task.inputFile));
+            }
+            task.tearDownTrial();
+        }
+        assertEquals(3, TemporaryFiles.getTempDirectory("conversions").toFile().listFiles().length);
+
+        // Write tasks only convert inputs that cannot be parsed by the format being written.
+        List<WriteOptionsCombination> writeOptionsCombinations = parseOptionsCombinations(
+            "write",
+            "--format",
+            "ion_text",
+            "--format",
+            "cbor",
+            "binaryStructs.10n"
+        );
+        ConversionCache.prepare(inputPath, writeOptionsCombinations).close();
+        assertEquals(4, TemporaryFiles.getTempDirectory("conversions").toFile().listFiles().length);
+    }
+
+    @Test
+    public void conversionCacheKeepsPreparedConversionsUntilClosed() throws Exception {
+        List<ReadOptionsCombination> optionsCombinations = parseOptionsCombinations(
+            "read",
+            "--conversion-cache-size",
+            "1",
+            "--format",
+            "ion_text",
+            "--format",
+            "json",
+            "--api",
+            "streaming",
+            "--api",
+            "dom",
+            "binaryStructs.10n"
+        );
+        Path inputPath = fileInTestDirectory("binaryStructs.10n");
+        Path conversions = TemporaryFiles.getTempDirectory("conversions");
+        try (Closeable preparedConversions = ConversionCache.prepare(inputPath, optionsCombinations)) {
+            // Every conversion exceeds the maximum size of the cache, but none of the prepared files may be evicted
+            // before the trials that use them are complete.
+            assertEquals(3, conversions.toFile().listFiles().length);
+            ConversionCache.evict(conversions, 1);
+            assertEquals(3, conversions.toFile().listFiles().length);
+            for (ReadOptionsCombination optionsCombination : optionsCombinations) {
+                Path convertedFile = optionsCombination.convertFileIfNecessary(inputPath);
+                assertTrue(convertedFile.toFile().exists());
+                optionsCombination.releaseConvertedFile(convertedFile);
+            }
+            assertEquals(3, conversions.toFile().listFiles().length);
+        }
+        ConversionCache.evict(conversions, 1);
+        assertEquals(0, conversions.toFile().listFiles().length);
+    }
+
+    @Test
+    public void persistentConversionCacheSurvivesTemporaryDirectoryCleanup() throws Exception {
+        ReadOptionsCombination optionsCombination = parseSingleOptionsCombination(
+            "read",
+            "--conversion-cache",
+            "persistent",
+            "--format",
+            "ion_text",
+            "binaryStructs.10n"
+        );
+        ExpectedReadOptionsCombination.defaultOptions()
+            .conversionCacheScope(ConversionCacheScope.PERSISTENT)
+            .format(Format.ION_TEXT)
+            .assertOptionsEqual(optionsCombination);
+        Path inputPath = fileInTestDirectory("binaryStructs.10n");
+        Path convertedFile = optionsCombination.convertFileIfNecessary(inputPath);
+        optionsCombination.releaseConvertedFile(convertedFile);
+        TemporaryFiles.cleanUpTempDirectory();
+        assertTrue(convertedFile.toFile().exists());
+        assertEquals(convertedFile, optionsCombination.convertFileIfNecessary(inputPath));
+        optionsCombination.releaseConvertedFile(convertedFile);
+        Files.delete(convertedFile);
+    }
+
+    @Test
+    public void trickleInputStreamLimitsReadSize() throws Exception {
+        byte[] bytes = new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        try (InputStream input = new TrickleInputStream(new ByteArrayInputStream(bytes), 3)) {
+            byte[] destination = new byte[10];
+            assertEquals(3, input.read(destination, 0, 10));
+            assertEquals(2, input.read(destination, 3, 2));
+            assertEquals(3, input.skip(10));
+            assertEquals(2, input.read(destination, 5, 5));
+            assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 8, 9, 0, 0, 0}, destination);
+            assertEquals(-1, input.read(destination, 0, 10));
+        }
+    }
+
+    @Test
+    public void readFromDiscardSinkRaisesError() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> parseOptionsCombinations("read", "--io-type", "discard", "binaryStructs.10n")
+        );
+    }
+
     @Test
     public void testRemoveOutlier() {
         double[] rawData = {2317.8413, 2444.9921, 3565.89510425, 2464.1393834, 2756.5279585, 2502.709975, 2368.079825, 2315.9788916, 2507.68439575, 2334.7744832, 2610.23078125, 2468.2974, 2745.353625, 2636.8432085, 2529.37710425};